@@ -1,11 +1,15 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
 
@@ -16,49 +20,234 @@ import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
  */
 public final class Analyzer<T> {
 
+	private final CycleLimits limits;
+	private final int parallelism;
+
+	/**
+	 * Construct an analyzer without limits.
+	 */
+	public Analyzer() {
+		this(CycleLimits.NONE);
+	}
+
+	/**
+	 * Construct an analyzer.
+	 * 
+	 * @param limits
+	 *            limits for the search of package cycles
+	 */
+	public Analyzer(final CycleLimits limits) {
+		this(limits, 1);
+	}
+
+	/**
+	 * Construct an analyzer.
+	 * 
+	 * @param limits
+	 *            limits for the search of package cycles
+	 * @param parallelism
+	 *            number of threads to search for package cycles (1 to search
+	 *            in the calling thread)
+	 */
+	public Analyzer(final CycleLimits limits, final int parallelism) {
+		this.limits = limits;
+		this.parallelism = parallelism;
+	}
+
 	/**
 	 * Find package cycles in the given model.
 	 * 
 	 * @param model
 	 *            model
 	 * @return package cycles
+	 * @see #forEachPackageCycle(Model, Consumer)
 	 */
-	public List<PackageCycle<T>> findPackageCycles(final Model<T> model) {
-		final Map<Package<T>, Set<Package<T>>> edges = createEdges(model.getPackages());
-		final List<List<Package<T>>> elementaryCircuits = new Johnson<>(edges).getElementaryCircuits();
+	public PackageCycles<T> findPackageCycles(final Model<T> model) {
+		final List<PackageCycle<T>> packageCycles = new ArrayList<>();
+		final boolean truncated = forEachPackageCycle(model, packageCycles::add);
+		return new PackageCycles<>(packageCycles, truncated);
+	}
 
-		return createPackageCycles(elementaryCircuits);
+	/**
+	 * Find package cycles in the given model and pass each package cycle to the
+	 * given consumer as soon as it is found; the package cycles are not
+	 * retained by the analyzer.
+	 * 
+	 * Elementary circuits can only exist within a strongly connected component,
+	 * so the strongly connected components are determined first (Tarjan) and
+	 * the elementary circuits are only searched (Johnson) in the subgraph
+	 * induced by each non-trivial component.
+	 * 
+	 * The limits apply to the search as a whole (not per component). The
+	 * package cycles are always found in the same order (also when searching
+	 * in parallel).
+	 * 
+	 * @param model
+	 *            model
+	 * @param consumer
+	 *            consumer for package cycles
+	 * @return true, if the search was stopped before all package cycles were
+	 *         found (see {@link CycleLimits})
+	 */
+	public boolean forEachPackageCycle(final Model<T> model, final Consumer<PackageCycle<T>> consumer) {
+		final long deadline = limits.getDeadline(System.nanoTime());
+		final DependencyGraph<T> graph = model.getDependencyGraph();
+		final List<IndexedGraph<Package<T>>> components = createComponents(graph);
 
+		if (parallelism > 1) {
+			return forEachPackageCycleInParallel(components, deadline, consumer);
+		}
+
+		final AtomicInteger found = new AtomicInteger();
+		for (final IndexedGraph<Package<T>> component : components) {
+			final Johnson<Package<T>> johnson = new Johnson<>(component, limits.getMaximumCycles() - found.get(),
+					limits.getMaximumCycleLength(), deadline);
+			final boolean truncated = johnson.forEachElementaryCircuit(elementaryCircuit -> {
+				found.incrementAndGet();
+				consumer.accept(new PackageCycle<>(elementaryCircuit));
+			});
+
+			if (truncated) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 
 	/**
-	 * Create directed graph edges from package usages.
+	 * Find, per strongly connected component of packages, the package
+	 * dependencies to break to remove all package cycles in the component.
+	 * 
+	 * The dependencies are an approximation of a minimum feedback arc set
+	 * (Eades, Lin and Smyth), weighted with the number of references of the
+	 * package usages so dependencies with few references are preferred;
+	 * unlike the search for all package cycles this takes polynomial time, so
+	 * the limits do not apply.
 	 * 
-	 * @param packages 
-	 *            packages
-	 * @return graph edges
+	 * @param model
+	 *            model
+	 * @return feedback arc set per non-trivial strongly connected component
 	 */
-	private Map<Package<T>, Set<Package<T>>> createEdges(final Set<Package<T>> packages) {
-		final Map<Package<T>, Set<Package<T>>> result = new HashMap<>();
-		for (final Package<T> fromPackage : packages) {
-			result.put(fromPackage, fromPackage.getPackageUsages());
+	public List<PackageFeedbackArcSet<T>> findPackageFeedbackArcSets(final Model<T> model) {
+		final List<PackageFeedbackArcSet<T>> result = new ArrayList<>();
+		for (final IndexedGraph<Package<T>> component : createComponents(model.getDependencyGraph())) {
+			final EadesLinSmyth<Package<T>> eadesLinSmyth = new EadesLinSmyth<>(component);
+			final int[] arcs = eadesLinSmyth.getFeedbackArcs();
+			final int[] arcWeights = eadesLinSmyth.getFeedbackArcWeights();
+			final List<PackageDependency<T>> dependencies = new ArrayList<>(arcs.length / 2);
+			for (int arc = 0; arc < arcs.length; arc += 2) {
+				dependencies.add(new PackageDependency<>(component.getVertex(arcs[arc]),
+						component.getVertex(arcs[arc + 1]), arcWeights[arc / 2]));
+			}
+			result.add(new PackageFeedbackArcSet<>(component.getVertices(), Collections.unmodifiableList(dependencies)));
 		}
 		return result;
 	}
 
 	/**
-	 * Map elementary circuits to package cycles.
+	 * Search the components in parallel; the searches of all components are
+	 * submitted to a (dedicated) pool and the package cycles are passed to the
+	 * consumer in the same order as a search in the calling thread would.
+	 */
+	private boolean forEachPackageCycleInParallel(final List<IndexedGraph<Package<T>>> components,
+			final long deadline, final Consumer<PackageCycle<T>> consumer) {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			final AtomicBoolean stopped = new AtomicBoolean();
+			final List<Johnson.Range<Package<T>>> ranges = new ArrayList<>();
+			for (final IndexedGraph<Package<T>> component : components) {
+				final Johnson<Package<T>> johnson = new Johnson<>(component, limits.getMaximumCycles(),
+						limits.getMaximumCycleLength(), deadline);
+				ranges.addAll(johnson.fork(pool, parallelism * Johnson.RANGES_PER_THREAD, stopped));
+			}
+
+			return Johnson.join(ranges, elementaryCircuit -> consumer.accept(new PackageCycle<>(elementaryCircuit)),
+					limits.getMaximumCycles(), stopped);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Determine the subgraphs induced by the non-trivial strongly connected
+	 * components of the package usages (Tarjan); the edges are weighted with
+	 * the number of references of the package usages. A component containing one
+	 * package can not contain a cycle (self usage of packages is not
+	 * registered in the model).
 	 * 
-	 * @param elementaryCircuits
-	 *            elementary circuits
-	 * @return package cycles
+	 * The components are ordered in the order they are completed by Tarjan's
+	 * algorithm; the packages in a component are ordered by id (name) so the
+	 * package cycles are found in the same order on every run.
+	 * 
+	 * @param graph
+	 *            dependency graph
+	 * @return subgraphs of the non-trivial components
 	 */
-	private List<PackageCycle<T>> createPackageCycles(final List<List<Package<T>>> elementaryCircuits) {
-		final List<PackageCycle<T>> result = new ArrayList<>();
-		for (final List<Package<T>> elementaryCircuit : elementaryCircuits) {
-			result.add(new PackageCycle<>(elementaryCircuit));
+	private List<IndexedGraph<Package<T>>> createComponents(final DependencyGraph<T> graph) {
+		final DependencyGraph.Edges usages = graph.getPackageUsages();
+		final int[] offsets = usages.getOffsets();
+		final int[] targets = usages.getTargets();
+		final int[] references = graph.getPackageUsageReferences();
+		final int[] components = Tarjan.getComponents(offsets, targets);
+
+		// Group the packages per component (counting sort keeps the packages
+		// in a component ordered by id)
+		int componentCount = 0;
+		for (final int component : components) {
+			componentCount = Math.max(componentCount, component + 1);
+		}
+		final int[] componentOffsets = new int[componentCount + 1];
+		for (final int component : components) {
+			componentOffsets[component + 1]++;
+		}
+		for (int component = 0; component < componentCount; component++) {
+			componentOffsets[component + 1] += componentOffsets[component];
 		}
+		final int[] next = Arrays.copyOf(componentOffsets, componentCount);
+		final int[] componentPackages = new int[components.length];
+		for (int packageId = 0; packageId < components.length; packageId++) {
+			componentPackages[next[components[packageId]]++] = packageId;
+		}
+
+		// Subgraph per component; vertex numbers are local to the component
+		final int[] vertices = new int[components.length];
+		final List<IndexedGraph<Package<T>>> result = new ArrayList<>();
+		for (int component = 0; component < componentCount; component++) {
+			final int from = componentOffsets[component];
+			final int size = componentOffsets[component + 1] - from;
+			if (size < 2) {
+				continue;
+			}
+
+			final List<Package<T>> packages = new ArrayList<>(size);
+			int edgeCount = 0;
+			for (int vertex = 0; vertex < size; vertex++) {
+				final int packageId = componentPackages[from + vertex];
+				vertices[packageId] = vertex;
+				packages.add(graph.getPackage(packageId));
+				edgeCount += offsets[packageId + 1] - offsets[packageId];
+			}
 
+			final int[] subgraphOffsets = new int[size + 1];
+			final int[] subgraphTargets = new int[edgeCount];
+			final int[] subgraphWeights = new int[edgeCount];
+			int edge = 0;
+			for (int vertex = 0; vertex < size; vertex++) {
+				final int packageId = componentPackages[from + vertex];
+				subgraphOffsets[vertex] = edge;
+				for (int usage = offsets[packageId]; usage < offsets[packageId + 1]; usage++) {
+					if (components[targets[usage]] == component) {
+						subgraphWeights[edge] = references[usage];
+						subgraphTargets[edge++] = vertices[targets[usage]];
+					}
+				}
+			}
+			subgraphOffsets[size] = edge;
+
+			result.add(new IndexedGraph<>(Collections.unmodifiableList(packages), subgraphOffsets,
+					Arrays.copyOf(subgraphTargets, edge), Arrays.copyOf(subgraphWeights, edge)));
+		}
 		return result;
 	}
 }
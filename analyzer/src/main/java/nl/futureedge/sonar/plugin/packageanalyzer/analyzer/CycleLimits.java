@@ -0,0 +1,77 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+/**
+ * Limits for the search of (elementary) cycles; the number of cycles in a
+ * graph can be exponential in the number of vertices.
+ */
+public final class CycleLimits {
+
+	/**
+	 * No limits.
+	 */
+	public static final CycleLimits NONE = new CycleLimits(0, 0, 0);
+
+	private final int maximumCycles;
+	private final int maximumCycleLength;
+	private final long maximumDuration;
+
+	/**
+	 * Construct limits; a value of 0 (or less) means no limit.
+	 *
+	 * @param maximumCycles
+	 *            maximum number of cycles to find; the search is stopped (and
+	 *            the result is truncated) when more cycles exist
+	 * @param maximumCycleLength
+	 *            maximum length of a cycle; longer cycles are not searched
+	 * @param maximumDuration
+	 *            maximum duration (in milliseconds) of the search; the search
+	 *            is stopped (and the result is truncated) when it takes longer
+	 */
+	public CycleLimits(final int maximumCycles, final int maximumCycleLength, final long maximumDuration) {
+		this.maximumCycles = maximumCycles <= 0 ? Integer.MAX_VALUE : maximumCycles;
+		this.maximumCycleLength = maximumCycleLength <= 0 ? Integer.MAX_VALUE : maximumCycleLength;
+		this.maximumDuration = maximumDuration <= 0 ? Long.MAX_VALUE : maximumDuration;
+	}
+
+	/**
+	 * @return maximum number of cycles (Integer.MAX_VALUE if not limited)
+	 */
+	public int getMaximumCycles() {
+		return maximumCycles;
+	}
+
+	/**
+	 * @return maximum length of a cycle (Integer.MAX_VALUE if not limited)
+	 */
+	public int getMaximumCycleLength() {
+		return maximumCycleLength;
+	}
+
+	/**
+	 * @return maximum duration in milliseconds (Long.MAX_VALUE if not limited)
+	 */
+	public long getMaximumDuration() {
+		return maximumDuration;
+	}
+
+	/**
+	 * Calculate the deadline of a search started at the given time.
+	 *
+	 * @param startNanos
+	 *            start of the search ({@link System#nanoTime()})
+	 * @return deadline ({@link System#nanoTime()}), or Long.MAX_VALUE if the
+	 *         duration is not limited
+	 */
+	long getDeadline(final long startNanos) {
+		if (maximumDuration == Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		return startNanos + maximumDuration * 1_000_000L;
+	}
+
+	@Override
+	public String toString() {
+		return "CycleLimits [maximumCycles=" + maximumCycles + ", maximumCycleLength=" + maximumCycleLength
+				+ ", maximumDuration=" + maximumDuration + "]";
+	}
+}
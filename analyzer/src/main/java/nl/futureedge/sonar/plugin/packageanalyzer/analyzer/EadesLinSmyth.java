@@ -0,0 +1,280 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Eades, Lin and Smyth's heuristic for the minimum feedback arc set problem:
+ * a (small, not necessarily minimal) set of edges whose removal makes a
+ * directed graph acyclic.
+ *
+ * The vertices are ordered by repeatedly removing sinks (prepended to the end
+ * of the ordering), sources (appended to the start of the ordering) and
+ * otherwise the vertex with the largest difference between out-degree and
+ * in-degree (appended to the start of the ordering). The edges pointing
+ * backwards in the ordering form the feedback arc set. For a weighted graph the
+ * degrees are the sums of the weights of the edges, so edges with a low weight
+ * are preferred in the feedback arc set.
+ *
+ * The vertices are numbered (in the iteration order of the given edges) and
+ * the algorithm runs on primitive arrays in O((V + E) log V); ties are broken
+ * on the lowest vertex number, so the result is the same on every run.
+ *
+ * @param <T>
+ *            Vertex type
+ * @see <a href="https://doi.org/10.1016/0020-0190(93)90079-O">A fast and
+ *      effective heuristic for the feedback arc set problem</a>
+ */
+public final class EadesLinSmyth<T> {
+
+	private final IndexedGraph<T> graph;
+
+	// Output
+	private int[] ordering;
+	private int[] feedbackArcs;
+	private int[] feedbackArcWeights;
+
+	/**
+	 * Construct an algorithm solver using the given edges (Map&lt;fromVertex,
+	 * Set&lt;toVertex>>).
+	 *
+	 * Note: the given vertex type need to implement hashCode and equals
+	 * correctly.
+	 *
+	 * @param edges
+	 *            edges
+	 */
+	public EadesLinSmyth(final Map<T, Set<T>> edges) {
+		this(IndexedGraph.of(edges));
+	}
+
+	/**
+	 * Construct an algorithm solver using the given (indexed) graph.
+	 *
+	 * @param graph
+	 *            graph
+	 */
+	EadesLinSmyth(final IndexedGraph<T> graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Calculate the feedback arc set.
+	 *
+	 * @return edges to remove to make the graph acyclic (Map&lt;fromVertex,
+	 *         Set&lt;toVertex>>)
+	 */
+	public Map<T, Set<T>> getFeedbackArcSet() {
+		final int[] arcs = getFeedbackArcs();
+		final Map<T, Set<T>> result = new LinkedHashMap<>();
+		for (int arc = 0; arc < arcs.length; arc += 2) {
+			result.computeIfAbsent(graph.getVertex(arcs[arc]), key -> new LinkedHashSet<>())
+					.add(graph.getVertex(arcs[arc + 1]));
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate the feedback arc set (on vertex numbers).
+	 *
+	 * @return edges to remove to make the graph acyclic, as pairs (from vertex,
+	 *         to vertex) ordered on from vertex and then on to vertex
+	 */
+	int[] getFeedbackArcs() {
+		if (feedbackArcs == null) {
+			final int[] position = new int[graph.size()];
+			final int[] order = getOrdering();
+			for (int index = 0; index < order.length; index++) {
+				position[order[index]] = index;
+			}
+
+			final int[] offsets = graph.getOffsets();
+			final int[] targets = graph.getTargets();
+			int[] arcs = new int[16];
+			int[] weights = new int[8];
+			int arcCount = 0;
+			for (int vertex = 0; vertex < graph.size(); vertex++) {
+				final int from = arcCount;
+				for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+					if (position[targets[edge]] <= position[vertex]) {
+						if (arcCount + 2 > arcs.length) {
+							arcs = Arrays.copyOf(arcs, arcs.length * 2);
+							weights = Arrays.copyOf(weights, weights.length * 2);
+						}
+						weights[arcCount / 2] = graph.getWeight(edge);
+						arcs[arcCount++] = vertex;
+						arcs[arcCount++] = targets[edge];
+					}
+				}
+				sortTargets(arcs, weights, from, arcCount);
+			}
+			feedbackArcs = Arrays.copyOf(arcs, arcCount);
+			feedbackArcWeights = Arrays.copyOf(weights, arcCount / 2);
+		}
+		return feedbackArcs;
+	}
+
+	/**
+	 * Calculate the weights of the feedback arcs.
+	 *
+	 * @return weight per edge of {@link #getFeedbackArcs()} (1 for an
+	 *         unweighted graph)
+	 */
+	int[] getFeedbackArcWeights() {
+		getFeedbackArcs();
+		return feedbackArcWeights;
+	}
+
+	private static void sortTargets(final int[] arcs, final int[] weights, final int from, final int to) {
+		// Insertion sort on the to vertices (the from vertex is the same)
+		for (int arc = from + 2; arc < to; arc += 2) {
+			final int target = arcs[arc + 1];
+			final int weight = weights[arc / 2];
+			int other = arc - 2;
+			while (other >= from && arcs[other + 1] > target) {
+				arcs[other + 3] = arcs[other + 1];
+				weights[other / 2 + 1] = weights[other / 2];
+				other -= 2;
+			}
+			arcs[other + 3] = target;
+			weights[other / 2 + 1] = weight;
+		}
+	}
+
+	/**
+	 * Calculate the ordering of the vertices.
+	 *
+	 * @return vertex numbers in order; only the edges pointing backwards in
+	 *         the ordering are part of a cycle
+	 */
+	int[] getOrdering() {
+		if (ordering == null) {
+			ordering = calculateOrdering();
+		}
+		return ordering;
+	}
+
+	private int[] calculateOrdering() {
+		final int size = graph.size();
+		final int[] offsets = graph.getOffsets();
+		final int[] targets = graph.getTargets();
+
+		// Reverse edges (and weights)
+		final int[] reverseOffsets = new int[size + 1];
+		for (final int target : targets) {
+			reverseOffsets[target + 1]++;
+		}
+		for (int vertex = 0; vertex < size; vertex++) {
+			reverseOffsets[vertex + 1] += reverseOffsets[vertex];
+		}
+		final int[] next = Arrays.copyOf(reverseOffsets, size);
+		final int[] reverseTargets = new int[targets.length];
+		final int[] reverseWeights = new int[targets.length];
+		for (int vertex = 0; vertex < size; vertex++) {
+			for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+				reverseWeights[next[targets[edge]]] = graph.getWeight(edge);
+				reverseTargets[next[targets[edge]]++] = vertex;
+			}
+		}
+
+		// (Weighted) degrees (self loops are ignored; they are always feedback
+		// arcs)
+		final long[] outDegree = new long[size];
+		final long[] inDegree = new long[size];
+		for (int vertex = 0; vertex < size; vertex++) {
+			for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+				if (targets[edge] != vertex) {
+					outDegree[vertex] += graph.getWeight(edge);
+					inDegree[targets[edge]] += graph.getWeight(edge);
+				}
+			}
+		}
+
+		// Candidates: sinks, sources and (lazily updated) largest delta
+		final int[] sinks = new int[size];
+		int sinkCount = 0;
+		final int[] sources = new int[size];
+		int sourceCount = 0;
+		final PriorityQueue<Long> deltas = new PriorityQueue<>();
+		for (int vertex = size - 1; vertex >= 0; vertex--) {
+			if (outDegree[vertex] == 0) {
+				sinks[sinkCount++] = vertex;
+			} else if (inDegree[vertex] == 0) {
+				sources[sourceCount++] = vertex;
+			} else {
+				deltas.add(deltaKey(vertex, outDegree[vertex] - inDegree[vertex]));
+			}
+		}
+
+		final boolean[] removed = new boolean[size];
+		final int[] result = new int[size];
+		int start = 0;
+		int end = size;
+		while (start < end) {
+			final int vertex;
+			final boolean toStart;
+			if (sinkCount > 0) {
+				vertex = sinks[--sinkCount];
+				toStart = false;
+			} else if (sourceCount > 0) {
+				vertex = sources[--sourceCount];
+				toStart = true;
+			} else {
+				final long key = deltas.poll();
+				vertex = (int) key;
+				if (removed[vertex] || deltaKey(vertex, outDegree[vertex] - inDegree[vertex]) != key) {
+					// Stale entry
+					continue;
+				}
+				toStart = true;
+			}
+			if (removed[vertex]) {
+				continue;
+			}
+			removed[vertex] = true;
+			if (toStart) {
+				result[start++] = vertex;
+			} else {
+				result[--end] = vertex;
+			}
+
+			// Update the degrees of the remaining neighbours
+			for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+				final int target = targets[edge];
+				if (target != vertex && !removed[target]) {
+					inDegree[target] -= graph.getWeight(edge);
+					if (inDegree[target] == 0 && outDegree[target] != 0) {
+						sources[sourceCount++] = target;
+					} else if (outDegree[target] != 0) {
+						deltas.add(deltaKey(target, outDegree[target] - inDegree[target]));
+					}
+				}
+			}
+			for (int edge = reverseOffsets[vertex]; edge < reverseOffsets[vertex + 1]; edge++) {
+				final int source = reverseTargets[edge];
+				if (source != vertex && !removed[source]) {
+					outDegree[source] -= reverseWeights[edge];
+					if (outDegree[source] == 0) {
+						sinks[sinkCount++] = source;
+					} else if (inDegree[source] != 0) {
+						deltas.add(deltaKey(source, outDegree[source] - inDegree[source]));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Key for the priority queue: largest delta first, then lowest vertex
+	 * number.
+	 */
+	private static long deltaKey(final int vertex, final long delta) {
+		final long clamped = Math.max(Integer.MIN_VALUE + 1L, Math.min(Integer.MAX_VALUE, delta));
+		return (-clamped << 32) | vertex;
+	}
+}
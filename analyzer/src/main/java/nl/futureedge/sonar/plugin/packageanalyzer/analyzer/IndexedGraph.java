@@ -0,0 +1,160 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Directed graph with the vertices numbered 0..n-1 and the edges stored in
+ * compressed sparse row format (the successors of vertex v are
+ * targets[offsets[v]] up to (not including) targets[offsets[v + 1]]).
+ * Edges can be weighted (weights[e] is the weight of the edge to targets[e]);
+ * unweighted edges have weight 1.
+ *
+ * @param <T>
+ *            Vertex type
+ */
+final class IndexedGraph<T> {
+
+	private final List<T> vertices;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+
+	/**
+	 * Construct an unweighted graph.
+	 *
+	 * @param vertices
+	 *            vertices (index in the list is the vertex number)
+	 * @param offsets
+	 *            offsets (length: number of vertices + 1)
+	 * @param targets
+	 *            targets
+	 */
+	IndexedGraph(final List<T> vertices, final int[] offsets, final int[] targets) {
+		this(vertices, offsets, targets, null);
+	}
+
+	/**
+	 * Construct a weighted graph.
+	 *
+	 * @param vertices
+	 *            vertices (index in the list is the vertex number)
+	 * @param offsets
+	 *            offsets (length: number of vertices + 1)
+	 * @param targets
+	 *            targets
+	 * @param weights
+	 *            weights (same length as targets; null for an unweighted
+	 *            graph)
+	 */
+	IndexedGraph(final List<T> vertices, final int[] offsets, final int[] targets, final int[] weights) {
+		this.vertices = vertices;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Create a graph from the given edges (Map&lt;fromVertex,
+	 * Collection&lt;toVertex>>).
+	 *
+	 * Vertices are numbered in the iteration order of the edges; vertices
+	 * only referenced as 'to' in an edge are numbered last. Successors are
+	 * kept in the iteration order of the collection.
+	 *
+	 * Note: the given vertex type need to implement hashCode and equals
+	 * correctly.
+	 *
+	 * @param edges
+	 *            edges
+	 * @return graph
+	 */
+	static <T> IndexedGraph<T> of(final Map<T, ? extends Collection<T>> edges) {
+		final Map<T, Integer> indices = new HashMap<>();
+		final List<T> vertices = new ArrayList<>();
+		for (final T from : edges.keySet()) {
+			index(indices, vertices, from);
+		}
+
+		int edgeCount = 0;
+		for (final Collection<T> toVertices : edges.values()) {
+			for (final T to : toVertices) {
+				index(indices, vertices, to);
+			}
+			edgeCount += toVertices.size();
+		}
+
+		final int[] offsets = new int[vertices.size() + 1];
+		final int[] targets = new int[edgeCount];
+		int edge = 0;
+		for (int vertex = 0; vertex < vertices.size(); vertex++) {
+			offsets[vertex] = edge;
+			final Collection<T> toVertices = edges.get(vertices.get(vertex));
+			if (toVertices != null) {
+				for (final T to : toVertices) {
+					targets[edge++] = indices.get(to);
+				}
+			}
+		}
+		offsets[vertices.size()] = edge;
+
+		return new IndexedGraph<>(Collections.unmodifiableList(vertices), offsets, targets);
+	}
+
+	private static <T> void index(final Map<T, Integer> indices, final List<T> vertices, final T vertex) {
+		if (!indices.containsKey(vertex)) {
+			indices.put(vertex, vertices.size());
+			vertices.add(vertex);
+		}
+	}
+
+	/**
+	 * @return number of vertices
+	 */
+	int size() {
+		return vertices.size();
+	}
+
+	/**
+	 * @param vertex
+	 *            vertex number
+	 * @return vertex
+	 */
+	T getVertex(final int vertex) {
+		return vertices.get(vertex);
+	}
+
+	/**
+	 * @return vertices (index in the list is the vertex number)
+	 */
+	List<T> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * @return offsets (length: number of vertices + 1)
+	 */
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * @return targets
+	 */
+	int[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * @param edge
+	 *            edge (index in the targets)
+	 * @return weight of the edge (1 for an unweighted graph)
+	 */
+	int getWeight(final int edge) {
+		return weights == null ? 1 : weights[edge];
+	}
+}
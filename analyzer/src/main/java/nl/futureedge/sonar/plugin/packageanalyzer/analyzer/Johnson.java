@@ -1,171 +1,319 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Donald B Johnson's algorithm for finding all the elementary circuits of a
  * directed graph.
- * 
+ *
+ * The vertices are numbered (in the iteration order of the given edges) and
+ * the algorithm runs on primitive arrays; recursion (CIRCUIT and UNBLOCK) is
+ * replaced by explicit stacks.
+ *
+ * The search can be limited (see {@link CycleLimits}); when the search is
+ * stopped before all elementary circuits are found, the result is marked as
+ * truncated.
+ *
+ * The search from each start vertex only depends on the graph, so ranges of
+ * start vertices can be searched in parallel (see
+ * {@link #forEachElementaryCircuit(Consumer, ForkJoinPool)}).
+ *
  * @param <T>
  *            Vertex type
  */
 public final class Johnson<T> {
 
+	// CUSTOM: number of start vertex ranges per thread in a parallel search
+	static final int RANGES_PER_THREAD = 4;
+	// CUSTOM: number of elementary circuits buffered per range in a parallel
+	// search
+	static final int RANGE_BUFFER_SIZE = 1024;
+	private static final long OFFER_MILLIS = 10;
+
 	// Input
 	// integer list array Ak(n)
-	private final Map<T, Set<T>> edges;
-
-	// Variables
-	// integer list array B(n)
-	private final Map<T, Set<T>> usedEdges = new HashMap<>();
-	// logical array blocked(n)
-	private final Map<T, Boolean> blocked = new HashMap<>();
-	// empty stack
-	private final List<T> stack = new ArrayList<>();
-	// CUSTOM: Completed edges
-	private final List<T> completedVertices = new ArrayList<>();
+	private final IndexedGraph<T> graph;
+	// CUSTOM: limits
+	private final int maximumCycles;
+	private final int maximumCycleLength;
+	private final long deadline;
 
 	// Output
 	private List<List<T>> elementaryCircuits;
+	private boolean truncated;
 
 	/**
 	 * Construct an algorithm solver using the given edges (Map&lt;fromVertex,
 	 * Set&lt;toVertex>>).
-	 * 
+	 *
 	 * Note: the given vertex type need to implement hashCode and equals
 	 * correctly.
-	 * 
+	 *
 	 * @param edges
 	 *            edges
 	 */
 	public Johnson(final Map<T, Set<T>> edges) {
-		// Ak := adjacency structure of strong component K with least vertex in
-		// subgraph of G induced by {s, s + 1, n}.
-		this.edges = edges;
-
+		this(edges, CycleLimits.NONE);
 	}
 
-	// procedure UNBLOCK(integer value u)
-	private void unblock(final T vertex) {
-		// blocked(u) := false
-		blocked.put(vertex, false);
-
-		// for w in B(u) do
-		// begin
-		// delete w from B(u)
-		// if blocked(w) then UNBLOCK(w)
-		// end
-		final Set<T> verticesToUnblock = usedEdges.put(vertex, new HashSet<>());
-		for (final T vertexToUnblock : verticesToUnblock) {
-			if (blocked.get(vertexToUnblock)) {
-				unblock(vertexToUnblock);
-			}
-		}
+	/**
+	 * Construct an algorithm solver using the given edges (Map&lt;fromVertex,
+	 * Set&lt;toVertex>>) and limits; the maximum duration is measured from the
+	 * construction of the solver.
+	 *
+	 * Note: the given vertex type need to implement hashCode and equals
+	 * correctly.
+	 *
+	 * @param edges
+	 *            edges
+	 * @param limits
+	 *            limits
+	 */
+	public Johnson(final Map<T, Set<T>> edges, final CycleLimits limits) {
+		this(edges, limits.getMaximumCycles(), limits.getMaximumCycleLength(),
+				limits.getDeadline(System.nanoTime()));
 	}
 
-	// logical procedure CIRCUIT(integer value v)
-	private boolean circuit(final T start, final T currentVertex) {
-		// logical f
-		// f := false
-		boolean result = false;
+	/**
+	 * Construct an algorithm solver using the given edges and (absolute)
+	 * limits.
+	 *
+	 * @param edges
+	 *            edges
+	 * @param maximumCycles
+	 *            maximum number of circuits to find
+	 * @param maximumCycleLength
+	 *            maximum length of circuits to find
+	 * @param deadline
+	 *            deadline ({@link System#nanoTime()}) or Long.MAX_VALUE
+	 */
+	Johnson(final Map<T, Set<T>> edges, final int maximumCycles, final int maximumCycleLength,
+			final long deadline) {
+		this(IndexedGraph.of(edges), maximumCycles, maximumCycleLength, deadline);
+	}
 
-		// stack v
-		stack.add(currentVertex);
-		// blocked(v) := true
-		blocked.put(currentVertex, true);
+	/**
+	 * Construct an algorithm solver using the given graph and (absolute)
+	 * limits.
+	 *
+	 * @param graph
+	 *            graph
+	 * @param maximumCycles
+	 *            maximum number of circuits to find
+	 * @param maximumCycleLength
+	 *            maximum length of circuits to find
+	 * @param deadline
+	 *            deadline ({@link System#nanoTime()}) or Long.MAX_VALUE
+	 */
+	Johnson(final IndexedGraph<T> graph, final int maximumCycles, final int maximumCycleLength,
+			final long deadline) {
+		this.graph = graph;
+		this.maximumCycles = maximumCycles;
+		this.maximumCycleLength = maximumCycleLength;
+		this.deadline = deadline;
+	}
 
-		// for w in Ak(v)
-		for (final T nextVertex : edges.get(currentVertex)) {
-			// do
-			// if w = s
-			if (nextVertex.equals(start)) {
-				// then
-				// begin
-				// output circuit composed of stack followed by s
-				// f := true
-				// end
-				final List<T> elementaryCircuit = new ArrayList<>(stack);
-				// CUSTOM: We skip adding S as it is implicit in the result
-				//elementaryCircuit.add(start)
+	private void calculate() {
+		elementaryCircuits = new ArrayList<>();
+		truncated = forEachElementaryCircuit(elementaryCircuits::add);
+	}
 
-				elementaryCircuits.add(elementaryCircuit);
+	/**
+	 * Find the elementary circuits in the given list of edges and pass each
+	 * elementary circuit to the given consumer as soon as it is found; the
+	 * elementary circuits are not retained by the solver.
+	 *
+	 * @param consumer
+	 *            consumer for elementary circuits (a elementary circuits is a
+	 *            list of objects from the list of edges; the last object in the
+	 *            list implicitly points to the first)
+	 * @return true, if the search was stopped before all elementary circuits
+	 *         were found (because the maximum number of circuits or the
+	 *         maximum duration was reached)
+	 */
+	public boolean forEachElementaryCircuit(final Consumer<List<T>> consumer) {
+		final Search search = new Search(graph.getOffsets(), graph.getTargets(), maximumCycleLength, deadline,
+				new AtomicBoolean());
+		final CircuitListener listener = new CircuitListener() {
+			private int found;
 
-				result = true;
-			} else {
-				// else
-				// if not blocked(w)
-				// then
-				// if CIRCUIT(w)
-				if (!blocked.get(nextVertex) && circuit(start, nextVertex)) {
-					// then
-					// f := true
-					result = true;
+			@Override
+			public boolean circuit(final int[] stack, final int length) {
+				if (found >= maximumCycles) {
+					return false;
 				}
+				found++;
+				consumer.accept(toElementaryCircuit(stack, length));
+				return true;
 			}
-		}
+		};
 
-		// if f
-		if (result) {
-			// then
-			// UNBLOCK(v)
-			unblock(currentVertex);
-		} else {
-			// else
-			// for w in Ak(v)
-			for (final T nextVertex : edges.get(currentVertex)) {
-				// do
-				// if v not in B(w) then put v on B(w)
-				usedEdges.get(nextVertex).add(currentVertex);
-			}
-		}
-		// unstack v
-		stack.remove(stack.size() - 1);
-
-		// CIRCUIT := f
-		return result;
-
-	}
-
-	private void calculate() {
-		elementaryCircuits = new ArrayList<>();
 		// s := 1
 		// while s < n do
 		// begin
 		// if Ak != EMPTY
 		// else s:= n
 		// end
-		for (final T vertex : edges.keySet()) {
-			// for I in Vk do
-			// begin
-			// blocked(i) := false
-			// B(i) := empty set
-			// end
-			for (final T clean : edges.keySet()) {
-				usedEdges.put(clean, new HashSet<>());
+		for (int start = 0; start < graph.size(); start++) {
+			if (!search.circuits(start, listener)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find the elementary circuits in the given list of edges using the given
+	 * pool and pass each elementary circuit to the given consumer (in the
+	 * calling thread).
+	 *
+	 * The start vertices are divided in ranges that are searched in parallel
+	 * (each with its own search state); the elementary circuits are passed to
+	 * the consumer in the same order (and with the same limits) as
+	 * {@link #forEachElementaryCircuit(Consumer)} would. Each range hands its
+	 * elementary circuits over through a bounded buffer; a range waits while
+	 * its buffer is full (until the preceding ranges are passed to the
+	 * consumer), so at most {@value #RANGE_BUFFER_SIZE} elementary circuits
+	 * per range are held in memory.
+	 *
+	 * @param consumer
+	 *            consumer for elementary circuits
+	 * @param pool
+	 *            pool to execute the search
+	 * @return true, if the search was stopped before all elementary circuits
+	 *         were found (because the maximum number of circuits or the
+	 *         maximum duration was reached)
+	 */
+	public boolean forEachElementaryCircuit(final Consumer<List<T>> consumer, final ForkJoinPool pool) {
+		final AtomicBoolean stopped = new AtomicBoolean();
+		return join(fork(pool, pool.getParallelism() * RANGES_PER_THREAD, stopped), consumer, maximumCycles,
+				stopped);
+	}
+
+	/**
+	 * Submit the search for elementary circuits, divided in (at most) the
+	 * given number of ranges of start vertices, to the given pool.
+	 *
+	 * The ranges are submitted in order; a pool executes submitted tasks in
+	 * order, so a range only waits for (running or completed) preceding
+	 * ranges.
+	 *
+	 * @param pool
+	 *            pool to execute the search
+	 * @param ranges
+	 *            maximum number of ranges
+	 * @param stopped
+	 *            flag to stop the search
+	 * @return ranges (in order of the start vertices)
+	 */
+	List<Range<T>> fork(final ForkJoinPool pool, final int ranges, final AtomicBoolean stopped) {
+		// The last vertex can not start a circuit (all other vertices have a
+		// lower number)
+		final int starts = graph.size() - 1;
+		final List<Range<T>> result = new ArrayList<>();
+		if (starts > 0) {
+			final int rangeSize = (starts + ranges - 1) / ranges;
+			for (int fromStart = 0; fromStart < starts; fromStart += rangeSize) {
+				final Range<T> range = new Range<>(stopped);
+				final int from = fromStart;
+				final int to = Math.min(fromStart + rangeSize, starts);
+				range.task = pool.submit(() -> search(range, from, to));
+				result.add(range);
+			}
+		}
+		return result;
+	}
 
-				// Block completed vertices to skip duplicate circuits
-				// this implements Vk
-				blocked.put(clean, completedVertices.contains(clean));
+	private Boolean search(final Range<T> range, final int fromStart, final int toStart) {
+		final Search search = new Search(graph.getOffsets(), graph.getTargets(), maximumCycleLength, deadline,
+				range.stopped);
+		final CircuitListener listener = (stack, length) -> range.offer(toElementaryCircuit(stack, length));
+		try {
+			for (int start = fromStart; start < toStart; start++) {
+				if (!search.circuits(start, listener)) {
+					return Boolean.TRUE;
+				}
 			}
+			return Boolean.FALSE;
+		} finally {
+			range.offer(range.end);
+		}
+	}
 
-			circuit(vertex, vertex);
+	/**
+	 * Pass the elementary circuits found by the given ranges (in order) to the
+	 * given consumer; remaining ranges are stopped when the maximum number of
+	 * circuits is reached or a range was stopped.
+	 *
+	 * @param ranges
+	 *            ranges (in order)
+	 * @param consumer
+	 *            consumer for elementary circuits
+	 * @param maximumCycles
+	 *            maximum number of circuits to pass to the consumer
+	 * @param stopped
+	 *            flag to stop the search (of the ranges)
+	 * @return true, if the search was stopped before all elementary circuits
+	 *         were found
+	 */
+	static <T> boolean join(final List<Range<T>> ranges, final Consumer<List<T>> consumer, final int maximumCycles,
+			final AtomicBoolean stopped) {
+		int found = 0;
+		try {
+			for (final Range<T> range : ranges) {
+				List<T> elementaryCircuit = range.buffer.take();
+				while (elementaryCircuit != range.end) {
+					if (found >= maximumCycles) {
+						return true;
+					}
+					found++;
+					consumer.accept(elementaryCircuit);
+					elementaryCircuit = range.buffer.take();
+				}
+				if (range.task.join()) {
+					return true;
+				}
+			}
+			return false;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		} finally {
+			stopped.set(true);
+			for (final Range<T> range : ranges) {
+				range.task.cancel(false);
+			}
+		}
+	}
 
-			completedVertices.add(vertex);
+	private List<T> toElementaryCircuit(final int[] stack, final int length) {
+		final List<T> elementaryCircuit = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			elementaryCircuit.add(graph.getVertex(stack[i]));
 		}
+		return elementaryCircuit;
 	}
 
 	/**
 	 * Return (and calculate) the elementary circuits in the given list of
 	 * edges.
-	 * 
+	 *
 	 * @return List of elementary circuits (a elementary circuits is a list of
 	 *         objects from the list of edges; the last object in the list
 	 *         implicitly points to the first)
+	 * @see #forEachElementaryCircuit(Consumer)
 	 */
 	public synchronized List<List<T>> getElementaryCircuits() {
 		if (elementaryCircuits == null) {
@@ -174,4 +322,311 @@ public final class Johnson<T> {
 
 		return elementaryCircuits;
 	}
+
+	/**
+	 * Return (and calculate) if the search for elementary circuits was stopped
+	 * before all elementary circuits were found (because the maximum number of
+	 * circuits or the maximum duration was reached).
+	 *
+	 * @return true, if the elementary circuits are incomplete
+	 */
+	public synchronized boolean isTruncated() {
+		if (elementaryCircuits == null) {
+			calculate();
+		}
+
+		return truncated;
+	}
+
+	/**
+	 * Range of start vertices searched by a (parallel) search task; the
+	 * elementary circuits found are handed over through a bounded buffer,
+	 * followed by an end marker.
+	 *
+	 * @param <T>
+	 *            Vertex type
+	 */
+	static final class Range<T> {
+		private final BlockingQueue<List<T>> buffer = new ArrayBlockingQueue<>(RANGE_BUFFER_SIZE);
+		private final List<T> end = new ArrayList<>(0);
+		private final AtomicBoolean stopped;
+		// Result: true, if the range was stopped before all elementary
+		// circuits were found
+		private ForkJoinTask<Boolean> task;
+
+		Range(final AtomicBoolean stopped) {
+			this.stopped = stopped;
+		}
+
+		/**
+		 * Hand over an elementary circuit (or the end marker); waits while the
+		 * buffer is full.
+		 *
+		 * @return false, if the search was stopped
+		 */
+		private boolean offer(final List<T> elementaryCircuit) {
+			try {
+				while (!stopped.get()) {
+					if (buffer.offer(elementaryCircuit, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Listener for found elementary circuits.
+	 */
+	@FunctionalInterface
+	interface CircuitListener {
+
+		/**
+		 * Called for each elementary circuit found.
+		 *
+		 * @param stack
+		 *            vertex numbers of the circuit (only valid during the
+		 *            call; the last vertex implicitly points to the first)
+		 * @param length
+		 *            number of vertices in the circuit
+		 * @return true, to continue the search; false, to stop the search
+		 */
+		boolean circuit(int[] stack, int length);
+	}
+
+	/**
+	 * Search state for the elementary circuits starting at a vertex; all state
+	 * is allocated once and reused for each start vertex. The state of a vertex
+	 * is only reset when the vertex is first touched for a start vertex, so a
+	 * search does not cost O(n) before it starts.
+	 */
+	static final class Search {
+
+		// CUSTOM: check the deadline (and the stop flag) every 1024 steps
+		private static final int STOP_CHECK_MASK = 0x3FF;
+
+		private final int[] offsets;
+		private final int[] targets;
+		private final int maximumLength;
+		private final long deadline;
+		private final AtomicBoolean stopped;
+		private int steps;
+
+		// logical array blocked(n)
+		private final BitSet blocked;
+		// integer list array B(n)
+		private final int[][] b;
+		private final int[] bSize;
+		// empty stack (vertex, next edge to visit and f for each vertex)
+		private final int[] stack;
+		private final int[] stackEdge;
+		private final boolean[] stackFound;
+		private int stackSize;
+		// CUSTOM: work list to UNBLOCK without recursion
+		private final int[] unblockStack;
+		// CUSTOM: start vertex (+1) for which the vertex state is valid
+		private final int[] touchedFor;
+		private int current;
+
+		/**
+		 * Construct search state for the given graph (compressed sparse row
+		 * format).
+		 *
+		 * @param offsets
+		 *            offsets (length: number of vertices + 1)
+		 * @param targets
+		 *            targets
+		 * @param maximumLength
+		 *            maximum length of circuits to find
+		 * @param deadline
+		 *            deadline ({@link System#nanoTime()}) or Long.MAX_VALUE
+		 * @param stopped
+		 *            flag to stop the search
+		 */
+		Search(final int[] offsets, final int[] targets, final int maximumLength, final long deadline,
+				final AtomicBoolean stopped) {
+			final int size = offsets.length - 1;
+			this.offsets = offsets;
+			this.targets = targets;
+			this.maximumLength = maximumLength;
+			this.deadline = deadline;
+			this.stopped = stopped;
+			blocked = new BitSet(size);
+			b = new int[size][];
+			bSize = new int[size];
+			stack = new int[size];
+			stackEdge = new int[size];
+			stackFound = new boolean[size];
+			unblockStack = new int[size];
+			touchedFor = new int[size];
+		}
+
+		/**
+		 * Find all elementary circuits that start at the given vertex and
+		 * only contain vertices with a higher number.
+		 *
+		 * @param start
+		 *            start vertex (s)
+		 * @param listener
+		 *            listener for found circuits
+		 * @return false, if the search was stopped (by the listener, the stop
+		 *         flag or because the deadline passed)
+		 */
+		boolean circuits(final int start, final CircuitListener listener) {
+			// for I in Vk do
+			// begin
+			// blocked(i) := false
+			// B(i) := empty set
+			// end
+			// CUSTOM: vertices with a lower number than s are skipped to
+			// skip duplicate circuits; this implements Vk. State is reset
+			// when a vertex is touched (see touch).
+			current = start + 1;
+
+			// logical procedure CIRCUIT(integer value v)
+			push(start);
+			while (stackSize > 0) {
+				final int top = stackSize - 1;
+				final int vertex = stack[top];
+				final int edge = stackEdge[top];
+
+				// for w in Ak(v)
+				if (edge < offsets[vertex + 1]) {
+					stackEdge[top] = edge + 1;
+					final int nextVertex = targets[edge];
+					if (nextVertex == start) {
+						// output circuit composed of stack followed by s
+						// (CUSTOM: s is implicit in the result)
+						// f := true
+						if (!listener.circuit(stack, stackSize)) {
+							stackSize = 0;
+							return false;
+						}
+						stackFound[top] = true;
+					} else if (nextVertex > start && !isBlocked(nextVertex)) {
+						if (stackSize < maximumLength) {
+							// if not blocked(w) then CIRCUIT(w)
+							push(nextVertex);
+						} else {
+							// CUSTOM: circuits through w are too long; v is
+							// treated as if a circuit was found so it does not
+							// stay blocked for shorter circuits
+							stackFound[top] = true;
+						}
+					}
+				} else {
+					pop(start);
+				}
+
+				if (shouldStop()) {
+					stackSize = 0;
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean shouldStop() {
+			return (++steps & STOP_CHECK_MASK) == 0
+					&& (stopped.get() || deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0);
+		}
+
+		private void touch(final int vertex) {
+			if (touchedFor[vertex] != current) {
+				touchedFor[vertex] = current;
+				blocked.clear(vertex);
+				bSize[vertex] = 0;
+			}
+		}
+
+		private boolean isBlocked(final int vertex) {
+			return touchedFor[vertex] == current && blocked.get(vertex);
+		}
+
+		private void push(final int vertex) {
+			touch(vertex);
+			// stack v
+			stack[stackSize] = vertex;
+			stackEdge[stackSize] = offsets[vertex];
+			// f := false
+			stackFound[stackSize] = false;
+			stackSize++;
+			// blocked(v) := true
+			blocked.set(vertex);
+		}
+
+		private void pop(final int start) {
+			// unstack v
+			final int top = --stackSize;
+			final int vertex = stack[top];
+
+			if (stackFound[top]) {
+				// if f then UNBLOCK(v)
+				unblock(vertex);
+
+				// CIRCUIT := f (if CIRCUIT(w) then f := true)
+				if (top > 0) {
+					stackFound[top - 1] = true;
+				}
+			} else {
+				// else for w in Ak(v) do if v not in B(w) then put v on B(w)
+				for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+					final int nextVertex = targets[edge];
+					if (nextVertex >= start) {
+						addToB(nextVertex, vertex);
+					}
+				}
+			}
+		}
+
+		// procedure UNBLOCK(integer value u)
+		private void unblock(final int vertex) {
+			// blocked(u) := false
+			blocked.clear(vertex);
+			int unblockSize = 0;
+			unblockStack[unblockSize++] = vertex;
+
+			while (unblockSize > 0) {
+				final int unblockVertex = unblockStack[--unblockSize];
+
+				// for w in B(u) do
+				// begin
+				// delete w from B(u)
+				// if blocked(w) then UNBLOCK(w)
+				// end
+				for (int i = 0; i < bSize[unblockVertex]; i++) {
+					final int vertexToUnblock = b[unblockVertex][i];
+					if (blocked.get(vertexToUnblock)) {
+						blocked.clear(vertexToUnblock);
+						unblockStack[unblockSize++] = vertexToUnblock;
+					}
+				}
+				bSize[unblockVertex] = 0;
+			}
+		}
+
+		private void addToB(final int vertex, final int blockedVertex) {
+			touch(vertex);
+			final int size = bSize[vertex];
+			int[] list = b[vertex];
+			for (int i = 0; i < size; i++) {
+				if (list[i] == blockedVertex) {
+					return;
+				}
+			}
+
+			if (list == null) {
+				list = new int[4];
+				b[vertex] = list;
+			} else if (list.length == size) {
+				list = Arrays.copyOf(list, size * 2);
+				b[vertex] = list;
+			}
+			list[size] = blockedVertex;
+			bSize[vertex] = size + 1;
+		}
+	}
 }
@@ -0,0 +1,49 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Package cycles (result of the analysis).
+ * 
+ * @param <T>
+ *            package external type
+ */
+public final class PackageCycles<T> extends AbstractList<PackageCycle<T>> {
+
+	private final List<PackageCycle<T>> packageCycles;
+	private final boolean truncated;
+
+	/**
+	 * Construct the package cycles.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param packageCycles
+	 *            package cycles
+	 * @param truncated
+	 *            was the search stopped before all package cycles were found?
+	 */
+	PackageCycles(final List<PackageCycle<T>> packageCycles, final boolean truncated) {
+		this.packageCycles = packageCycles;
+		this.truncated = truncated;
+	}
+
+	@Override
+	public PackageCycle<T> get(final int index) {
+		return packageCycles.get(index);
+	}
+
+	@Override
+	public int size() {
+		return packageCycles.size();
+	}
+
+	/**
+	 * @return true, if the search was stopped (because of the configured
+	 *         limits) before all package cycles were found
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
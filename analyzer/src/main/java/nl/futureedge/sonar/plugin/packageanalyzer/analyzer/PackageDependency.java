@@ -0,0 +1,61 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+
+/**
+ * Package dependency (a package using another package).
+ * 
+ * @param <T> package external type
+ */
+public final class PackageDependency<T> {
+
+	private final Package<T> from;
+	private final Package<T> to;
+	private final int references;
+
+	/**
+	 * Construct a package dependency.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param from
+	 *            using package
+	 * @param to
+	 *            used package
+	 * @param references
+	 *            number of references (of classes in the using package to
+	 *            classes in the used package)
+	 */
+	PackageDependency(final Package<T> from, final Package<T> to, final int references) {
+		this.from = from;
+		this.to = to;
+		this.references = references;
+	}
+
+	/**
+	 * @return the using package
+	 */
+	public Package<T> getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the used package
+	 */
+	public Package<T> getTo() {
+		return to;
+	}
+
+	/**
+	 * @return the number of references (of classes in the using package to
+	 *         classes in the used package)
+	 */
+	public int getReferences() {
+		return references;
+	}
+
+	@Override
+	public String toString() {
+		return from.getName() + " -> " + to.getName();
+	}
+}
@@ -0,0 +1,48 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import java.util.List;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+
+/**
+ * Package dependencies to break to remove all package cycles in a strongly
+ * connected component of packages.
+ * 
+ * @param <T> package external type
+ */
+public final class PackageFeedbackArcSet<T> {
+
+	private final List<Package<T>> packagesInComponent;
+	private final List<PackageDependency<T>> dependencies;
+
+	/**
+	 * Construct a feedback arc set.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param packagesInComponent
+	 *            packages in the strongly connected component
+	 * @param dependencies
+	 *            package dependencies to break
+	 */
+	PackageFeedbackArcSet(final List<Package<T>> packagesInComponent, final List<PackageDependency<T>> dependencies) {
+		this.packagesInComponent = packagesInComponent;
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * @return the packages in the strongly connected component (ordered by
+	 *         name)
+	 */
+	public List<Package<T>> getPackagesInComponent() {
+		return packagesInComponent;
+	}
+
+	/**
+	 * @return the package dependencies to break (ordered by using package and
+	 *         then by used package)
+	 */
+	public List<PackageDependency<T>> getDependencies() {
+		return dependencies;
+	}
+}
@@ -1,17 +1,20 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 /**
  * Robert Tarjan's algorithm for finding strongly connected components in a
  * directed graph.
  *
+ * The vertices are numbered (in the iteration order of the given edges) and
+ * the algorithm runs on primitive arrays; the recursion is replaced by an
+ * explicit stack so the depth of the graph is not limited by the thread stack
+ * size.
+ *
  * @param <T>
  *            Vertex type
  * @see <a href=
@@ -20,13 +23,10 @@ import java.util.Set;
  */
 public final class Tarjan<T> {
 
-	// Input
-	private Set<Vertex<T>> vertices;
-	private Map<Vertex<T>, Set<Vertex<T>>> edges;
+	private static final int UNDEFINED = -1;
 
-	// Variables
-	private int index = 0;
-	private List<Vertex<T>> stack = new ArrayList<>();
+	// Input
+	private final IndexedGraph<T> graph;
 
 	// Output
 	private List<List<T>> stronglyConnectedComponents;
@@ -34,119 +34,38 @@ public final class Tarjan<T> {
 	/**
 	 * Construct an algorithm solver using the given edges (Map&lt;fromVertex,
 	 * Set&lt;toVertex>>).
-	 * 
+	 *
 	 * Note: the given vertex type need to implement hashCode and equals
 	 * correctly.
-	 * 
+	 *
 	 * @param edges
 	 *            edges
 	 */
 	public Tarjan(final Map<T, Set<T>> edges) {
-		final Map<T, Vertex<T>> verticesMap = createVerticesMap(edges);
-		this.vertices = new HashSet<>(verticesMap.values());
-		this.edges = createEdges(verticesMap, edges);
-	}
-
-	/**
-	 * Create a list of all (unique) vertices based on the given edges.
-	 * 
-	 * @param edges
-	 *            edges
-	 * @return list of all vertices
-	 */
-	private static <T> Map<T, Vertex<T>> createVerticesMap(final Map<T, Set<T>> edges) {
-		final Map<T, Vertex<T>> result = new HashMap<>();
-		for (final Map.Entry<T, Set<T>> edge : edges.entrySet()) {
-			final T from = edge.getKey();
-			result.put(from, new Vertex<T>(from));
-			for (final T to : edge.getValue()) {
-				result.put(to, new Vertex<T>(to));
-			}
-		}
-
-		return result;
-	}
-
-	/**
-	 * Create a list of edges (for all vertices, even if the vertex is only
-	 * referenced as 'to' in an edge).
-	 * 
-	 * @param vertices
-	 *            vertices to use
-	 * @param edges
-	 *            edges
-	 * @return edges
-	 */
-	private static <T> Map<Vertex<T>, Set<Vertex<T>>> createEdges(final Map<T, Vertex<T>> verticesMap,
-			final Map<T, Set<T>> edges) {
-		final Map<Vertex<T>, Set<Vertex<T>>> result = new HashMap<>();
-		for (final Vertex<T> vertex : verticesMap.values()) {
-			result.put(vertex, new HashSet<>());
-		}
-
-		for (final Map.Entry<T, Set<T>> edge : edges.entrySet()) {
-			final T from = edge.getKey();
-			final Set<Vertex<T>> resultSet = result.get(verticesMap.get(from));
-			for (final T to : edge.getValue()) {
-				resultSet.add(verticesMap.get(to));
-			}
-		}
-		return result;
+		this.graph = IndexedGraph.of(edges);
 	}
 
 	private void calculate() {
-		stronglyConnectedComponents = new ArrayList<>();
+		final int[] components = getComponents(graph.getOffsets(), graph.getTargets());
 
-		for (Vertex<T> vertex : vertices) {
-			if (vertex.index == null) {
-				strongconnect(vertex);
-			}
+		int componentCount = 0;
+		for (final int component : components) {
+			componentCount = Math.max(componentCount, component + 1);
 		}
-	}
 
-	private void strongconnect(final Vertex<T> vertex) {
-		// Set the depth index for v to the smallest unused index
-		vertex.index = index;
-		vertex.lowlink = index;
-		index++;
-		stack.add(vertex);
-		vertex.onstack = true;
-
-		// Consider successors of v
-		for (final Vertex<T> successor : edges.get(vertex)) {
-			if (successor.index == null) {
-				// Successor w has not yet been visited; recurse on it
-				strongconnect(successor);
-				vertex.lowlink = Math.min(vertex.lowlink, successor.lowlink);
-			} else if (successor.onstack) {
-				// Successor w is in stack S and hence in the current SSC
-				vertex.lowlink = Math.min(vertex.lowlink, successor.lowlink);
-			}
+		stronglyConnectedComponents = new ArrayList<>(componentCount);
+		for (int component = 0; component < componentCount; component++) {
+			stronglyConnectedComponents.add(new ArrayList<>());
 		}
-
-		// If v is a root node, pop the stack and generate a SCC
-		if (vertex.lowlink.equals(vertex.index)) {
-			// Start a new strongly connected component
-			final List<T> stronglyConnectedComponent = new ArrayList<>();
-
-			Vertex<T> successor;
-			do {
-				successor = stack.remove(stack.size() - 1);
-				successor.onstack = false;
-				// Add w to current strongly connected component
-				stronglyConnectedComponent.add(successor.external);
-
-			} while (!vertex.equals(successor));
-
-			// Output the current strongly connected component
-			stronglyConnectedComponents.add(stronglyConnectedComponent);
+		for (int vertex = 0; vertex < components.length; vertex++) {
+			stronglyConnectedComponents.get(components[vertex]).add(graph.getVertex(vertex));
 		}
 	}
 
 	/**
 	 * Return (and calculate) the strongly connected components in the given
 	 * list of edges.
-	 * 
+	 *
 	 * @return List of strongly connected components (a strongly connected
 	 *         component is a list of objects from the list of edges)
 	 */
@@ -159,34 +78,100 @@ public final class Tarjan<T> {
 	}
 
 	/**
-	 * Vertex.
+	 * Determine the strongly connected components of a graph with the vertices
+	 * numbered 0..n-1 and the edges stored in compressed sparse row format
+	 * (the successors of vertex v are targets[offsets[v]] up to (not
+	 * including) targets[offsets[v + 1]]).
+	 *
+	 * Runs in O(vertices + edges) time and memory, without recursion.
 	 *
-	 * @param <T>
-	 *            object type
+	 * @param offsets
+	 *            offsets (length: number of vertices + 1)
+	 * @param targets
+	 *            targets
+	 * @return the number of the strongly connected component for each vertex;
+	 *         components are numbered in the order they are completed (which is
+	 *         a reverse topological order of the components)
 	 */
-	private static final class Vertex<T> {
-
-		final T external;
-
-		Integer index;
-		Integer lowlink;
-		boolean onstack;
-
-		public Vertex(final T external) {
-			this.external = external;
-		}
+	public static int[] getComponents(final int[] offsets, final int[] targets) {
+		final int size = offsets.length - 1;
+
+		final int[] index = new int[size];
+		final int[] lowlink = new int[size];
+		final int[] components = new int[size];
+		Arrays.fill(index, UNDEFINED);
+		Arrays.fill(components, UNDEFINED);
+
+		// Vertices in the current (not yet completed) components
+		final int[] stack = new int[size];
+		int stackSize = 0;
+		// Vertices being visited (replaces recursion) and the next edge to
+		// consider for each of them
+		final int[] callStack = new int[size];
+		final int[] callEdge = new int[size];
+		int callStackSize = 0;
+
+		int nextIndex = 0;
+		int nextComponent = 0;
+
+		for (int root = 0; root < size; root++) {
+			if (index[root] != UNDEFINED) {
+				continue;
+			}
 
-		@Override
-		public int hashCode() {
-			return Objects.hash(external);
+			// Set the depth index for v to the smallest unused index
+			index[root] = nextIndex;
+			lowlink[root] = nextIndex;
+			nextIndex++;
+			stack[stackSize++] = root;
+			callStack[callStackSize] = root;
+			callEdge[callStackSize] = offsets[root];
+			callStackSize++;
+
+			while (callStackSize > 0) {
+				final int top = callStackSize - 1;
+				final int vertex = callStack[top];
+				final int edge = callEdge[top];
+
+				if (edge < offsets[vertex + 1]) {
+					// Consider successors of v
+					callEdge[top] = edge + 1;
+					final int successor = targets[edge];
+					if (index[successor] == UNDEFINED) {
+						// Successor w has not yet been visited; 'recurse' on it
+						index[successor] = nextIndex;
+						lowlink[successor] = nextIndex;
+						nextIndex++;
+						stack[stackSize++] = successor;
+						callStack[callStackSize] = successor;
+						callEdge[callStackSize] = offsets[successor];
+						callStackSize++;
+					} else if (components[successor] == UNDEFINED) {
+						// Successor w is in stack S and hence in the current SCC
+						lowlink[vertex] = Math.min(lowlink[vertex], index[successor]);
+					}
+				} else {
+					callStackSize--;
+
+					// If v is a root node, pop the stack and generate a SCC
+					if (lowlink[vertex] == index[vertex]) {
+						int member;
+						do {
+							member = stack[--stackSize];
+							components[member] = nextComponent;
+						} while (member != vertex);
+						nextComponent++;
+					}
+
+					// 'Return' to the caller
+					if (callStackSize > 0) {
+						final int caller = callStack[callStackSize - 1];
+						lowlink[caller] = Math.min(lowlink[caller], lowlink[vertex]);
+					}
+				}
+			}
 		}
 
-		@Override
-		@SuppressWarnings("unchecked")
-		public boolean equals(final Object that) {
-			return that != null && this.getClass() == that.getClass()
-					&& Objects.equals(this.external, ((Vertex<T>) that).external);
-		}
+		return components;
 	}
-
 }
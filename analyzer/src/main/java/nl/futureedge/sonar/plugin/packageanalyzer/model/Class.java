@@ -16,11 +16,16 @@ public final class Class<E> implements External<E>, Comparable<Class<E>> {
 	private final Model<E> parentModel;
 	private final Package<E> parentPackage;
 	private final String name;
+	private final int serial;
 	private boolean isAbstract;
 	private E external;
+	private boolean declared;
 
 	private final SortedSet<Class<E>> classUsages = new TreeSet<>();
-	private final SortedSet<Class<E>> usedByClasses = new TreeSet<>();
+	private final SortedSet<Class<E>> classUsagesView = Collections.unmodifiableSortedSet(classUsages);
+
+	private DependencyGraph<E> usedByClassesGraph;
+	private SortedSet<Class<E>> usedByClasses;
 
 	/**
 	 * Construct a new class.
@@ -38,6 +43,7 @@ public final class Class<E> implements External<E>, Comparable<Class<E>> {
 		this.parentPackage = parentPackage;
 		this.parentModel = parentModel;
 		this.name = name;
+		this.serial = parentModel.nextClassSerial();
 	}
 
 	/**
@@ -69,7 +75,10 @@ public final class Class<E> implements External<E>, Comparable<Class<E>> {
 	 *            is the class abstract?
 	 */
 	void setAbstract(final boolean isAbstract) {
-		this.isAbstract = isAbstract;
+		if (this.isAbstract != isAbstract) {
+			parentModel.modified();
+			this.isAbstract = isAbstract;
+		}
 	}
 
 	/**
@@ -96,40 +105,151 @@ public final class Class<E> implements External<E>, Comparable<Class<E>> {
 	 *            external object
 	 */
 	void setExternal(final E external) {
+		parentModel.checkNotFrozen();
 		this.external = external;
 	}
 
 	/**
-	 * Add a usage on the class.
+	 * Register the class as declared (added to the model instead of only
+	 * used); sets the abstract flag and the external object.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param isAbstract
+	 *            is the class abstract?
+	 * @param external
+	 *            external object
+	 */
+	void declare(final boolean isAbstract, final E external) {
+		setExternal(external);
+		setAbstract(isAbstract);
+		declared = true;
+	}
+
+	/**
+	 * Add a usage (one reference) on the class.
 	 * 
 	 * @param usageName
 	 *            usage
 	 */
 	public void addUsage(final Name usageName) {
-		final Class<E> usageClass = parentModel.getClass(usageName);
+		addUsage(usageName, 1);
+	}
 
-		if (this.parentPackage.getName().equals(usageName.getPackageName())
-				&& this.name.equals(usageName.getClassName())) {
+	/**
+	 * Add a usage on the class.
+	 * 
+	 * @param usageName
+	 *            usage
+	 * @param references
+	 *            number of references to the used class (at least 1)
+	 */
+	public void addUsage(final Name usageName, final int references) {
+		addUsage(parentModel.getClass(usageName), references);
+	}
+
+	/**
+	 * Add a usage (one reference) on the class; the class is looked up in the
+	 * symbol table of the model.
+	 * 
+	 * @param fullyQualifiedName
+	 *            fully qualified name of the used class
+	 * @see SymbolTable
+	 */
+	public void addUsage(final String fullyQualifiedName) {
+		addUsage(fullyQualifiedName, 1);
+	}
+
+	/**
+	 * Add a usage on the class; the class is looked up in the symbol table of
+	 * the model.
+	 * 
+	 * @param fullyQualifiedName
+	 *            fully qualified name of the used class
+	 * @param references
+	 *            number of references to the used class (at least 1)
+	 * @see SymbolTable
+	 */
+	public void addUsage(final String fullyQualifiedName, final int references) {
+		addUsage(parentModel.getSymbolTable().getClass(fullyQualifiedName), references);
+	}
+
+	private void addUsage(final Class<E> usageClass, final int references) {
+		if (references < 1) {
+			throw new IllegalArgumentException("Number of references must be at least 1");
+		}
+		if (usageClass == this) {
 			// Ignore self usage
 		} else {
-			getParentPackage().addPackageUsage(usageClass.getParentPackage());
+			parentModel.modified();
 			classUsages.add(usageClass);
-			usageClass.usedByClasses.add(this);
+			parentModel.getReferenceCounts().add(ReferenceCounts.edge(serial, usageClass.serial), references);
 		}
 	}
 
 	/**
-	 * @return class usages
+	 * @param usageClass
+	 *            used class
+	 * @return number of references to the used class (0 if the class is not
+	 *         used)
+	 */
+	public int getReferenceCount(final Class<E> usageClass) {
+		return parentModel.getReferenceCounts().get(ReferenceCounts.edge(serial, usageClass.serial));
+	}
+
+	/**
+	 * Merge the given class (of another model) into this class.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param other
+	 *            class
+	 * @see Model#merge(Model)
+	 */
+	void merge(final Class<E> other) {
+		if (other.declared) {
+			declare(other.isAbstract, other.external);
+		}
+		for (final Class<E> otherUsage : other.classUsages) {
+			addUsage(parentModel.getPackage(otherUsage.getParentPackage().getName()).getClass(otherUsage.getName()),
+					other.getReferenceCount(otherUsage));
+		}
+	}
+
+	/**
+	 * @return class usages (read-only view)
 	 */
 	public SortedSet<Class<E>> getUsages() {
-		return Collections.unmodifiableSortedSet(classUsages);
+		return classUsagesView;
+	}
+
+	/**
+	 * Class usages without the read-only view.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @return class usages
+	 */
+	SortedSet<Class<E>> getUsagesInOrder() {
+		return classUsages;
 	}
 
 	/**
-	 * @return used by classes
+	 * @return used by classes (cached until the model is modified)
 	 */
 	public SortedSet<Class<E>> getUsedByClasses() {
-		return Collections.unmodifiableSortedSet(usedByClasses);
+		final DependencyGraph<E> graph = parentModel.getDependencyGraph();
+		if (usedByClassesGraph != graph) {
+			final DependencyGraph.Edges usedBy = graph.getClassUsedBy();
+			final int classId = graph.getClassId(this);
+			final SortedSet<Class<E>> result = new TreeSet<>();
+			for (int edge = usedBy.getOffsets()[classId]; edge < usedBy.getOffsets()[classId + 1]; edge++) {
+				result.add(graph.getClass(usedBy.getTargets()[edge]));
+			}
+			usedByClasses = Collections.unmodifiableSortedSet(result);
+			usedByClassesGraph = graph;
+		}
+		return usedByClasses;
 	}
 
 	/**
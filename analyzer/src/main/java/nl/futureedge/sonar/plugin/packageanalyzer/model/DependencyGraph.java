@@ -0,0 +1,484 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the dependencies in a model.
+ *
+ * Packages and classes are numbered (ids) in their natural order, so the
+ * classes of a package have consecutive ids. Dependencies are stored in
+ * compressed sparse row format ({@link Edges}), forward (usages) and reverse
+ * (used by); the targets of a vertex are sorted ascending. For each package
+ * usage the class usages that cause it (witnesses) are indexed
+ * ({@link Witnesses}).
+ *
+ * The snapshot is created (and cached) by {@link Model#getDependencyGraph()}
+ * and is not changed when the model is changed.
+ *
+ * @param <E>
+ *            external type
+ */
+public final class DependencyGraph<E> {
+
+	private final List<Package<E>> packages;
+	private final List<Class<E>> classes;
+	private final BitSet abstractClasses;
+	private final int[] classPackages;
+
+	private final Edges packageClasses;
+	private final Edges packageUsages;
+	private final Edges packageUsedBy;
+	private final Edges classUsages;
+	private final Edges classUsedBy;
+	private final Witnesses packageUsageWitnesses;
+	private final int[] classUsageReferences;
+	private final int[] packageUsageReferences;
+
+	/**
+	 * Create a snapshot of the given packages.
+	 *
+	 * *** not for external use ***
+	 *
+	 * @param sortedPackages
+	 *            packages (sorted)
+	 */
+	DependencyGraph(final Collection<Package<E>> sortedPackages) {
+		packages = Collections.unmodifiableList(new ArrayList<>(sortedPackages));
+
+		// Classes (per package)
+		final List<Class<E>> allClasses = new ArrayList<>();
+		final int[] packageClassOffsets = new int[packages.size() + 1];
+		for (int packageId = 0; packageId < packages.size(); packageId++) {
+			packageClassOffsets[packageId] = allClasses.size();
+			allClasses.addAll(packages.get(packageId).getClassesInOrder());
+		}
+		packageClassOffsets[packages.size()] = allClasses.size();
+		classes = Collections.unmodifiableList(allClasses);
+
+		final int[] packageClassTargets = new int[classes.size()];
+		classPackages = new int[classes.size()];
+		abstractClasses = new BitSet(classes.size());
+		final Map<Class<E>, Integer> classIds = new HashMap<>();
+		for (int packageId = 0; packageId < packages.size(); packageId++) {
+			for (int classId = packageClassOffsets[packageId]; classId < packageClassOffsets[packageId
+					+ 1]; classId++) {
+				packageClassTargets[classId] = classId;
+				classPackages[classId] = packageId;
+				abstractClasses.set(classId, classes.get(classId).isAbstract());
+				classIds.put(classes.get(classId), classId);
+			}
+		}
+		packageClasses = new Edges(packageClassOffsets, packageClassTargets);
+
+		// Class usages (the usages of a class are sorted)
+		int classUsageCount = 0;
+		for (final Class<E> theClass : classes) {
+			classUsageCount += theClass.getUsages().size();
+		}
+		final int[] classUsageOffsets = new int[classes.size() + 1];
+		final int[] classUsageTargets = new int[classUsageCount];
+		classUsageReferences = new int[classUsageCount];
+		int classUsage = 0;
+		for (int classId = 0; classId < classes.size(); classId++) {
+			classUsageOffsets[classId] = classUsage;
+			final Class<E> theClass = classes.get(classId);
+			for (final Class<E> usage : theClass.getUsages()) {
+				classUsageReferences[classUsage] = theClass.getReferenceCount(usage);
+				classUsageTargets[classUsage++] = classIds.get(usage);
+			}
+		}
+		classUsageOffsets[classes.size()] = classUsage;
+		classUsages = new Edges(classUsageOffsets, classUsageTargets);
+		classUsedBy = classUsages.reverse();
+
+		// Package usages (derived from the class usages; self usage is
+		// ignored)
+		final int[] packageUsageOffsets = new int[packages.size() + 1];
+		int[] packageUsageTargets = new int[16];
+		int packageUsage = 0;
+		final int[] seenBy = new int[packages.size()];
+		for (int packageId = 0; packageId < packages.size(); packageId++) {
+			packageUsageOffsets[packageId] = packageUsage;
+			for (int classId = packageClassOffsets[packageId]; classId < packageClassOffsets[packageId
+					+ 1]; classId++) {
+				for (int edge = classUsageOffsets[classId]; edge < classUsageOffsets[classId + 1]; edge++) {
+					final int usagePackageId = classPackages[classUsageTargets[edge]];
+					if (usagePackageId != packageId && seenBy[usagePackageId] != packageId + 1) {
+						seenBy[usagePackageId] = packageId + 1;
+						if (packageUsage == packageUsageTargets.length) {
+							packageUsageTargets = Arrays.copyOf(packageUsageTargets, packageUsage * 2);
+						}
+						packageUsageTargets[packageUsage++] = usagePackageId;
+					}
+				}
+			}
+			Arrays.sort(packageUsageTargets, packageUsageOffsets[packageId], packageUsage);
+		}
+		packageUsageOffsets[packages.size()] = packageUsage;
+		packageUsages = new Edges(packageUsageOffsets, Arrays.copyOf(packageUsageTargets, packageUsage));
+		packageUsedBy = packageUsages.reverse();
+
+		// Witnesses (sorted on class, then usage) and references of the
+		// package usages
+		final int[] witnessOffsets = new int[packageUsage + 1];
+		packageUsageReferences = new int[packageUsage];
+		for (int packageId = 0; packageId < packages.size(); packageId++) {
+			for (int classId = packageClassOffsets[packageId]; classId < packageClassOffsets[packageId
+					+ 1]; classId++) {
+				for (int edge = classUsageOffsets[classId]; edge < classUsageOffsets[classId + 1]; edge++) {
+					final int usagePackageId = classPackages[classUsageTargets[edge]];
+					if (usagePackageId != packageId) {
+						final int packageEdge = getPackageUsageEdge(packageId, usagePackageId);
+						witnessOffsets[packageEdge + 1]++;
+						packageUsageReferences[packageEdge] = ReferenceCounts
+								.saturatedAdd(packageUsageReferences[packageEdge], classUsageReferences[edge]);
+					}
+				}
+			}
+		}
+		for (int packageEdge = 0; packageEdge < packageUsage; packageEdge++) {
+			witnessOffsets[packageEdge + 1] += witnessOffsets[packageEdge];
+		}
+		final int[] next = Arrays.copyOf(witnessOffsets, packageUsage);
+		final int[] witnessClasses = new int[witnessOffsets[packageUsage]];
+		final int[] witnessUsages = new int[witnessOffsets[packageUsage]];
+		for (int packageId = 0; packageId < packages.size(); packageId++) {
+			for (int classId = packageClassOffsets[packageId]; classId < packageClassOffsets[packageId
+					+ 1]; classId++) {
+				for (int edge = classUsageOffsets[classId]; edge < classUsageOffsets[classId + 1]; edge++) {
+					final int usagePackageId = classPackages[classUsageTargets[edge]];
+					if (usagePackageId != packageId) {
+						final int witness = next[getPackageUsageEdge(packageId, usagePackageId)]++;
+						witnessClasses[witness] = classId;
+						witnessUsages[witness] = classUsageTargets[edge];
+					}
+				}
+			}
+		}
+		packageUsageWitnesses = new Witnesses(witnessOffsets, witnessClasses, witnessUsages);
+	}
+
+	/**
+	 * @return number of packages
+	 */
+	public int getPackageCount() {
+		return packages.size();
+	}
+
+	/**
+	 * @return packages (index in the list is the package id)
+	 */
+	public List<Package<E>> getPackages() {
+		return packages;
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return package
+	 */
+	public Package<E> getPackage(final int packageId) {
+		return packages.get(packageId);
+	}
+
+	/**
+	 * @param thePackage
+	 *            package
+	 * @return package id
+	 * @throws IllegalArgumentException
+	 *             if the package is not part of the snapshot
+	 */
+	public int getPackageId(final Package<E> thePackage) {
+		final int packageId = Collections.binarySearch(packages, thePackage);
+		if (packageId < 0) {
+			throw new IllegalArgumentException("Package " + thePackage.getName() + " is not part of the graph");
+		}
+		return packageId;
+	}
+
+	/**
+	 * @return number of classes
+	 */
+	public int getClassCount() {
+		return classes.size();
+	}
+
+	/**
+	 * @return classes (index in the list is the class id)
+	 */
+	public List<Class<E>> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * @param classId
+	 *            class id
+	 * @return class
+	 */
+	public Class<E> getClass(final int classId) {
+		return classes.get(classId);
+	}
+
+	/**
+	 * @param theClass
+	 *            class
+	 * @return class id
+	 * @throws IllegalArgumentException
+	 *             if the class is not part of the snapshot
+	 */
+	public int getClassId(final Class<E> theClass) {
+		final int classId = Collections.binarySearch(classes, theClass);
+		if (classId < 0) {
+			throw new IllegalArgumentException(
+					"Class " + theClass.getFullyQualifiedName() + " is not part of the graph");
+		}
+		return classId;
+	}
+
+	/**
+	 * @param classId
+	 *            class id
+	 * @return package id of the class
+	 */
+	public int getClassPackage(final int classId) {
+		return classPackages[classId];
+	}
+
+	/**
+	 * @param classId
+	 *            class id
+	 * @return is the class abstract?
+	 */
+	public boolean isAbstract(final int classId) {
+		return abstractClasses.get(classId);
+	}
+
+	/**
+	 * @return classes per package (package id to class ids)
+	 */
+	public Edges getPackageClasses() {
+		return packageClasses;
+	}
+
+	/**
+	 * @return package usages (package id to package ids)
+	 */
+	public Edges getPackageUsages() {
+		return packageUsages;
+	}
+
+	/**
+	 * @return used by packages (package id to package ids)
+	 */
+	public Edges getPackageUsedBy() {
+		return packageUsedBy;
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @param usagePackageId
+	 *            package id of the used package
+	 * @return index of the package usage in the targets of
+	 *         {@link #getPackageUsages()} (the package usage edge), or -1 if
+	 *         the package does not use the other package
+	 */
+	public int getPackageUsageEdge(final int packageId, final int usagePackageId) {
+		final int edge = Arrays.binarySearch(packageUsages.getTargets(), packageUsages.getOffsets()[packageId],
+				packageUsages.getOffsets()[packageId + 1], usagePackageId);
+		return edge < 0 ? -1 : edge;
+	}
+
+	/**
+	 * @return witnesses of the package usages (package usage edge to class
+	 *         usages)
+	 */
+	public Witnesses getPackageUsageWitnesses() {
+		return packageUsageWitnesses;
+	}
+
+	/**
+	 * @return number of references per package usage edge (index in the
+	 *         targets of {@link #getPackageUsages()}); the sum of the
+	 *         references of the class usages between the packages
+	 */
+	public int[] getPackageUsageReferences() {
+		return packageUsageReferences;
+	}
+
+	/**
+	 * @return class usages (class id to class ids)
+	 */
+	public Edges getClassUsages() {
+		return classUsages;
+	}
+
+	/**
+	 * @return number of references per class usage edge (index in the targets
+	 *         of {@link #getClassUsages()})
+	 */
+	public int[] getClassUsageReferences() {
+		return classUsageReferences;
+	}
+
+	/**
+	 * @return used by classes (class id to class ids)
+	 */
+	public Edges getClassUsedBy() {
+		return classUsedBy;
+	}
+
+	/**
+	 * Edges in compressed sparse row format: the targets of vertex v are
+	 * targets[offsets[v]] up to (not including) targets[offsets[v + 1]].
+	 *
+	 * The arrays are shared; they must not be changed.
+	 */
+	public static final class Edges {
+		private final int[] offsets;
+		private final int[] targets;
+
+		/**
+		 * Construct edges.
+		 *
+		 * *** not for external use ***
+		 *
+		 * @param offsets
+		 *            offsets (length: number of vertices + 1)
+		 * @param targets
+		 *            targets
+		 */
+		Edges(final int[] offsets, final int[] targets) {
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		/**
+		 * @return offsets (length: number of vertices + 1)
+		 */
+		public int[] getOffsets() {
+			return offsets;
+		}
+
+		/**
+		 * @return targets
+		 */
+		public int[] getTargets() {
+			return targets;
+		}
+
+		/**
+		 * @param vertex
+		 *            vertex
+		 * @return number of targets of the vertex
+		 */
+		public int getCount(final int vertex) {
+			return offsets[vertex + 1] - offsets[vertex];
+		}
+
+		/**
+		 * @param vertex
+		 *            vertex
+		 * @param target
+		 *            target vertex
+		 * @return true, if the vertex has an edge to the target
+		 */
+		public boolean contains(final int vertex, final int target) {
+			return Arrays.binarySearch(targets, offsets[vertex], offsets[vertex + 1], target) >= 0;
+		}
+
+		/**
+		 * Reverse the edges; the targets of each vertex are sorted ascending.
+		 *
+		 * @return reversed edges (with the same number of vertices)
+		 */
+		Edges reverse() {
+			final int size = offsets.length - 1;
+			final int[] reverseOffsets = new int[size + 1];
+			for (final int target : targets) {
+				reverseOffsets[target + 1]++;
+			}
+			for (int vertex = 0; vertex < size; vertex++) {
+				reverseOffsets[vertex + 1] += reverseOffsets[vertex];
+			}
+
+			final int[] next = Arrays.copyOf(reverseOffsets, size);
+			final int[] reverseTargets = new int[targets.length];
+			for (int vertex = 0; vertex < size; vertex++) {
+				for (int edge = offsets[vertex]; edge < offsets[vertex + 1]; edge++) {
+					reverseTargets[next[targets[edge]]++] = vertex;
+				}
+			}
+			return new Edges(reverseOffsets, reverseTargets);
+		}
+	}
+
+	/**
+	 * Class usages (witnesses) per package usage edge (see
+	 * {@link DependencyGraph#getPackageUsageEdge(int, int)}): the witnesses of
+	 * edge e are classes[w] uses usages[w] for w from offsets[e] up to (not
+	 * including) offsets[e + 1], sorted on class id and then on usage class id.
+	 *
+	 * The arrays are shared; they must not be changed.
+	 */
+	public static final class Witnesses {
+		private final int[] offsets;
+		private final int[] classes;
+		private final int[] usages;
+
+		/**
+		 * Construct witnesses.
+		 *
+		 * *** not for external use ***
+		 *
+		 * @param offsets
+		 *            offsets (length: number of package usage edges + 1)
+		 * @param classes
+		 *            using classes
+		 * @param usages
+		 *            used classes
+		 */
+		Witnesses(final int[] offsets, final int[] classes, final int[] usages) {
+			this.offsets = offsets;
+			this.classes = classes;
+			this.usages = usages;
+		}
+
+		/**
+		 * @return offsets (length: number of package usage edges + 1)
+		 */
+		public int[] getOffsets() {
+			return offsets;
+		}
+
+		/**
+		 * @return using classes (class ids)
+		 */
+		public int[] getClasses() {
+			return classes;
+		}
+
+		/**
+		 * @return used classes (class ids)
+		 */
+		public int[] getUsages() {
+			return usages;
+		}
+
+		/**
+		 * @param packageEdge
+		 *            package usage edge
+		 * @return number of witnesses of the package usage
+		 */
+		public int getCount(final int packageEdge) {
+			return offsets[packageEdge + 1] - offsets[packageEdge];
+		}
+	}
+}
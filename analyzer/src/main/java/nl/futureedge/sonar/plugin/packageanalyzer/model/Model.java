@@ -2,14 +2,19 @@ package nl.futureedge.sonar.plugin.packageanalyzer.model;
 
 import java.io.PrintStream;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /**
  * Model.
  * 
+ * The read methods of the model, packages and classes return (cached)
+ * read-only views. When the model is complete it can be frozen
+ * ({@link #freeze()}); the views are then created once and the model can not
+ * be modified anymore.
+ * 
  * @param <E>
  *            external type
  */
@@ -17,6 +22,15 @@ public final class Model<E> {
 
 	private Map<String, Package<E>> packages = new TreeMap<>();
 
+	private final SymbolTable<E> symbolTable = new SymbolTable<>(this);
+	private DependencyGraph<E> dependencyGraph;
+	private PackageMetrics<E> packageMetrics;
+	private Set<Package<E>> packagesView;
+	private boolean frozen;
+
+	private final ReferenceCounts referenceCounts = new ReferenceCounts();
+	private int classSerials;
+
 	/**
 	 * Add a class (and if needed its package) to the model.
 	 * 
@@ -45,7 +59,7 @@ public final class Model<E> {
 	 */
 	public Package<E> addPackage(final String packageName, final E external) {
 		final Package<E> thePackage = getPackage(packageName);
-		thePackage.setExternal(external);
+		thePackage.declare(external);
 		return thePackage;
 	}
 
@@ -59,7 +73,9 @@ public final class Model<E> {
 	 */
 	Package<E> getPackage(final String packageName) {
 		if (!packages.containsKey(packageName)) {
+			modified();
 			packages.put(packageName, new Package<>(this, packageName));
+			packagesView = null;
 		}
 		return packages.get(packageName);
 	}
@@ -79,10 +95,136 @@ public final class Model<E> {
 	}
 
 	/**
-	 * @return packages
+	 * Merge the given (partial) model into this model; packages, classes and
+	 * usages are added. Packages and classes that are added to the given model
+	 * replace the external object (and for classes the abstract flag) in this
+	 * model, just like adding them again would; packages and classes that are
+	 * only used in the given model keep their values in this model.
+	 * 
+	 * Merging partial models in the order they were built gives the same
+	 * result as building a single model in that order.
+	 * 
+	 * @param other
+	 *            model to merge into this model (not changed)
+	 */
+	public void merge(final Model<E> other) {
+		if (other == this) {
+			throw new IllegalArgumentException("Can not merge a model into itself");
+		}
+		for (final Package<E> otherPackage : other.packages.values()) {
+			getPackage(otherPackage.getName()).merge(otherPackage);
+		}
+	}
+
+	/**
+	 * @return symbol table (to lookup classes by fully qualified name)
+	 */
+	public SymbolTable<E> getSymbolTable() {
+		return symbolTable;
+	}
+
+	/**
+	 * *** not for external use ***
+	 * 
+	 * @return serial number for a new class (key for the reference counts)
+	 */
+	int nextClassSerial() {
+		return classSerials++;
+	}
+
+	/**
+	 * *** not for external use ***
+	 * 
+	 * @return number of references per class usage
+	 */
+	ReferenceCounts getReferenceCounts() {
+		return referenceCounts;
+	}
+
+	/**
+	 * Signal the model is about to be modified (the dependency graph snapshot
+	 * and package metrics are discarded).
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @throws IllegalStateException
+	 *             if the model is frozen
+	 */
+	void modified() {
+		checkNotFrozen();
+		dependencyGraph = null;
+		packageMetrics = null;
+	}
+
+	/**
+	 * Return (and create) a snapshot of the dependencies in the model; the
+	 * snapshot is cached until the model is modified.
+	 * 
+	 * @return dependency graph
+	 */
+	public DependencyGraph<E> getDependencyGraph() {
+		if (dependencyGraph == null) {
+			dependencyGraph = new DependencyGraph<>(packages.values());
+		}
+		return dependencyGraph;
+	}
+
+	/**
+	 * Return (and compute) the metrics of all packages (based on the
+	 * dependency graph snapshot); the metrics are cached until the model is
+	 * modified.
+	 * 
+	 * @return package metrics
+	 */
+	public PackageMetrics<E> getPackageMetrics() {
+		if (packageMetrics == null) {
+			packageMetrics = new PackageMetrics<>(getDependencyGraph());
+		}
+		return packageMetrics;
+	}
+
+	/**
+	 * Check the model can be modified.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @throws IllegalStateException
+	 *             if the model is frozen
+	 */
+	void checkNotFrozen() {
+		if (frozen) {
+			throw new IllegalStateException("Model is frozen");
+		}
+	}
+
+	/**
+	 * Freeze the model; the model can not be modified anymore. The dependency
+	 * graph snapshot, package metrics and the (cached) views on packages and
+	 * classes are created, so reading the model does not create any copies.
+	 */
+	public void freeze() {
+		frozen = true;
+		getPackageMetrics();
+		for (final Package<E> aPackage : getPackages()) {
+			aPackage.getClasses();
+		}
+	}
+
+	/**
+	 * @return true, if the model is frozen
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * @return packages (sorted; cached view until a package is added)
 	 */
 	public Set<Package<E>> getPackages() {
-		return Collections.unmodifiableSet(packages.values().stream().collect(Collectors.toSet()));
+		if (packagesView == null) {
+			packagesView = Collections.unmodifiableSet(new LinkedHashSet<>(packages.values()));
+		}
+		return packagesView;
 	}
 
 	/**
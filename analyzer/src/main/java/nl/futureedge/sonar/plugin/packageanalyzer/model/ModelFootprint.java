@@ -0,0 +1,537 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Estimated memory footprint of a model.
+ *
+ * The object graph of the model is walked (using reflection) and the size of
+ * each object is estimated for a 64-bit JVM with compressed references: a
+ * 12-byte object header (16 bytes for arrays), 4-byte references and 8-byte
+ * alignment. The internals of JDK types are not read (they are not accessible
+ * on every JVM); strings, boxed primitives and the JDK collections are
+ * estimated from their size with the Java 8 layouts (so the estimate does not
+ * depend on the JVM) and their elements are walked. Other JDK types are
+ * counted as empty objects and reported by {@link #getUnknownTypes()}.
+ *
+ * Each object is counted once, in the first part it is reached from:
+ * <ol>
+ * <li>class usages: the usage sets of the classes and the reference
+ * counts;</li>
+ * <li>packages: the packages (and their names, class sets and views);</li>
+ * <li>classes: the classes (and their names and views);</li>
+ * <li>externals: the external objects of the packages and classes; shared
+ * objects (for example the files of the analysis) are not counted;</li>
+ * <li>model: everything else (symbol table, dependency graph, metrics).</li>
+ * </ol>
+ */
+public final class ModelFootprint {
+
+	/**
+	 * Part of the model.
+	 */
+	public enum Part {
+		/** Usage sets of the classes and the reference counts. */
+		CLASS_USAGES,
+		/** Packages. */
+		PACKAGES,
+		/** Classes. */
+		CLASSES,
+		/** External objects of the packages and classes. */
+		EXTERNALS,
+		/** Everything else (symbol table, dependency graph, metrics). */
+		MODEL
+	}
+
+	private static final int OBJECT_HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+
+	private static final int CHAR = 2;
+	private static final int LONG = 8;
+	private static final int BITS_PER_LONG = 64;
+
+	// Java 8 layouts of the JDK types (references, bytes of primitive fields)
+	private static final long OBJECT = object(0, 0);
+	private static final long STRING = object(1, 4);
+	private static final long BOXED = object(0, 4);
+	private static final long BOXED_LONG = object(0, 8);
+	private static final long ARRAY_LIST = object(1, 8);
+	private static final long HASH_MAP = object(4, 16);
+	private static final long HASH_MAP_NODE = object(3, 4);
+	private static final long LINKED_HASH_MAP = object(6, 17);
+	private static final long LINKED_HASH_MAP_ENTRY = object(5, 4);
+	private static final long TREE_MAP = object(7, 8);
+	private static final long TREE_MAP_ENTRY = object(5, 1);
+	private static final long SET = object(1, 0);
+	private static final long BIT_SET = object(1, 5);
+	private static final long VIEW = object(1, 0);
+	private static final long SORTED_VIEW = object(2, 0);
+	private static final long MAP_VIEW = object(4, 0);
+	private static final long SORTED_MAP_VIEW = object(5, 0);
+	private static final int HASH_MAP_MINIMUM_CAPACITY = 16;
+	private static final double HASH_MAP_LOAD_FACTOR = 0.75;
+
+	private static final String UNMODIFIABLE = "java.util.Collections$Unmodifiable";
+	private static final String[] JDK_PACKAGES = { "java.", "javax.", "jdk.", "sun.", "com.sun." };
+
+	private static final Map<java.lang.Class<?>, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+	private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<Object> views = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Map<Part, Long> bytes = new EnumMap<>(Part.class);
+	private final Map<String, Long> bytesPerType = new HashMap<>();
+	private final Set<String> unknownTypes = new TreeSet<>();
+
+	private int packageCount;
+	private int classCount;
+	private int classUsageCount;
+
+	private ModelFootprint() {
+		for (final Part part : Part.values()) {
+			bytes.put(part, 0L);
+		}
+	}
+
+	/**
+	 * Estimate the memory footprint of a model (including all external
+	 * objects).
+	 *
+	 * @param model
+	 *            model
+	 * @param <E>
+	 *            external type
+	 * @return footprint
+	 */
+	public static <E> ModelFootprint of(final Model<E> model) {
+		return of(model, object -> false);
+	}
+
+	/**
+	 * Estimate the memory footprint of a model.
+	 *
+	 * @param model
+	 *            model
+	 * @param shared
+	 *            objects (referenced from the external objects) that are not
+	 *            part of the model
+	 * @param <E>
+	 *            external type
+	 * @return footprint
+	 */
+	public static <E> ModelFootprint of(final Model<E> model, final Predicate<Object> shared) {
+		final ModelFootprint result = new ModelFootprint();
+		final List<Package<E>> packages = new ArrayList<>(model.getPackages());
+		final List<Class<E>> classes = new ArrayList<>();
+		final Set<Object> externals = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (final Package<E> modelPackage : packages) {
+			classes.addAll(modelPackage.getClasses());
+			addIfNotNull(externals, modelPackage.getExternal());
+		}
+		for (final Class<E> modelClass : classes) {
+			addIfNotNull(externals, modelClass.getExternal());
+		}
+		result.packageCount = packages.size();
+		result.classCount = classes.size();
+
+		final Predicate<Object> modelObjects = object -> object instanceof Model || object instanceof Package
+				|| object instanceof Class || object instanceof DependencyGraph || object instanceof PackageMetrics
+				|| externals.contains(object) || shared.test(object);
+
+		for (final Class<E> modelClass : classes) {
+			// The read-only view is counted with the class, the usages here
+			result.views.add(modelClass.getUsages());
+			result.classUsageCount += modelClass.getUsages().size();
+			result.walk(modelClass.getUsagesInOrder(), Part.CLASS_USAGES, modelObjects);
+		}
+		result.walk(model.getReferenceCounts(), Part.CLASS_USAGES, modelObjects);
+		for (final Package<E> modelPackage : packages) {
+			result.walk(modelPackage, Part.PACKAGES, modelObjects);
+		}
+		for (final Class<E> modelClass : classes) {
+			result.walk(modelClass, Part.CLASSES, modelObjects);
+		}
+		final Predicate<Object> modelOrShared = object -> object instanceof Model || object instanceof Package
+				|| object instanceof Class || object instanceof DependencyGraph || object instanceof PackageMetrics
+				|| shared.test(object);
+		for (final Object external : externals) {
+			if (!shared.test(external)) {
+				result.walk(external, Part.EXTERNALS, modelOrShared);
+			}
+		}
+		result.walk(model, Part.MODEL, shared);
+		return result;
+	}
+
+	private static void addIfNotNull(final Set<Object> set, final Object object) {
+		if (object != null) {
+			set.add(object);
+		}
+	}
+
+	private void walk(final Object root, final Part part, final Predicate<Object> stop) {
+		if (root == null || !visited.add(root)) {
+			return;
+		}
+		final Deque<Object> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			final Object object = stack.pop();
+			final java.lang.Class<?> type = object.getClass();
+			final long size;
+			if (isJdkType(type) && !type.isArray()) {
+				size = estimate(object, part, stack, stop);
+			} else if (type.isArray()) {
+				final int length = Array.getLength(object);
+				final java.lang.Class<?> componentType = type.getComponentType();
+				size = align(ARRAY_HEADER + (long) length * fieldSize(componentType));
+				if (!componentType.isPrimitive()) {
+					for (int index = 0; index < length; index++) {
+						push(stack, Array.get(object, index), stop);
+					}
+				}
+			} else {
+				final Layout layout = LAYOUTS.computeIfAbsent(type, Layout::new);
+				if (!layout.accessible) {
+					unknownTypes.add(type.getName());
+				}
+				size = layout.size;
+				for (final Field field : layout.references) {
+					push(stack, get(field, object), stop);
+				}
+			}
+			count(part, type.getName(), size);
+		}
+	}
+
+	/**
+	 * Estimate the size of a JDK object (without reading its internals); the
+	 * elements of collections are pushed on the stack.
+	 *
+	 * @return size of the object itself (internal objects are counted
+	 *         separately)
+	 */
+	private long estimate(final Object object, final Part part, final Deque<Object> stack,
+			final Predicate<Object> stop) {
+		final java.lang.Class<?> type = object.getClass();
+		if (type == String.class) {
+			count(part, "[C", array(((String) object).length(), CHAR));
+			return STRING;
+		} else if (type == Long.class || type == Double.class) {
+			return BOXED_LONG;
+		} else if (type == Integer.class || type == Short.class || type == Byte.class || type == Float.class
+				|| type == Character.class || type == Boolean.class) {
+			return BOXED;
+		} else if (type == BitSet.class) {
+			count(part, "[J", array(((BitSet) object).size() / BITS_PER_LONG, LONG));
+			return BIT_SET;
+		} else if (type == ArrayList.class) {
+			estimateArrayList(part, ((List<?>) object).size());
+			pushElements(stack, (Collection<?>) object, stop);
+			return ARRAY_LIST;
+		} else if (type == TreeMap.class || type == HashMap.class || type == LinkedHashMap.class) {
+			estimateMap(part, type, ((Map<?, ?>) object).size());
+			pushEntries(stack, (Map<?, ?>) object, stop);
+			return type == TreeMap.class ? TREE_MAP : type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP;
+		} else if (type == TreeSet.class || type == HashSet.class || type == LinkedHashSet.class) {
+			final java.lang.Class<?> mapType = type == TreeSet.class ? TreeMap.class
+					: type == HashSet.class ? HashMap.class : LinkedHashMap.class;
+			estimateMap(part, mapType, ((Set<?>) object).size());
+			count(part, mapType.getName(),
+					mapType == TreeMap.class ? TREE_MAP : mapType == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+			pushElements(stack, (Set<?>) object, stop);
+			return SET;
+		} else if (type.getName().startsWith(UNMODIFIABLE)) {
+			return estimateView(object, part, stack, stop);
+		} else if (type == Object.class) {
+			return OBJECT;
+		} else {
+			unknownTypes.add(type.getName());
+			return OBJECT;
+		}
+	}
+
+	/**
+	 * Estimate an unmodifiable view; the collection it wraps can not be read,
+	 * so it is estimated as a copy (unless it is counted itself).
+	 */
+	private long estimateView(final Object view, final Part part, final Deque<Object> stack,
+			final Predicate<Object> stop) {
+		final boolean copy = !views.contains(view);
+		if (view instanceof Map) {
+			final java.lang.Class<?> mapType = view instanceof SortedMap ? TreeMap.class : LinkedHashMap.class;
+			if (copy) {
+				estimateMap(part, mapType, ((Map<?, ?>) view).size());
+				count(part, mapType.getName(), mapType == TreeMap.class ? TREE_MAP : LINKED_HASH_MAP);
+			}
+			pushEntries(stack, (Map<?, ?>) view, stop);
+			return view instanceof SortedMap ? SORTED_MAP_VIEW : MAP_VIEW;
+		}
+		final Collection<?> collection = (Collection<?>) view;
+		if (copy) {
+			if (view instanceof SortedSet) {
+				estimateMap(part, TreeMap.class, collection.size());
+				count(part, TreeSet.class.getName(), SET);
+				count(part, TreeMap.class.getName(), TREE_MAP);
+			} else if (view instanceof Set) {
+				estimateMap(part, LinkedHashMap.class, collection.size());
+				count(part, LinkedHashSet.class.getName(), SET);
+				count(part, LinkedHashMap.class.getName(), LINKED_HASH_MAP);
+			} else {
+				estimateArrayList(part, collection.size());
+				count(part, ArrayList.class.getName(), ARRAY_LIST);
+			}
+		}
+		pushElements(stack, collection, stop);
+		return view instanceof SortedSet || view instanceof List ? SORTED_VIEW : VIEW;
+	}
+
+	private void estimateArrayList(final Part part, final int size) {
+		// Without spare capacity
+		count(part, "[Ljava.lang.Object;", array(size, REFERENCE));
+	}
+
+	/**
+	 * Count the internals (entries and table) of a map.
+	 */
+	private void estimateMap(final Part part, final java.lang.Class<?> mapType, final int size) {
+		if (mapType == TreeMap.class) {
+			count(part, "java.util.TreeMap$Entry", size * TREE_MAP_ENTRY);
+		} else if (size > 0) {
+			int capacity = HASH_MAP_MINIMUM_CAPACITY;
+			while (size > capacity * HASH_MAP_LOAD_FACTOR) {
+				capacity *= 2;
+			}
+			count(part, "[Ljava.util.HashMap$Node;", array(capacity, REFERENCE));
+			if (mapType == HashMap.class) {
+				count(part, "java.util.HashMap$Node", size * HASH_MAP_NODE);
+			} else {
+				count(part, "java.util.LinkedHashMap$Entry", size * LINKED_HASH_MAP_ENTRY);
+			}
+		}
+	}
+
+	private void pushElements(final Deque<Object> stack, final Collection<?> collection,
+			final Predicate<Object> stop) {
+		for (final Object element : collection) {
+			push(stack, element, stop);
+		}
+	}
+
+	private void pushEntries(final Deque<Object> stack, final Map<?, ?> map, final Predicate<Object> stop) {
+		for (final Map.Entry<?, ?> entry : map.entrySet()) {
+			push(stack, entry.getKey(), stop);
+			push(stack, entry.getValue(), stop);
+		}
+	}
+
+	private void count(final Part part, final String typeName, final long size) {
+		bytes.merge(part, size, Long::sum);
+		bytesPerType.merge(typeName, size, Long::sum);
+	}
+
+	private static boolean isJdkType(final java.lang.Class<?> type) {
+		final String name = type.getName();
+		for (final String jdkPackage : JDK_PACKAGES) {
+			if (name.startsWith(jdkPackage)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void push(final Deque<Object> stack, final Object object, final Predicate<Object> stop) {
+		if (object != null && !(object instanceof java.lang.Class) && !stop.test(object) && visited.add(object)) {
+			stack.push(object);
+		}
+	}
+
+	private static Object get(final Field field, final Object object) {
+		try {
+			return field.get(object);
+		} catch (final IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static long object(final int references, final int primitiveBytes) {
+		return align(OBJECT_HEADER + references * REFERENCE + primitiveBytes);
+	}
+
+	private static long array(final int length, final int elementSize) {
+		return align(ARRAY_HEADER + (long) length * elementSize);
+	}
+
+	private static long align(final long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	private static int fieldSize(final java.lang.Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		} else if (type == int.class || type == float.class) {
+			return 4;
+		} else if (type == short.class || type == char.class) {
+			return 2;
+		} else if (type == byte.class || type == boolean.class) {
+			return 1;
+		} else {
+			return REFERENCE;
+		}
+	}
+
+	/**
+	 * @return estimated size of the model (bytes)
+	 */
+	public long getBytes() {
+		long result = 0;
+		for (final long partBytes : bytes.values()) {
+			result += partBytes;
+		}
+		return result;
+	}
+
+	/**
+	 * @param part
+	 *            part of the model
+	 * @return estimated size of the part (bytes)
+	 */
+	public long getBytes(final Part part) {
+		return bytes.get(part);
+	}
+
+	/**
+	 * @return estimated size per type (bytes, largest first)
+	 */
+	public Map<String, Long> getBytesPerType() {
+		final Map<String, Long> result = new LinkedHashMap<>();
+		bytesPerType.entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+		return result;
+	}
+
+	/**
+	 * @return types of which the size could not be estimated (counted as empty
+	 *         objects without references; the footprint is too low if this is
+	 *         not empty)
+	 */
+	public Set<String> getUnknownTypes() {
+		return Collections.unmodifiableSet(unknownTypes);
+	}
+
+	/**
+	 * @return number of packages
+	 */
+	public int getPackageCount() {
+		return packageCount;
+	}
+
+	/**
+	 * @return number of classes
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * @return number of class usages (edges)
+	 */
+	public int getClassUsageCount() {
+		return classUsageCount;
+	}
+
+	/**
+	 * @return estimated size per package (bytes; packages part only)
+	 */
+	public long getBytesPerPackage() {
+		return packageCount == 0 ? 0 : getBytes(Part.PACKAGES) / packageCount;
+	}
+
+	/**
+	 * @return estimated size per class (bytes; classes part only)
+	 */
+	public long getBytesPerClass() {
+		return classCount == 0 ? 0 : getBytes(Part.CLASSES) / classCount;
+	}
+
+	/**
+	 * @return estimated size per class usage (bytes; class usages part only)
+	 */
+	public long getBytesPerClassUsage() {
+		return classUsageCount == 0 ? 0 : getBytes(Part.CLASS_USAGES) / classUsageCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ModelFootprint [bytes=" + getBytes() + ", parts=" + bytes + ", packages=" + packageCount
+				+ ", classes=" + classCount + ", classUsages=" + classUsageCount + "]";
+	}
+
+	/**
+	 * Estimated size and reference fields of a type.
+	 */
+	private static final class Layout {
+		private final long size;
+		private final List<Field> references = new ArrayList<>();
+		private final boolean accessible;
+
+		Layout(final java.lang.Class<?> type) {
+			long fieldBytes = 0;
+			boolean accessible = true;
+			for (java.lang.Class<?> current = type; current != null; current = current.getSuperclass()) {
+				for (final Field field : current.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+					fieldBytes += fieldSize(field.getType());
+					if (!field.getType().isPrimitive() && accessible) {
+						accessible = makeAccessible(field);
+						if (accessible) {
+							references.add(field);
+						}
+					}
+				}
+			}
+			if (!accessible) {
+				// Internals of the type can not be read (java modules); only
+				// the object itself is counted (and reported as unknown)
+				references.clear();
+			}
+			this.accessible = accessible;
+			size = align(OBJECT_HEADER + fieldBytes);
+		}
+
+		private static boolean makeAccessible(final Field field) {
+			try {
+				field.setAccessible(true);
+				return true;
+			} catch (final RuntimeException e) {
+				return false;
+			}
+		}
+	}
+}
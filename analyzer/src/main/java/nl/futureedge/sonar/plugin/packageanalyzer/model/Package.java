@@ -1,5 +1,6 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.model;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
@@ -18,11 +19,15 @@ public final class Package<E> implements External<E>, Comparable<Package<E>> {
 	private final Model<E> parentModel;
 	private final String name;
 	private E external;
+	private boolean declared;
 
 	private final Map<String, Class<E>> classes = new TreeMap<>();
+	private SortedSet<Class<E>> classesView;
 
-	private final SortedSet<Package<E>> packageUsages = new TreeSet<>();
-	private final SortedSet<Package<E>> usedByPackages = new TreeSet<>();
+	private DependencyGraph<E> packageUsagesGraph;
+	private SortedSet<Package<E>> packageUsages;
+	private DependencyGraph<E> usedByPackagesGraph;
+	private SortedSet<Package<E>> usedByPackages;
 
 	/**
 	 * Construct a new package.
@@ -63,14 +68,43 @@ public final class Package<E> implements External<E>, Comparable<Package<E>> {
 	 *            external object
 	 */
 	void setExternal(final E external) {
+		parentModel.checkNotFrozen();
 		this.external = external;
 	}
 
 	/**
-	 * @return classes
+	 * Register the package as declared (added to the model instead of only
+	 * containing classes); sets the external object.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @param external
+	 *            external object
+	 */
+	void declare(final E external) {
+		setExternal(external);
+		declared = true;
+	}
+
+	/**
+	 * @return classes (cached view until a class is added)
 	 */
 	public SortedSet<Class<E>> getClasses() {
-		return Collections.unmodifiableSortedSet(new TreeSet<>(classes.values()));
+		if (classesView == null) {
+			classesView = Collections.unmodifiableSortedSet(new TreeSet<>(classes.values()));
+		}
+		return classesView;
+	}
+
+	/**
+	 * Classes (sorted) without copying.
+	 * 
+	 * *** not for external use ***
+	 * 
+	 * @return classes
+	 */
+	Collection<Class<E>> getClassesInOrder() {
+		return classes.values();
 	}
 
 	/**
@@ -84,7 +118,9 @@ public final class Package<E> implements External<E>, Comparable<Package<E>> {
 	 */
 	Class<E> getClass(final String className) {
 		if (!classes.containsKey(className)) {
+			parentModel.modified();
 			classes.put(className, new Class<>(parentModel, this, className));
+			classesView = null;
 		}
 		return classes.get(className);
 	}
@@ -103,40 +139,59 @@ public final class Package<E> implements External<E>, Comparable<Package<E>> {
 	 */
 	public Class<E> addClass(final String className, final boolean isAbstract, final E classExternal) {
 		final Class<E> theClass = getClass(className);
-		theClass.setExternal(classExternal);
-		theClass.setAbstract(isAbstract);
+		theClass.declare(isAbstract, classExternal);
 		return theClass;
 	}
 
 	/**
-	 * Add a package usage.
+	 * Merge the given package (of another model) into this package.
 	 * 
 	 * *** not for external use ***
-	 *
-	 * @param usage
-	 *            package usage
+	 * 
+	 * @param other
+	 *            package
+	 * @see Model#merge(Model)
 	 */
-	void addPackageUsage(final Package<E> usage) {
-		if (this.name.equals(usage.name)) {
-			// Ignore self usage
-		} else {
-			packageUsages.add(usage);
-			usage.usedByPackages.add(this);
+	void merge(final Package<E> other) {
+		if (other.declared) {
+			declare(other.external);
+		}
+		for (final Class<E> otherClass : other.classes.values()) {
+			getClass(otherClass.getName()).merge(otherClass);
 		}
 	}
 
 	/**
-	 * @return package usages
+	 * @return package usages (cached until the model is modified)
 	 */
 	public SortedSet<Package<E>> getPackageUsages() {
-		return Collections.unmodifiableSortedSet(packageUsages);
+		final DependencyGraph<E> graph = parentModel.getDependencyGraph();
+		if (packageUsagesGraph != graph) {
+			packageUsages = toPackages(graph, graph.getPackageUsages());
+			packageUsagesGraph = graph;
+		}
+		return packageUsages;
 	}
 
 	/**
-	 * @return used by packages
+	 * @return used by packages (cached until the model is modified)
 	 */
 	public SortedSet<Package<E>> getUsedByPackages() {
-		return Collections.unmodifiableSortedSet(usedByPackages);
+		final DependencyGraph<E> graph = parentModel.getDependencyGraph();
+		if (usedByPackagesGraph != graph) {
+			usedByPackages = toPackages(graph, graph.getPackageUsedBy());
+			usedByPackagesGraph = graph;
+		}
+		return usedByPackages;
+	}
+
+	private SortedSet<Package<E>> toPackages(final DependencyGraph<E> graph, final DependencyGraph.Edges edges) {
+		final int packageId = graph.getPackageId(this);
+		final SortedSet<Package<E>> result = new TreeSet<>();
+		for (int edge = edges.getOffsets()[packageId]; edge < edges.getOffsets()[packageId + 1]; edge++) {
+			result.add(graph.getPackage(edges.getTargets()[edge]));
+		}
+		return Collections.unmodifiableSortedSet(result);
 	}
 
 	@Override
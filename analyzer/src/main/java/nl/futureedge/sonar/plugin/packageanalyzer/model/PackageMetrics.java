@@ -0,0 +1,150 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+/**
+ * Metrics of all packages in a model (by package id, see
+ * {@link DependencyGraph}), computed in a single pass over the dependency
+ * graph.
+ *
+ * <ul>
+ * <li>afferent coupling (Ca): number of other packages that use the
+ * package</li>
+ * <li>efferent coupling (Ce): number of other packages used by the package</li>
+ * <li>instability (I): Ce / (Ce + Ca)</li>
+ * <li>abstractness (A): abstract classes / classes</li>
+ * <li>distance from the main sequence (D): |A + I - 1|</li>
+ * </ul>
+ *
+ * Percentages are rounded down. The metrics are created (and cached) by
+ * {@link Model#getPackageMetrics()} and are not changed when the model is
+ * changed.
+ *
+ * @param <E>
+ *            external type
+ */
+public final class PackageMetrics<E> {
+
+	private final DependencyGraph<E> graph;
+
+	private final int[] afferentCoupling;
+	private final int[] efferentCoupling;
+	private final int[] classCount;
+	private final int[] abstractClassCount;
+
+	/**
+	 * Compute the metrics.
+	 *
+	 * *** not for external use ***
+	 *
+	 * @param graph
+	 *            dependency graph
+	 */
+	PackageMetrics(final DependencyGraph<E> graph) {
+		this.graph = graph;
+
+		final int packageCount = graph.getPackageCount();
+		afferentCoupling = new int[packageCount];
+		efferentCoupling = new int[packageCount];
+		classCount = new int[packageCount];
+		abstractClassCount = new int[packageCount];
+
+		final DependencyGraph.Edges packageClasses = graph.getPackageClasses();
+		final int[] classOffsets = packageClasses.getOffsets();
+		final int[] classTargets = packageClasses.getTargets();
+		for (int packageId = 0; packageId < packageCount; packageId++) {
+			afferentCoupling[packageId] = graph.getPackageUsedBy().getCount(packageId);
+			efferentCoupling[packageId] = graph.getPackageUsages().getCount(packageId);
+			classCount[packageId] = classOffsets[packageId + 1] - classOffsets[packageId];
+			for (int edge = classOffsets[packageId]; edge < classOffsets[packageId + 1]; edge++) {
+				if (graph.isAbstract(classTargets[edge])) {
+					abstractClassCount[packageId]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return dependency graph the metrics are computed for
+	 */
+	public DependencyGraph<E> getDependencyGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return number of packages
+	 */
+	public int getPackageCount() {
+		return afferentCoupling.length;
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return afferent coupling (Ca)
+	 */
+	public int getAfferentCoupling(final int packageId) {
+		return afferentCoupling[packageId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return efferent coupling (Ce)
+	 */
+	public int getEfferentCoupling(final int packageId) {
+		return efferentCoupling[packageId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return number of classes (and interfaces)
+	 */
+	public int getClassCount(final int packageId) {
+		return classCount[packageId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return number of abstract classes (and interfaces)
+	 */
+	public int getAbstractClassCount(final int packageId) {
+		return abstractClassCount[packageId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return instability (I) as percentage (0 if the package is not coupled)
+	 */
+	public int getInstability(final int packageId) {
+		final int totalCoupling = efferentCoupling[packageId] + afferentCoupling[packageId];
+		return totalCoupling == 0 ? 0 : efferentCoupling[packageId] * 100 / totalCoupling;
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return abstractness (A) as percentage (0 if the package has no classes)
+	 */
+	public int getAbstractness(final int packageId) {
+		return classCount[packageId] == 0 ? 0 : abstractClassCount[packageId] * 100 / classCount[packageId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return distance from the main sequence (D) as percentage
+	 */
+	public int getDistance(final int packageId) {
+		final int totalCoupling = efferentCoupling[packageId] + afferentCoupling[packageId];
+		if (totalCoupling == 0 || classCount[packageId] == 0) {
+			return Math.abs(getAbstractness(packageId) + getInstability(packageId) - 100);
+		}
+		// |Na / Nc + Ce / (Ce + Ca) - 1| computed exactly with integers
+		final long numerator = (long) abstractClassCount[packageId] * totalCoupling
+				+ (long) efferentCoupling[packageId] * classCount[packageId]
+				- (long) classCount[packageId] * totalCoupling;
+		return (int) (Math.abs(numerator) * 100 / ((long) classCount[packageId] * totalCoupling));
+	}
+}
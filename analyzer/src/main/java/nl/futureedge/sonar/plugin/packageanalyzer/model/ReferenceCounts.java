@@ -0,0 +1,121 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.util.Arrays;
+
+/**
+ * Number of references per class usage, keyed by edge (the serial numbers of
+ * the using and the used class).
+ *
+ * Open addressing hash table on primitive arrays (no boxing, no entry objects).
+ *
+ * Not thread-safe.
+ */
+final class ReferenceCounts {
+
+	private static final long EMPTY = -1L;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] keys;
+	private int[] counts;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	ReferenceCounts() {
+		keys = new long[INITIAL_CAPACITY];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * @param fromSerial
+	 *            serial number of the using class
+	 * @param toSerial
+	 *            serial number of the used class
+	 * @return edge key
+	 */
+	static long edge(final int fromSerial, final int toSerial) {
+		return ((long) fromSerial << 32) | (toSerial & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Add references to an edge.
+	 *
+	 * @param edge
+	 *            edge key
+	 * @param references
+	 *            number of references to add
+	 */
+	void add(final long edge, final int references) {
+		if ((size + 1) * 4 > keys.length * 3) {
+			resize();
+		}
+		final int slot = slot(keys, edge);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = edge;
+			size++;
+		}
+		counts[slot] = saturatedAdd(counts[slot], references);
+	}
+
+	/**
+	 * @param edge
+	 *            edge key
+	 * @return number of references (0 if the edge is unknown)
+	 */
+	int get(final long edge) {
+		final int slot = slot(keys, edge);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	/**
+	 * @return number of edges
+	 */
+	int size() {
+		return size;
+	}
+
+	private void resize() {
+		final long[] oldKeys = keys;
+		final int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		counts = new int[oldKeys.length * 2];
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if (oldKeys[oldSlot] != EMPTY) {
+				final int slot = slot(keys, oldKeys[oldSlot]);
+				keys[slot] = oldKeys[oldSlot];
+				counts[slot] = oldCounts[oldSlot];
+			}
+		}
+	}
+
+	private static int slot(final long[] keys, final long edge) {
+		final int mask = keys.length - 1;
+		int slot = mix(edge) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != edge) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int mix(final long edge) {
+		final long hash = edge * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Add references without overflowing.
+	 *
+	 * @param count
+	 *            current number of references
+	 * @param references
+	 *            number of references to add
+	 * @return sum (at most {@link Integer#MAX_VALUE})
+	 */
+	static int saturatedAdd(final int count, final int references) {
+		final long result = (long) count + references;
+		return result > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) result;
+	}
+}
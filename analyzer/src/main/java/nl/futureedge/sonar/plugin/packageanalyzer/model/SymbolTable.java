@@ -0,0 +1,141 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Symbol table; maps (Java) fully qualified names to classes with a single
+ * hash lookup.
+ *
+ * Classes (and packages) are numbered in the order they are first looked up;
+ * the ids are stable for the lifetime of the model (note: these ids are not
+ * the ids used in the {@link DependencyGraph}). The fully qualified name is
+ * only split (see {@link Name#of(String)}) the first time it is looked up.
+ *
+ * The symbol table is not thread-safe.
+ *
+ * @param <E>
+ *            external type
+ */
+public final class SymbolTable<E> {
+
+	private final Model<E> model;
+
+	private final Map<String, Integer> classIds = new HashMap<>();
+	private final List<Class<E>> classes = new ArrayList<>();
+	private int[] classPackages = new int[16];
+
+	private final Map<String, Integer> packageIds = new HashMap<>();
+	private final List<Package<E>> packages = new ArrayList<>();
+
+	/**
+	 * Construct a new symbol table.
+	 *
+	 * *** not for external use ***
+	 *
+	 * @param model
+	 *            model
+	 */
+	SymbolTable(final Model<E> model) {
+		this.model = model;
+	}
+
+	/**
+	 * Get the id of a class; create the class (and if needed its package) in
+	 * the model if it doesn't exist.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name
+	 * @return class id
+	 */
+	public int getClassId(final String fullyQualifiedName) {
+		final Integer classId = classIds.get(fullyQualifiedName);
+		if (classId != null) {
+			return classId;
+		}
+		return addClass(fullyQualifiedName);
+	}
+
+	private int addClass(final String fullyQualifiedName) {
+		final Class<E> theClass = model.getClass(Name.of(fullyQualifiedName));
+		final int classId = classes.size();
+		classes.add(theClass);
+		if (classId == classPackages.length) {
+			classPackages = Arrays.copyOf(classPackages, classId * 2);
+		}
+		classPackages[classId] = getPackageId(theClass.getParentPackage());
+		classIds.put(fullyQualifiedName, classId);
+		return classId;
+	}
+
+	private int getPackageId(final Package<E> thePackage) {
+		final Integer packageId = packageIds.get(thePackage.getName());
+		if (packageId != null) {
+			return packageId;
+		}
+
+		final int newPackageId = packages.size();
+		packages.add(thePackage);
+		packageIds.put(thePackage.getName(), newPackageId);
+		return newPackageId;
+	}
+
+	/**
+	 * Get a class; create the class (and if needed its package) in the model
+	 * if it doesn't exist.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name
+	 * @return class
+	 */
+	public Class<E> getClass(final String fullyQualifiedName) {
+		return classes.get(getClassId(fullyQualifiedName));
+	}
+
+	/**
+	 * @param classId
+	 *            class id
+	 * @return class
+	 */
+	public Class<E> getClass(final int classId) {
+		return classes.get(classId);
+	}
+
+	/**
+	 * @param classId
+	 *            class id
+	 * @return package id of the class
+	 */
+	public int getPackageId(final int classId) {
+		if (classId >= classes.size()) {
+			throw new IndexOutOfBoundsException("Class id: " + classId + ", size: " + classes.size());
+		}
+		return classPackages[classId];
+	}
+
+	/**
+	 * @param packageId
+	 *            package id
+	 * @return package
+	 */
+	public Package<E> getPackage(final int packageId) {
+		return packages.get(packageId);
+	}
+
+	/**
+	 * @return number of classes in the symbol table
+	 */
+	public int getClassCount() {
+		return classes.size();
+	}
+
+	/**
+	 * @return number of packages in the symbol table
+	 */
+	public int getPackageCount() {
+		return packages.size();
+	}
+}
@@ -3,6 +3,9 @@ package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -59,4 +62,158 @@ public class AnalyzerTest {
 
 	}
 
+	@Test
+	public void testFeedbackArcSets() {
+		Model<String> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, "ClassA").addUsage(Name.of("packageB.ClassB"));
+		Class<String> classB = model.addClass(Name.of("packageB.ClassB"), false, "ClassB");
+		classB.addUsage(Name.of("packageA.ClassA"));
+		classB.addUsage(Name.of("packageC.ClassC"));
+		model.addClass(Name.of("packageC.ClassC"), false, "ClassC").addUsage(Name.of("packageA.ClassA"));
+		model.addClass(Name.of("packageD.ClassD"), false, "ClassD").addUsage(Name.of("packageE.ClassE"));
+		model.addClass(Name.of("packageE.ClassE"), false, "ClassE").addUsage(Name.of("packageD.ClassD"));
+		model.addClass(Name.of("packageF.ClassF"), false, "ClassF").addUsage(Name.of("packageA.ClassA"));
+
+		List<PackageFeedbackArcSet<String>> result = new Analyzer<String>().findPackageFeedbackArcSets(model);
+
+		Assert.assertEquals(2, result.size());
+		final Map<String, String> dependencies = new TreeMap<>();
+		for (PackageFeedbackArcSet<String> feedbackArcSet : result) {
+			final String packages = feedbackArcSet.getPackagesInComponent().stream().map(Package::getName)
+					.collect(Collectors.joining(","));
+			dependencies.put(packages, feedbackArcSet.getDependencies().toString());
+		}
+		// Breaking A -> B removes both cycles through A and B
+		Assert.assertEquals("[packageA -> packageB]", dependencies.get("packageA,packageB,packageC"));
+		Assert.assertEquals("[packageE -> packageD]", dependencies.get("packageD,packageE"));
+	}
+
+	@Test
+	public void testFeedbackArcSetsPreferFewReferences() {
+		Model<String> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, "ClassA").addUsage(Name.of("packageB.ClassB"), 1);
+		model.addClass(Name.of("packageB.ClassB"), false, "ClassB").addUsage(Name.of("packageA.ClassA"), 5);
+
+		List<PackageFeedbackArcSet<String>> result = new Analyzer<String>().findPackageFeedbackArcSets(model);
+
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals("[packageA -> packageB]", result.get(0).getDependencies().toString());
+		Assert.assertEquals(1, result.get(0).getDependencies().get(0).getReferences());
+	}
+
+	@Test
+	public void testMultipleComponents() {
+		Model<String> model = new Model<>();
+		model.addPackage("packageA", "packageA");
+		model.addPackage("packageB", "packageB");
+		model.addPackage("packageC", "packageC");
+		model.addPackage("packageD", "packageD");
+		model.addPackage("packageE", "packageE");
+
+		// Component: packageA, packageB
+		model.addClass(Name.of("packageA.ClassA"), false, "ClassA").addUsage(Name.of("packageB.ClassB"));
+		model.addClass(Name.of("packageB.ClassB"), false, "ClassB").addUsage(Name.of("packageA.ClassA"));
+		// No cycle: packageB -> packageC
+		model.addClass(Name.of("packageB.ClassB2"), false, "ClassB2").addUsage(Name.of("packageC.ClassC"));
+		// Component: packageC, packageD
+		model.addClass(Name.of("packageC.ClassC"), false, "ClassC").addUsage(Name.of("packageD.ClassD"));
+		model.addClass(Name.of("packageD.ClassD"), false, "ClassD").addUsage(Name.of("packageC.ClassC"));
+		// No cycle: packageE -> packageA, packageD
+		Class<String> classE = model.addClass(Name.of("packageE.ClassE"), false, "ClassE");
+		classE.addUsage(Name.of("packageA.ClassA"));
+		classE.addUsage(Name.of("packageD.ClassD"));
+
+		Analyzer<String> analyzer = new Analyzer<>();
+		List<PackageCycle<String>> packageCycles = analyzer.findPackageCycles(model);
+
+		List<List<String>> result = new ArrayList<>();
+		for (PackageCycle<String> packageCycle : packageCycles) {
+			List<String> cycle = new ArrayList<>();
+			for (Package<String> packageInCycle : packageCycle.getPackagesInCycle()) {
+				cycle.add(packageInCycle.getExternal());
+			}
+			result.add(cycle);
+		}
+
+		List<List<String>> ordered = JohnsonTest.orderCircuits(result);
+
+		Assert.assertEquals(
+				Arrays.asList(
+						Arrays.asList("packageA", "packageB"),
+						Arrays.asList("packageC", "packageD")
+						)
+				, ordered);
+	}
+
+	@Test
+	public void testLimits() {
+		Model<String> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, "ClassA").addUsage(Name.of("packageB.ClassB"));
+		model.addClass(Name.of("packageB.ClassB"), false, "ClassB").addUsage(Name.of("packageA.ClassA"));
+		model.addClass(Name.of("packageC.ClassC"), false, "ClassC").addUsage(Name.of("packageD.ClassD"));
+		model.addClass(Name.of("packageD.ClassD"), false, "ClassD").addUsage(Name.of("packageC.ClassC"));
+
+		PackageCycles<String> unlimited = new Analyzer<String>().findPackageCycles(model);
+		Assert.assertEquals(2, unlimited.size());
+		Assert.assertFalse(unlimited.isTruncated());
+
+		PackageCycles<String> limited = new Analyzer<String>(new CycleLimits(1, 0, 0)).findPackageCycles(model);
+		Assert.assertEquals(1, limited.size());
+		Assert.assertTrue(limited.isTruncated());
+	}
+
+	@Test
+	public void testForEachPackageCycle() {
+		Model<String> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, "ClassA").addUsage(Name.of("packageB.ClassB"));
+		model.addClass(Name.of("packageB.ClassB"), false, "ClassB").addUsage(Name.of("packageA.ClassA"));
+		model.addClass(Name.of("packageC.ClassC"), false, "ClassC").addUsage(Name.of("packageD.ClassD"));
+		model.addClass(Name.of("packageD.ClassD"), false, "ClassD").addUsage(Name.of("packageC.ClassC"));
+
+		List<PackageCycle<String>> unlimited = new ArrayList<>();
+		Assert.assertFalse(new Analyzer<String>().forEachPackageCycle(model, unlimited::add));
+		Assert.assertEquals(2, unlimited.size());
+
+		List<PackageCycle<String>> limited = new ArrayList<>();
+		Assert.assertTrue(new Analyzer<String>(new CycleLimits(1, 0, 0)).forEachPackageCycle(model, limited::add));
+		Assert.assertEquals(1, limited.size());
+	}
+
+	@Test
+	public void testParallel() {
+		Model<String> model = new Model<>();
+		for (int from = 0; from < 6; from++) {
+			Class<String> fromClass = model.addClass(Name.of("package" + from + ".Class"), false, "Class" + from);
+			for (int to = 0; to < 6; to++) {
+				if (to != from) {
+					fromClass.addUsage(Name.of("package" + to + ".Class"));
+				}
+			}
+		}
+		// Second component
+		model.addClass(Name.of("packageX.ClassX"), false, "ClassX").addUsage(Name.of("packageY.ClassY"));
+		model.addClass(Name.of("packageY.ClassY"), false, "ClassY").addUsage(Name.of("packageX.ClassX"));
+
+		List<List<String>> sequential = toNames(new Analyzer<String>().findPackageCycles(model));
+		List<List<String>> parallel = toNames(new Analyzer<String>(CycleLimits.NONE, 4).findPackageCycles(model));
+		Assert.assertEquals(1 + 409, sequential.size());
+		Assert.assertEquals(sequential, parallel);
+
+		PackageCycles<String> limited = new Analyzer<String>(new CycleLimits(50, 0, 0), 4).findPackageCycles(model);
+		Assert.assertTrue(limited.isTruncated());
+		Assert.assertEquals(sequential.subList(0, 50), toNames(limited));
+	}
+
+	private static List<List<String>> toNames(List<PackageCycle<String>> packageCycles) {
+		List<List<String>> result = new ArrayList<>();
+		for (PackageCycle<String> packageCycle : packageCycles) {
+			List<String> cycle = new ArrayList<>();
+			for (Package<String> packageInCycle : packageCycle.getPackagesInCycle()) {
+				cycle.add(packageInCycle.getName());
+			}
+			result.add(cycle);
+		}
+		return result;
+	}
+
 }
@@ -0,0 +1,72 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.analyzer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EadesLinSmythTest {
+
+	@Test
+	public void testAcyclic() {
+		final Map<String, Set<String>> input = new LinkedHashMap<>();
+		input.put("A", new LinkedHashSet<>(Arrays.asList("B", "C")));
+		input.put("B", new LinkedHashSet<>(Arrays.asList("C")));
+
+		Assert.assertEquals(Collections.emptyMap(), new EadesLinSmyth<>(input).getFeedbackArcSet());
+	}
+
+	@Test
+	public void testCycles() {
+		// A -> B -> C -> A and B -> A; breaking A -> B breaks both cycles
+		final Map<String, Set<String>> input = new LinkedHashMap<>();
+		input.put("A", new LinkedHashSet<>(Arrays.asList("B")));
+		input.put("B", new LinkedHashSet<>(Arrays.asList("A", "C")));
+		input.put("C", new LinkedHashSet<>(Arrays.asList("A")));
+
+		final Map<String, Set<String>> result = new EadesLinSmyth<>(input).getFeedbackArcSet();
+		Assert.assertEquals(Collections.singletonMap("A", Collections.singleton("B")), result);
+	}
+
+	@Test
+	public void testSelfLoop() {
+		final Map<String, Set<String>> input = new LinkedHashMap<>();
+		input.put("A", new LinkedHashSet<>(Arrays.asList("A", "B")));
+
+		final Map<String, Set<String>> result = new EadesLinSmyth<>(input).getFeedbackArcSet();
+		Assert.assertEquals(Collections.singletonMap("A", Collections.singleton("A")), result);
+	}
+
+	@Test
+	public void testRandomGraphsBecomeAcyclic() {
+		final Random random = new Random(42);
+		for (int run = 0; run < 50; run++) {
+			final int size = 2 + random.nextInt(40);
+			final Map<Integer, Set<Integer>> input = new HashMap<>();
+			for (int vertex = 0; vertex < size; vertex++) {
+				final Set<Integer> targets = new HashSet<>();
+				for (int edge = random.nextInt(6); edge > 0; edge--) {
+					targets.add(random.nextInt(size));
+				}
+				input.put(vertex, targets);
+			}
+
+			final Map<Integer, Set<Integer>> feedbackArcSet = new EadesLinSmyth<>(input).getFeedbackArcSet();
+			final Map<Integer, Set<Integer>> remaining = new HashMap<>();
+			for (final Map.Entry<Integer, Set<Integer>> entry : input.entrySet()) {
+				final Set<Integer> targets = new HashSet<>(entry.getValue());
+				targets.removeAll(feedbackArcSet.getOrDefault(entry.getKey(), Collections.emptySet()));
+				remaining.put(entry.getKey(), targets);
+			}
+			Assert.assertTrue(new Johnson<>(remaining).getElementaryCircuits().isEmpty());
+		}
+	}
+}
@@ -8,6 +8,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -87,6 +89,148 @@ public class JohnsonTest {
 				, ordered);
 	}
 
+	@Test
+	public void testCompleteGraph() {
+		// Complete directed graph on 5 vertices: sum(k=2..5) C(5,k) * (k-1)!
+		final Map<String, Set<String>> input = new HashMap<>();
+		for (int from = 0; from < 5; from++) {
+			final Set<String> to = new HashSet<>();
+			for (int i = 0; i < 5; i++) {
+				if (i != from) {
+					to.add("Node " + i);
+				}
+			}
+			input.put("Node " + from, to);
+		}
+
+		final List<List<String>> circuits = new Johnson<>(input).getElementaryCircuits();
+		Assert.assertEquals(84, circuits.size());
+		Assert.assertEquals(84, new HashSet<>(orderCircuits(circuits)).size());
+	}
+
+	@Test
+	public void testParallel() {
+		final Map<String, Set<String>> input = new HashMap<>();
+		for (int from = 0; from < 7; from++) {
+			final Set<String> to = new HashSet<>();
+			for (int i = 0; i < 7; i++) {
+				if (i != from) {
+					to.add("Node " + i);
+				}
+			}
+			input.put("Node " + from, to);
+		}
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// Same circuits in the same order
+			final List<List<String>> sequential = new Johnson<>(input).getElementaryCircuits();
+			final List<List<String>> parallel = new ArrayList<>();
+			Assert.assertFalse(new Johnson<>(input).forEachElementaryCircuit(parallel::add, pool));
+			Assert.assertEquals(sequential, parallel);
+
+			// Same limits
+			final List<List<String>> limited = new ArrayList<>();
+			Assert.assertTrue(
+					new Johnson<>(input, new CycleLimits(100, 0, 0)).forEachElementaryCircuit(limited::add, pool));
+			Assert.assertEquals(sequential.subList(0, 100), limited);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLimits() {
+		final Map<String, Set<String>> input = new HashMap<>();
+		for (int from = 0; from < 5; from++) {
+			final Set<String> to = new HashSet<>();
+			for (int i = 0; i < 5; i++) {
+				if (i != from) {
+					to.add("Node " + i);
+				}
+			}
+			input.put("Node " + from, to);
+		}
+
+		// Maximum number of cycles
+		final Johnson<String> maximumCycles = new Johnson<>(input, new CycleLimits(10, 0, 0));
+		Assert.assertEquals(10, maximumCycles.getElementaryCircuits().size());
+		Assert.assertTrue(maximumCycles.isTruncated());
+
+		final Johnson<String> exactCycles = new Johnson<>(input, new CycleLimits(84, 0, 0));
+		Assert.assertEquals(84, exactCycles.getElementaryCircuits().size());
+		Assert.assertFalse(exactCycles.isTruncated());
+
+		// Maximum length of cycles: C(5,2) + C(5,3) * 2
+		final Johnson<String> maximumLength = new Johnson<>(input, new CycleLimits(0, 3, 0));
+		Assert.assertEquals(30, maximumLength.getElementaryCircuits().size());
+		Assert.assertFalse(maximumLength.isTruncated());
+		for (List<String> circuit : maximumLength.getElementaryCircuits()) {
+			Assert.assertTrue(circuit.size() <= 3);
+		}
+	}
+
+	@Test
+	public void testMaximumDuration() {
+		// Complete directed graph on 12 vertices has ~10^8 elementary circuits
+		final Map<Integer, Set<Integer>> input = new HashMap<>();
+		for (int from = 0; from < 12; from++) {
+			final Set<Integer> to = new HashSet<>();
+			for (int i = 0; i < 12; i++) {
+				if (i != from) {
+					to.add(i);
+				}
+			}
+			input.put(from, to);
+		}
+
+		// Deadline already passed: the search stops at its first deadline check
+		final Johnson<Integer> johnson = new Johnson<>(input, Integer.MAX_VALUE, Integer.MAX_VALUE,
+				System.nanoTime() - 1);
+		Assert.assertTrue(johnson.isTruncated());
+		Assert.assertTrue(johnson.getElementaryCircuits().size() < 1024);
+	}
+
+	@Test
+	public void testStopped() {
+		// Complete directed graph on 12 vertices (compressed sparse row)
+		final int size = 12;
+		final int[] offsets = new int[size + 1];
+		final int[] targets = new int[size * (size - 1)];
+		int edge = 0;
+		for (int from = 0; from < size; from++) {
+			offsets[from] = edge;
+			for (int to = 0; to < size; to++) {
+				if (to != from) {
+					targets[edge++] = to;
+				}
+			}
+		}
+		offsets[size] = edge;
+
+		// Stop flag already set: the search stops at its first check, even
+		// though the listener never asks to stop
+		final int[] found = new int[1];
+		final Johnson.Search search = new Johnson.Search(offsets, targets, Integer.MAX_VALUE, Long.MAX_VALUE,
+				new AtomicBoolean(true));
+		Assert.assertFalse(search.circuits(0, (stack, length) -> ++found[0] > 0));
+		Assert.assertTrue(found[0] < 1024);
+	}
+
+	@Test
+	public void testLongCircuit() {
+		// Recursion depth would equal the circuit length
+		final int length = 10000;
+		final Map<Integer, Set<Integer>> input = new HashMap<>();
+		for (int i = 0; i < length; i++) {
+			input.put(i, Collections.singleton((i + 1) % length));
+		}
+
+		final List<List<Integer>> circuits = new Johnson<>(input).getElementaryCircuits();
+		Assert.assertEquals(1, circuits.size());
+		Assert.assertEquals(length, circuits.get(0).size());
+	}
+
 	@Test
 	public void testOrder() {
 		Assert.assertEquals(Arrays.asList("1", "2", "3"), Arrays.asList("1", "2", "3"));
@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 public class TarjanTest {
@@ -32,6 +33,15 @@ public class TarjanTest {
 
 		final List<List<String>> components = new Tarjan<>(input).getStronglyConnectedComponents();
 		printResult(components);
+
+		// Order of the components (and of the nodes in a component) is not
+		// part of the contract
+		Assert.assertEquals(4, components.size());
+		Assert.assertEquals(
+				new HashSet<>(Arrays.asList(new HashSet<>(Arrays.asList("Node 1", "Node 2", "Node 3")),
+						new HashSet<>(Arrays.asList("Node 6", "Node 7")),
+						new HashSet<>(Arrays.asList("Node 4", "Node 5")), new HashSet<>(Arrays.asList("Node 8")))),
+				asSets(components));
 	}
 
 	/**
@@ -53,6 +63,58 @@ public class TarjanTest {
 		printResult(components);
 	}
 
+	@Test
+	public void testComponents() {
+		// 0 -> 1 -> 2 -> 0, 2 -> 3, 3 -> 4 -> 3
+		final int[] offsets = new int[] { 0, 1, 2, 4, 5, 6 };
+		final int[] targets = new int[] { 1, 2, 0, 3, 4, 3 };
+
+		final int[] components = Tarjan.getComponents(offsets, targets);
+
+		// Reverse topological order: {3, 4} is completed before {0, 1, 2}
+		Assert.assertArrayEquals(new int[] { 1, 1, 1, 0, 0 }, components);
+	}
+
+	@Test
+	public void testLongChain() {
+		// Recursion depth would equal the chain length
+		final int length = 100000;
+		final int[] offsets = new int[length + 1];
+		final int[] targets = new int[length - 1];
+		for (int i = 0; i < length - 1; i++) {
+			offsets[i] = i;
+			targets[i] = i + 1;
+		}
+		offsets[length - 1] = length - 1;
+		offsets[length] = length - 1;
+
+		final int[] components = Tarjan.getComponents(offsets, targets);
+		for (int i = 0; i < length; i++) {
+			Assert.assertEquals(length - 1 - i, components[i]);
+		}
+	}
+
+	@Test
+	public void testLongCycle() {
+		final int length = 100000;
+		final Map<Integer, Set<Integer>> input = new HashMap<>();
+		for (int i = 0; i < length; i++) {
+			input.put(i, Collections.singleton((i + 1) % length));
+		}
+
+		final List<List<Integer>> components = new Tarjan<>(input).getStronglyConnectedComponents();
+		Assert.assertEquals(1, components.size());
+		Assert.assertEquals(length, components.get(0).size());
+	}
+
+	private static <T> Set<Set<T>> asSets(final List<List<T>> components) {
+		final Set<Set<T>> result = new HashSet<>();
+		for (final List<T> component : components) {
+			result.add(new HashSet<>(component));
+		}
+		return result;
+	}
+
 	private void printResult(final List<List<String>> components) {
 		System.out.println("Components: ");
 		for (List<String> component : components) {
@@ -0,0 +1,96 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DependencyGraphTest {
+
+	@Test
+	public void test() {
+		Model<String> model = new Model<>();
+		Class<String> classA = model.addClass(Name.of("packageB.ClassA"), false, "ClassA");
+		classA.addUsage(Name.of("packageA.ClassC"));
+		classA.addUsage(Name.of("packageB.ClassB"));
+		classA.addUsage(Name.of("packageB.ClassA"));
+		Class<String> classB = model.addClass(Name.of("packageB.ClassB"), true, "ClassB");
+		classB.addUsage(Name.of("packageA.ClassC"));
+		classB.addUsage(Name.of("packageC.ClassD"));
+		model.addClass(Name.of("packageA.ClassC"), false, "ClassC").addUsage(Name.of("packageB.ClassA"));
+
+		DependencyGraph<String> graph = model.getDependencyGraph();
+		Assert.assertSame(graph, model.getDependencyGraph());
+
+		// Packages and classes are ordered
+		Assert.assertEquals(3, graph.getPackageCount());
+		Assert.assertEquals("packageA", graph.getPackage(0).getName());
+		Assert.assertEquals("packageB", graph.getPackage(1).getName());
+		Assert.assertEquals("packageC", graph.getPackage(2).getName());
+		Assert.assertEquals(4, graph.getClassCount());
+		Assert.assertEquals("packageA.ClassC", graph.getClass(0).getFullyQualifiedName());
+		Assert.assertEquals("packageB.ClassA", graph.getClass(1).getFullyQualifiedName());
+		Assert.assertEquals("packageB.ClassB", graph.getClass(2).getFullyQualifiedName());
+		Assert.assertEquals("packageC.ClassD", graph.getClass(3).getFullyQualifiedName());
+		Assert.assertEquals(1, graph.getPackageId(classA.getParentPackage()));
+		Assert.assertEquals(2, graph.getClassId(classB));
+		Assert.assertEquals(1, graph.getClassPackage(2));
+		Assert.assertFalse(graph.isAbstract(1));
+		Assert.assertTrue(graph.isAbstract(2));
+		assertEdges(graph.getPackageClasses(), new int[] { 0, 1, 3, 4 }, new int[] { 0, 1, 2, 3 });
+
+		// Class usages (self usage ignored)
+		assertEdges(graph.getClassUsages(), new int[] { 0, 1, 3, 5, 5 }, new int[] { 1, 0, 2, 0, 3 });
+		assertEdges(graph.getClassUsedBy(), new int[] { 0, 2, 3, 4, 5 }, new int[] { 1, 2, 0, 1, 2 });
+		Assert.assertTrue(graph.getClassUsages().contains(1, 2));
+		Assert.assertFalse(graph.getClassUsages().contains(2, 1));
+
+		// Package usages (self usage ignored)
+		assertEdges(graph.getPackageUsages(), new int[] { 0, 1, 3, 3 }, new int[] { 1, 0, 2 });
+		assertEdges(graph.getPackageUsedBy(), new int[] { 0, 1, 2, 3 }, new int[] { 1, 0, 1 });
+		Assert.assertEquals(2, graph.getPackageUsages().getCount(1));
+		Assert.assertEquals(0, graph.getPackageUsages().getCount(2));
+
+		// Witnesses per package usage (sorted on class, then usage)
+		Assert.assertEquals(0, graph.getPackageUsageEdge(0, 1));
+		Assert.assertEquals(1, graph.getPackageUsageEdge(1, 0));
+		Assert.assertEquals(2, graph.getPackageUsageEdge(1, 2));
+		Assert.assertEquals(-1, graph.getPackageUsageEdge(2, 0));
+		final DependencyGraph.Witnesses witnesses = graph.getPackageUsageWitnesses();
+		Assert.assertArrayEquals(new int[] { 0, 1, 3, 4 }, witnesses.getOffsets());
+		Assert.assertArrayEquals(new int[] { 0, 1, 2, 2 }, witnesses.getClasses());
+		Assert.assertArrayEquals(new int[] { 1, 0, 0, 3 }, witnesses.getUsages());
+		Assert.assertEquals(2, witnesses.getCount(1));
+
+		// References (one per usage)
+		Assert.assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, graph.getClassUsageReferences());
+		Assert.assertArrayEquals(new int[] { 1, 2, 1 }, graph.getPackageUsageReferences());
+
+		// Modification creates a new snapshot
+		model.addClass(Name.of("packageC.ClassD"), false, "ClassD").addUsage(Name.of("packageA.ClassC"));
+		DependencyGraph<String> modified = model.getDependencyGraph();
+		Assert.assertNotSame(graph, modified);
+		assertEdges(modified.getPackageUsages(), new int[] { 0, 1, 3, 4 }, new int[] { 1, 0, 2, 0 });
+		assertEdges(graph.getPackageUsages(), new int[] { 0, 1, 3, 3 }, new int[] { 1, 0, 2 });
+
+		// Additional references create a new snapshot
+		classB.addUsage(Name.of("packageA.ClassC"), 3);
+		Assert.assertArrayEquals(new int[] { 1, 2, 1 }, graph.getPackageUsageReferences());
+		Assert.assertArrayEquals(new int[] { 1, 5, 1, 1 }, model.getDependencyGraph().getPackageUsageReferences());
+		Assert.assertArrayEquals(new int[] { 1, 1, 1, 4, 1, 1 }, model.getDependencyGraph().getClassUsageReferences());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPackage() {
+		Model<String> model = new Model<>();
+		model.addPackage("packageA", "packageA");
+		DependencyGraph<String> graph = model.getDependencyGraph();
+
+		graph.getPackageId(model.addPackage("packageB", "packageB"));
+	}
+
+	private static void assertEdges(DependencyGraph.Edges edges, int[] offsets, int[] targets) {
+		Assert.assertEquals(Arrays.toString(offsets), Arrays.toString(edges.getOffsets()));
+		Assert.assertEquals(Arrays.toString(targets), Arrays.toString(edges.getTargets()));
+	}
+}
@@ -0,0 +1,108 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModelFootprintTest {
+
+	/** Standard synthetic model: packages. */
+	private static final int PACKAGES = 100;
+	/** Standard synthetic model: classes per package. */
+	private static final int CLASSES_PER_PACKAGE = 20;
+	/** Standard synthetic model: usages per class. */
+	private static final int USAGES_PER_CLASS = 5;
+
+	/*
+	 * Budgets (bytes) for the standard synthetic model, about 25% above the
+	 * estimate at the time of writing (2991 per package, 80 per class, 72 per
+	 * class usage, 1536000 in total; the same on every JVM). Only raise these
+	 * deliberately.
+	 */
+	private static final long BUDGET_PER_PACKAGE = 3750;
+	private static final long BUDGET_PER_CLASS = 100;
+	private static final long BUDGET_PER_CLASS_USAGE = 90;
+	private static final long BUDGET_TOTAL = 1_920_000;
+
+	@Test
+	public void test() {
+		final Model<String> model = new Model<>();
+		final Class<String> classA = model.addClass(Name.of("packageA.ClassA"), false, "external");
+		classA.addUsage(Name.of("packageB.ClassB"));
+		model.addClass(Name.of("packageB.ClassB"), false, null);
+
+		final ModelFootprint footprint = ModelFootprint.of(model);
+		System.out.println(footprint);
+		Assert.assertEquals(2, footprint.getPackageCount());
+		Assert.assertEquals(2, footprint.getClassCount());
+		Assert.assertEquals(1, footprint.getClassUsageCount());
+		for (final ModelFootprint.Part part : ModelFootprint.Part.values()) {
+			Assert.assertTrue(part.name(), footprint.getBytes(part) > 0);
+			Assert.assertEquals(0, footprint.getBytes(part) % 8);
+		}
+		// "external" (String and its characters)
+		Assert.assertTrue(footprint.getBytesPerType().containsKey(String.class.getName()));
+		Assert.assertTrue(footprint.getUnknownTypes().isEmpty());
+
+		// Shared objects are not counted
+		final ModelFootprint withoutExternals = ModelFootprint.of(model, "external"::equals);
+		Assert.assertEquals(0, withoutExternals.getBytes(ModelFootprint.Part.EXTERNALS));
+		Assert.assertEquals(footprint.getBytes(ModelFootprint.Part.CLASSES),
+				withoutExternals.getBytes(ModelFootprint.Part.CLASSES));
+	}
+
+	@Test
+	public void testJdkTypes() {
+		final Model<Object> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, new TreeMap<>(Collections.singletonMap("key", 1)));
+		model.addClass(Name.of("packageA.ClassB"), false, new AtomicLong());
+
+		final ModelFootprint footprint = ModelFootprint.of(model);
+		// Estimated from the size of the collection (Java 8 layout): TreeMap
+		// (48), one entry (40), "key" (24 + 24), 1 (16); the AtomicLong is
+		// not estimated (16), but reported
+		Assert.assertEquals(168, footprint.getBytes(ModelFootprint.Part.EXTERNALS));
+		Assert.assertEquals(Collections.singleton(AtomicLong.class.getName()), footprint.getUnknownTypes());
+	}
+
+	@Test
+	public void testBudget() {
+		final Model<String> model = createStandardModel();
+		model.freeze();
+
+		final ModelFootprint footprint = ModelFootprint.of(model);
+		System.out.println(footprint);
+		System.out.println(footprint.getBytesPerType());
+
+		Assert.assertEquals(PACKAGES, footprint.getPackageCount());
+		Assert.assertEquals(PACKAGES * CLASSES_PER_PACKAGE, footprint.getClassCount());
+		Assert.assertTrue("Bytes per package: " + footprint.getBytesPerPackage(),
+				footprint.getBytesPerPackage() <= BUDGET_PER_PACKAGE);
+		Assert.assertTrue("Bytes per class: " + footprint.getBytesPerClass(),
+				footprint.getBytesPerClass() <= BUDGET_PER_CLASS);
+		Assert.assertTrue("Bytes per class usage: " + footprint.getBytesPerClassUsage(),
+				footprint.getBytesPerClassUsage() <= BUDGET_PER_CLASS_USAGE);
+		Assert.assertTrue("Bytes: " + footprint.getBytes(), footprint.getBytes() <= BUDGET_TOTAL);
+		Assert.assertTrue(footprint.getUnknownTypes().toString(), footprint.getUnknownTypes().isEmpty());
+	}
+
+	private static Model<String> createStandardModel() {
+		final Random random = new Random(42);
+		final Model<String> model = new Model<>();
+		for (int packageIndex = 0; packageIndex < PACKAGES; packageIndex++) {
+			for (int classIndex = 0; classIndex < CLASSES_PER_PACKAGE; classIndex++) {
+				final Class<String> modelClass = model.addClass(
+						Name.of("nl.futureedge.p" + packageIndex + ".Class" + classIndex), classIndex % 5 == 0, null);
+				for (int usage = 0; usage < USAGES_PER_CLASS; usage++) {
+					modelClass.addUsage(Name.of("nl.futureedge.p" + random.nextInt(PACKAGES) + ".Class"
+							+ random.nextInt(CLASSES_PER_PACKAGE)));
+				}
+			}
+		}
+		return model;
+	}
+}
@@ -55,6 +55,84 @@ public class ModelTest {
 		Assert.assertEquals(false, classes.get("ClassA").isAbstract());
 	}
 
+	@Test
+	public void testFreeze() {
+		final Model<String> model = new Model<>();
+		final Class<String> classA = model.addClass(Name.of("nl.futureedge.ClassA"), false, null);
+		classA.addUsage(Name.of("nl.futureedge.util.ClassX"));
+
+		// Views are cached until the model is modified
+		final Set<Package<String>> packages = model.getPackages();
+		Assert.assertSame(packages, model.getPackages());
+		final Package<String> packageA = classA.getParentPackage();
+		Assert.assertSame(packageA.getClasses(), packageA.getClasses());
+		Assert.assertSame(packageA.getPackageUsages(), packageA.getPackageUsages());
+
+		model.addClass(Name.of("nl.futureedge.model.ClassK"), false, null);
+		Assert.assertNotSame(packages, model.getPackages());
+		Assert.assertEquals(3, model.getPackages().size());
+
+		Assert.assertFalse(model.isFrozen());
+		model.freeze();
+		Assert.assertTrue(model.isFrozen());
+		Assert.assertSame(model.getPackages(), model.getPackages());
+		Assert.assertSame(model.getPackageMetrics(), model.getPackageMetrics());
+
+		assertFrozen(() -> model.addClass(Name.of("nl.futureedge.ClassB"), false, null));
+		assertFrozen(() -> model.addPackage("nl.futureedge", "packageExternal"));
+		assertFrozen(() -> classA.addUsage(Name.of("nl.futureedge.model.ClassK")));
+		assertFrozen(() -> classA.addUsage(Name.of("nl.futureedge.util.ClassX")));
+		assertFrozen(() -> model.addClass(Name.of("nl.futureedge.ClassA"), false, null));
+		Assert.assertEquals(3, model.getPackages().size());
+	}
+
+	@Test
+	public void testReferenceCounts() {
+		final Model<String> model = new Model<>();
+		final Class<String> classA = model.addClass(Name.of("packageA.ClassA"), false, null);
+		classA.addUsage(Name.of("packageB.ClassB"));
+		classA.addUsage(Name.of("packageB.ClassB"), 2);
+		classA.addUsage("packageB.ClassC", 4);
+		classA.addUsage(Name.of("packageA.ClassA"), 8);
+		final Class<String> classB = model.addClass(Name.of("packageB.ClassB"), false, null);
+		final Class<String> classC = model.addClass(Name.of("packageB.ClassC"), false, null);
+
+		Assert.assertEquals(3, classA.getReferenceCount(classB));
+		Assert.assertEquals(4, classA.getReferenceCount(classC));
+		Assert.assertEquals(0, classA.getReferenceCount(classA));
+		Assert.assertEquals(0, classB.getReferenceCount(classA));
+
+		// Many usages
+		for (int i = 0; i < 1000; i++) {
+			classB.addUsage(Name.of("packageC.Class" + i), i + 1);
+		}
+		for (final Class<String> usage : classB.getUsages()) {
+			Assert.assertEquals(Integer.parseInt(usage.getName().substring(5)) + 1, classB.getReferenceCount(usage));
+		}
+
+		// Merge adds the references
+		final Model<String> other = new Model<>();
+		other.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageB.ClassB"), 5);
+		model.merge(other);
+		Assert.assertEquals(8, classA.getReferenceCount(classB));
+
+		try {
+			classA.addUsage(Name.of("packageB.ClassB"), 0);
+			Assert.fail("IllegalArgumentException expected");
+		} catch (final IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	private void assertFrozen(final Runnable modification) {
+		try {
+			modification.run();
+			Assert.fail("IllegalStateException expected");
+		} catch (final IllegalStateException e) {
+			// Expected
+		}
+	}
+
 	@Test
 	public void testEquals() {
 		final Model<String> model1 = new Model<>();
@@ -103,6 +181,86 @@ public class ModelTest {
 		Assert.assertEquals("b", class1b.getFullyQualifiedName());
 }
 
+	@Test
+	public void testMerge() {
+		final Model<String> partial1 = new Model<>();
+		partial1.addPackage("a", "packageA");
+		final Class<String> class1 = partial1.addClass(Name.of("a.A"), false, "classA");
+		class1.addUsage(Name.of("b.B"));
+		partial1.addClass(Name.of("c.C"), true, null);
+
+		final Model<String> partial2 = new Model<>();
+		final Class<String> class2 = partial2.addClass(Name.of("b.B"), true, "classB");
+		class2.addUsage(Name.of("a.A"));
+		class2.addUsage(Name.of("c.C"));
+		partial2.addClass(Name.of("a.A"), false, "classA2");
+
+		final Model<String> model = new Model<>();
+		model.merge(partial1);
+		model.merge(partial2);
+
+		Assert.assertEquals(3, model.getPackages().size());
+		final Map<String, Package<String>> packages = model.getPackages().stream()
+				.collect(Collectors.toMap(Package::getName, Function.identity()));
+		Assert.assertEquals("packageA", packages.get("a").getExternal());
+		assertContainsPackageUsages(packages, "a", "b");
+		assertContainsPackageUsages(packages, "b", "a", "c");
+		assertContainsPackageUsages(packages, "c");
+
+		final Map<String, Class<String>> classesA = packages.get("a").getClasses().stream()
+				.collect(Collectors.toMap(Class::getName, Function.identity()));
+		assertContainsClassUsages(classesA, "A", "b.B");
+		Assert.assertEquals("classA2", classesA.get("A").getExternal());
+		final Class<String> classB = packages.get("b").getClasses().first();
+		Assert.assertEquals("classB", classB.getExternal());
+		Assert.assertTrue(classB.isAbstract());
+		Assert.assertTrue(packages.get("c").getClasses().first().isAbstract());
+		Assert.assertEquals(3, classB.getUsedByClasses().size() + classB.getUsages().size());
+
+		// Partial models are not changed
+		Assert.assertEquals(1, partial1.getPackages().stream().filter(p -> "b".equals(p.getName())).count());
+		Assert.assertEquals("classA", class1.getExternal());
+	}
+
+	@Test
+	public void testMergeOverwrites() {
+		// Same additions as one model and as partial models
+		final Model<String> single = new Model<>();
+		final Model<String> partial1 = new Model<>();
+		final Model<String> partial2 = new Model<>();
+		for (final Model<String> model : Arrays.asList(single, partial1)) {
+			model.addPackage("a", "packageA");
+			model.addClass(Name.of("a.A"), true, "classA");
+			model.addClass(Name.of("b.B"), true, "classB").addUsage(Name.of("a.A"));
+		}
+		for (final Model<String> model : Arrays.asList(single, partial2)) {
+			model.addPackage("a", null);
+			model.addClass(Name.of("a.A"), false, null);
+			model.addClass(Name.of("c.C"), false, "classC").addUsage(Name.of("b.B"));
+		}
+
+		final Model<String> merged = new Model<>();
+		merged.merge(partial1);
+		merged.merge(partial2);
+
+		for (final Model<String> model : Arrays.asList(single, merged)) {
+			final SymbolTable<String> symbolTable = model.getSymbolTable();
+			// Added again: overwritten
+			Assert.assertNull(model.getPackage("a").getExternal());
+			Assert.assertNull(symbolTable.getClass("a.A").getExternal());
+			Assert.assertFalse(symbolTable.getClass("a.A").isAbstract());
+			// Only used: kept
+			Assert.assertEquals("classB", symbolTable.getClass("b.B").getExternal());
+			Assert.assertTrue(symbolTable.getClass("b.B").isAbstract());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeSelf() {
+		final Model<String> model = new Model<>();
+		model.merge(model);
+	}
+
 	private void assertContainsPackageUsages(Map<String, Package<String>> packages, String packageName,
 			String... packageUsages) {
 		Package<String> packageToTest = packages.get(packageName);
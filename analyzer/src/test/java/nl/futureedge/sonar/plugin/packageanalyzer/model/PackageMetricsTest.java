@@ -0,0 +1,66 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackageMetricsTest {
+
+	@Test
+	public void test() {
+		Model<String> model = new Model<>();
+		Class<String> classA = model.addClass(Name.of("packageB.ClassA"), false, "ClassA");
+		classA.addUsage(Name.of("packageA.ClassC"));
+		classA.addUsage(Name.of("packageB.ClassB"));
+		Class<String> classB = model.addClass(Name.of("packageB.ClassB"), true, "ClassB");
+		classB.addUsage(Name.of("packageA.ClassC"));
+		classB.addUsage(Name.of("packageC.ClassD"));
+		model.addClass(Name.of("packageA.ClassC"), false, "ClassC").addUsage(Name.of("packageB.ClassA"));
+
+		PackageMetrics<String> metrics = model.getPackageMetrics();
+		Assert.assertSame(metrics, model.getPackageMetrics());
+		Assert.assertSame(model.getDependencyGraph(), metrics.getDependencyGraph());
+		Assert.assertEquals(3, metrics.getPackageCount());
+
+		// packageA
+		Assert.assertEquals(1, metrics.getAfferentCoupling(0));
+		Assert.assertEquals(1, metrics.getEfferentCoupling(0));
+		Assert.assertEquals(1, metrics.getClassCount(0));
+		Assert.assertEquals(0, metrics.getAbstractClassCount(0));
+		Assert.assertEquals(50, metrics.getInstability(0));
+		Assert.assertEquals(0, metrics.getAbstractness(0));
+		Assert.assertEquals(50, metrics.getDistance(0));
+
+		// packageB
+		Assert.assertEquals(1, metrics.getAfferentCoupling(1));
+		Assert.assertEquals(2, metrics.getEfferentCoupling(1));
+		Assert.assertEquals(2, metrics.getClassCount(1));
+		Assert.assertEquals(1, metrics.getAbstractClassCount(1));
+		Assert.assertEquals(66, metrics.getInstability(1));
+		Assert.assertEquals(50, metrics.getAbstractness(1));
+		Assert.assertEquals(16, metrics.getDistance(1));
+
+		// packageC (only used)
+		Assert.assertEquals(1, metrics.getAfferentCoupling(2));
+		Assert.assertEquals(0, metrics.getEfferentCoupling(2));
+		Assert.assertEquals(0, metrics.getInstability(2));
+		Assert.assertEquals(100, metrics.getDistance(2));
+
+		// Modification discards the metrics
+		model.addClass(Name.of("packageC.ClassD"), true, "ClassD");
+		Assert.assertNotSame(metrics, model.getPackageMetrics());
+		Assert.assertEquals(1, model.getPackageMetrics().getAbstractClassCount(2));
+		Assert.assertEquals(0, metrics.getAbstractClassCount(2));
+	}
+
+	@Test
+	public void testEmptyPackage() {
+		Model<String> model = new Model<>();
+		model.addPackage("packageA", "packageA");
+
+		PackageMetrics<String> metrics = model.getPackageMetrics();
+		Assert.assertEquals(0, metrics.getClassCount(0));
+		Assert.assertEquals(0, metrics.getAbstractness(0));
+		Assert.assertEquals(0, metrics.getInstability(0));
+		Assert.assertEquals(100, metrics.getDistance(0));
+	}
+}
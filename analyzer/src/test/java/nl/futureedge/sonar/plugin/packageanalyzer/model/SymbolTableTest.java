@@ -0,0 +1,55 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+	@Test
+	public void test() {
+		Model<String> model = new Model<>();
+		Class<String> classA = model.addClass(Name.of("packageA.ClassA"), false, "ClassA");
+		SymbolTable<String> symbolTable = model.getSymbolTable();
+
+		// Existing class
+		Assert.assertEquals(0, symbolTable.getClassId("packageA.ClassA"));
+		Assert.assertSame(classA, symbolTable.getClass(0));
+		Assert.assertSame(classA, symbolTable.getClass("packageA.ClassA"));
+
+		// New classes (and packages)
+		Assert.assertEquals(1, symbolTable.getClassId("packageB.ClassB"));
+		Assert.assertEquals(2, symbolTable.getClassId("packageA.ClassC"));
+		Assert.assertEquals(3, symbolTable.getClassId("InTheDefaultPackage"));
+		Assert.assertEquals(1, symbolTable.getClassId("packageB.ClassB"));
+		Assert.assertEquals(4, symbolTable.getClassCount());
+		Assert.assertEquals(3, symbolTable.getPackageCount());
+		Assert.assertEquals(3, model.getPackages().size());
+
+		Assert.assertEquals(0, symbolTable.getPackageId(0));
+		Assert.assertEquals(1, symbolTable.getPackageId(1));
+		Assert.assertEquals(0, symbolTable.getPackageId(2));
+		Assert.assertEquals(2, symbolTable.getPackageId(3));
+		Assert.assertEquals("packageB", symbolTable.getPackage(1).getName());
+		Assert.assertEquals("", symbolTable.getPackage(2).getName());
+		Assert.assertEquals("ClassB", symbolTable.getClass(1).getName());
+		Assert.assertEquals("packageA.ClassC", symbolTable.getClass(2).getFullyQualifiedName());
+	}
+
+	@Test
+	public void testAddUsage() {
+		Model<String> model = new Model<>();
+		Class<String> classA = model.addClass(Name.of("packageA.ClassA"), false, "ClassA");
+		classA.addUsage("packageB.ClassB");
+		classA.addUsage("packageB.ClassB");
+		classA.addUsage("packageA.ClassA");
+
+		Assert.assertEquals(1, classA.getUsages().size());
+		Assert.assertEquals("packageB.ClassB", classA.getUsages().first().getFullyQualifiedName());
+		Assert.assertEquals(1, classA.getParentPackage().getPackageUsages().size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testUnknownClassId() {
+		new Model<String>().getSymbolTable().getPackageId(0);
+	}
+}
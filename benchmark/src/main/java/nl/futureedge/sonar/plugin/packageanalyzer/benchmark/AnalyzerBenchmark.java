@@ -0,0 +1,85 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.Analyzer;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.CycleLimits;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.PackageFeedbackArcSet;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+
+/**
+ * Benchmarks of the analyzer on synthetic models (one class per package).
+ *
+ * The search for package cycles is limited to
+ * {@value JohnsonBenchmark#MAXIMUM_CYCLES} package cycles, as the number of
+ * package cycles grows exponentially on dense and ladder graphs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+	@Param({ "RANDOM_SPARSE", "LAYERED_DAG", "DENSE_SCC", "LADDER" })
+	public GraphShape shape;
+
+	@Param({ "16", "64", "256" })
+	public int size;
+
+	private Model<String> model;
+	private Analyzer<String> analyzer;
+
+	/**
+	 * Generate the (frozen) model.
+	 */
+	@Setup
+	public void setup() {
+		model = shape.generateModel(size);
+		analyzer = new Analyzer<>(new CycleLimits(JohnsonBenchmark.MAXIMUM_CYCLES, 0, 0));
+	}
+
+	/**
+	 * Find the package cycles.
+	 *
+	 * @param found
+	 *            counter
+	 * @return number of package cycles
+	 */
+	@Benchmark
+	public int findPackageCycles(final CyclesFound found) {
+		final int packageCycles = analyzer.findPackageCycles(model).size();
+		found.cycles += packageCycles;
+		return packageCycles;
+	}
+
+	/**
+	 * Find the package dependencies to break per strongly connected component.
+	 *
+	 * @param found
+	 *            counter (components)
+	 * @return number of package dependencies to break
+	 */
+	@Benchmark
+	public int findPackageFeedbackArcSets(final CyclesFound found) {
+		int dependencies = 0;
+		for (final PackageFeedbackArcSet<String> feedbackArcSet : analyzer.findPackageFeedbackArcSets(model)) {
+			found.cycles++;
+			dependencies += feedbackArcSet.getDependencies().size();
+		}
+		return dependencies;
+	}
+}
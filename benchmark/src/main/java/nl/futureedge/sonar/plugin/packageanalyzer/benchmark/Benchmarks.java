@@ -0,0 +1,34 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks (with the GC profiler, so the allocation rate is
+ * reported); the arguments are the JMH command line options.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+		// Not instantiable
+	}
+
+	/**
+	 * Main.
+	 *
+	 * @param args
+	 *            JMH command line options (for example a benchmark regexp)
+	 * @throws CommandLineOptionException
+	 *             on invalid options
+	 * @throws RunnerException
+	 *             on benchmark failures
+	 */
+	public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build())
+				.run();
+	}
+}
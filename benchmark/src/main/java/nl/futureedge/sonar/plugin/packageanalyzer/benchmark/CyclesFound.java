@@ -0,0 +1,29 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counter reported next to the score: the number of cycles (or components)
+ * found per benchmark invocation.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class CyclesFound {
+
+	/**
+	 * Cycles found (summed over the invocations of an iteration).
+	 */
+	public long cycles;
+
+	/**
+	 * Reset the counter for each iteration.
+	 */
+	@Setup(Level.Iteration)
+	public void reset() {
+		cycles = 0;
+	}
+}
@@ -0,0 +1,135 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
+
+/**
+ * Synthetic graphs (vertices 0..size-1) for the benchmarks; the graphs are
+ * generated with a fixed seed, so each run measures the same graphs.
+ */
+public enum GraphShape {
+
+	/**
+	 * Random sparse graph: every vertex uses two random other vertices.
+	 */
+	RANDOM_SPARSE {
+		@Override
+		void addEdges(final Map<Integer, Set<Integer>> edges, final int size, final Random random) {
+			for (int vertex = 0; vertex < size; vertex++) {
+				for (int edge = 0; edge < 2; edge++) {
+					addEdge(edges, vertex, random.nextInt(size));
+				}
+			}
+		}
+	},
+
+	/**
+	 * Layered directed acyclic graph: layers of sqrt(size) vertices; every
+	 * vertex uses three random vertices in the next layer (no cycles).
+	 */
+	LAYERED_DAG {
+		@Override
+		void addEdges(final Map<Integer, Set<Integer>> edges, final int size, final Random random) {
+			final int layerSize = Math.max(1, (int) Math.sqrt(size));
+			for (int vertex = 0; vertex + layerSize < size; vertex++) {
+				final int nextLayer = (vertex / layerSize + 1) * layerSize;
+				final int nextLayerSize = Math.min(layerSize, size - nextLayer);
+				for (int edge = 0; edge < 3; edge++) {
+					addEdge(edges, vertex, nextLayer + random.nextInt(nextLayerSize));
+				}
+			}
+		}
+	},
+
+	/**
+	 * Dense strongly connected component: a ring through all vertices and
+	 * every vertex uses a quarter of the other vertices.
+	 */
+	DENSE_SCC {
+		@Override
+		void addEdges(final Map<Integer, Set<Integer>> edges, final int size, final Random random) {
+			for (int vertex = 0; vertex < size; vertex++) {
+				addEdge(edges, vertex, (vertex + 1) % size);
+				for (int edge = 0; edge < size / 4; edge++) {
+					addEdge(edges, vertex, random.nextInt(size));
+				}
+			}
+		}
+	},
+
+	/**
+	 * Ladder: two rails (closed into rings) connected by rungs in both
+	 * directions; the number of elementary circuits grows exponentially with
+	 * the number of rungs.
+	 */
+	LADDER {
+		@Override
+		void addEdges(final Map<Integer, Set<Integer>> edges, final int size, final Random random) {
+			final int rungs = Math.max(1, size / 2);
+			for (int rung = 0; rung < rungs; rung++) {
+				final int left = rung;
+				final int right = rungs + rung;
+				addEdge(edges, left, (rung + 1) % rungs);
+				addEdge(edges, right, rungs + (rung + 1) % rungs);
+				addEdge(edges, left, right);
+				addEdge(edges, right, left);
+			}
+		}
+	};
+
+	abstract void addEdges(Map<Integer, Set<Integer>> edges, int size, Random random);
+
+	private static void addEdge(final Map<Integer, Set<Integer>> edges, final int from, final int to) {
+		if (from != to) {
+			edges.get(from).add(to);
+		}
+	}
+
+	/**
+	 * Generate the graph.
+	 *
+	 * @param size
+	 *            number of vertices
+	 * @return edges (Map&lt;fromVertex, Set&lt;toVertex>>; every vertex is a
+	 *         key)
+	 */
+	public Map<Integer, Set<Integer>> generate(final int size) {
+		final Map<Integer, Set<Integer>> edges = new LinkedHashMap<>();
+		for (int vertex = 0; vertex < size; vertex++) {
+			edges.put(vertex, new LinkedHashSet<>());
+		}
+		addEdges(edges, size, new Random(size * 31L + ordinal()));
+		return edges;
+	}
+
+	/**
+	 * Generate a model: every vertex is a package containing one class; every
+	 * edge is a usage between the classes.
+	 *
+	 * @param size
+	 *            number of packages
+	 * @return model
+	 */
+	public Model<String> generateModel(final int size) {
+		final Model<String> model = new Model<>();
+		for (final Map.Entry<Integer, Set<Integer>> vertex : generate(size).entrySet()) {
+			final Class<String> theClass = model.addClass(className(vertex.getKey()), false, null);
+			for (final Integer usage : vertex.getValue()) {
+				theClass.addUsage(className(usage));
+			}
+		}
+		model.freeze();
+		return model;
+	}
+
+	private static Name className(final int vertex) {
+		return Name.of("package" + vertex + ".Class" + vertex);
+	}
+}
@@ -0,0 +1,80 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.CycleLimits;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.Johnson;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.Tarjan;
+
+/**
+ * Benchmarks of the graph algorithms (Johnson, Tarjan) on synthetic graphs.
+ *
+ * The search for elementary circuits is limited to
+ * {@value #MAXIMUM_CYCLES} circuits, as the number of circuits grows
+ * exponentially on dense and ladder graphs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JohnsonBenchmark {
+
+	static final int MAXIMUM_CYCLES = 100000;
+
+	@Param({ "RANDOM_SPARSE", "LAYERED_DAG", "DENSE_SCC", "LADDER" })
+	public GraphShape shape;
+
+	@Param({ "16", "64", "256" })
+	public int size;
+
+	private Map<Integer, Set<Integer>> edges;
+
+	/**
+	 * Generate the graph.
+	 */
+	@Setup
+	public void setup() {
+		edges = shape.generate(size);
+	}
+
+	/**
+	 * Find the elementary circuits (Johnson).
+	 *
+	 * @param found
+	 *            counter
+	 * @return number of circuits
+	 */
+	@Benchmark
+	public int johnson(final CyclesFound found) {
+		final Johnson<Integer> johnson = new Johnson<>(edges, new CycleLimits(MAXIMUM_CYCLES, 0, 0));
+		final int circuits = johnson.getElementaryCircuits().size();
+		found.cycles += circuits;
+		return circuits;
+	}
+
+	/**
+	 * Find the strongly connected components (Tarjan).
+	 *
+	 * @return number of components
+	 */
+	@Benchmark
+	public int tarjan() {
+		return new Tarjan<>(edges).getStronglyConnectedComponents().size();
+	}
+}
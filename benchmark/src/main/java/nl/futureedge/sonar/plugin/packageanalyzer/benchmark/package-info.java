@@ -0,0 +1,4 @@
+/**
+ * Benchmarks (JMH) of the analyzer algorithms.
+ */
+package nl.futureedge.sonar.plugin.packageanalyzer.benchmark;
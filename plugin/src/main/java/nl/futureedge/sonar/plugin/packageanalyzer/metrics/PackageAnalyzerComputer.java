@@ -7,11 +7,17 @@ import java.util.stream.Collectors;
 
 import org.sonar.api.ce.measure.Measure;
 import org.sonar.api.ce.measure.MeasureComputer;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 /**
  * Metrics computer.
+ *
+ * Rolls up the package cycle identifiers and counts the package cycles. In the
+ * dependencies cycles mode the identifiers identify groups of packages in
+ * cycles (not package cycles); these are rolled up and counted separately and
+ * the package cycles are not counted for components containing such groups.
  */
 public final class PackageAnalyzerComputer implements MeasureComputer {
 
@@ -22,39 +28,55 @@ public final class PackageAnalyzerComputer implements MeasureComputer {
 		return definitionContext.newDefinitionBuilder()
 				.setInputMetrics(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER.key(),
 						PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key(),
-						PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key())
+						PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key(),
+						PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER.key(),
+						PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS.key(),
+						PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key())
 				.setOutputMetrics(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key(),
-						PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key())
+						PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key(),
+						PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS.key(),
+						PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key())
 				.build();
 	}
 
 	@Override
 	public void compute(final MeasureComputerContext context) {
-		rollupIdentifiers(context);
-		countIdentifiers(context);
+		final Set<String> cycles = rollupIdentifiers(context, PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER,
+				PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS);
+		final Set<String> groups = rollupIdentifiers(context, PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER,
+				PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS);
+
+		LOGGER.debug("Count groups -> {}", groups.size());
+		context.addMeasure(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key(), groups.size());
+
+		// The number of package cycles in groups of packages is unknown
+		if (groups.isEmpty()) {
+			LOGGER.debug("Count cycles -> {}", cycles.size());
+			context.addMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key(), cycles.size());
+		}
 	}
 
-	private void rollupIdentifiers(final MeasureComputerContext context) {
+	private Set<String> rollupIdentifiers(final MeasureComputerContext context, final Metric<String> identifierMetric,
+			final Metric<String> identifiersMetric) {
 		final Set<String> identifiers = new TreeSet<>();
-		LOGGER.debug("Rollup identifiers for (type={}): {}", context.getComponent().getType(),
+		LOGGER.debug("Rollup {} for (type={}): {}", identifiersMetric.key(), context.getComponent().getType(),
 				context.getComponent().getKey());
 
 		// Add own identifiers (from rules)
-		final Measure identifier = context
-				.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER.key());
+		final Measure identifier = context.getMeasure(identifierMetric.key());
 		LOGGER.debug("Own identifier: {}", identifier == null ? "none" : identifier.getStringValue());
 		addIdentifiers(identifiers, identifier);
 
 		// Add child identifiers
-		for (final Measure childMeasure : context
-				.getChildrenMeasures(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key())) {
+		for (final Measure childMeasure : context.getChildrenMeasures(identifiersMetric.key())) {
 			addIdentifiers(identifiers, childMeasure);
 		}
 
 		final String result = identifiers.stream().collect(Collectors.joining(","));
 		LOGGER.debug("Result: {}", result);
 		// Set measure
-		context.addMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key(), result);
+		context.addMeasure(identifiersMetric.key(), result);
+		return identifiers;
 	}
 
 	private void addIdentifiers(final Set<String> identifiers, final Measure measure) {
@@ -64,21 +86,4 @@ public final class PackageAnalyzerComputer implements MeasureComputer {
 		}
 	}
 
-	private void countIdentifiers(final MeasureComputerContext context) {
-		final Measure identifiers = context
-				.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key());
-
-		final int result;
-		if (identifiers == null || "".equals(identifiers.getStringValue())) {
-			result = 0;
-		} else {
-			result = identifiers.getStringValue().split(",").length;
-		}
-
-		LOGGER.debug("Count -> {}", result);
-
-		// Set measure
-		context.addMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key(), result);
-	}
-
 }
\ No newline at end of file
@@ -24,11 +24,67 @@ public final class PackageAnalyzerMetrics implements Metrics {
 	public static final Metric<String> PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS = new Metric.Builder(
 			"package-dependency-cycles-identifiers", "Package dependency cycles (identifiers)", Metric.ValueType.STRING)
 					.setDomain(CoreMetrics.DOMAIN_COMPLEXITY).setHidden(true).create();
+	/** Metric for the number of package dependency cycles found (before the search was stopped). */
+	public static final Metric<Integer> PACKAGE_DEPENDENCY_CYCLES_FOUND = new Metric.Builder(
+			"package-dependency-cycles-found", "Package dependency cycles found", Metric.ValueType.INT)
+					.setDomain(CoreMetrics.DOMAIN_COMPLEXITY).create();
+	/** Metric for groups of packages in cycles (cycles mode dependencies). */
+	public static final Metric<Integer> PACKAGE_CYCLE_GROUPS = new Metric.Builder("package-cycle-groups",
+			"Groups of packages in cycles", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_COMPLEXITY).create();
+	/** Metric for group of packages in cycles (identifier). */
+	public static final Metric<String> PACKAGE_CYCLE_GROUPS_IDENTIFIER = new Metric.Builder(
+			"package-cycle-groups-identifier", "Groups of packages in cycles (identifier)", Metric.ValueType.STRING)
+					.setDomain(CoreMetrics.DOMAIN_COMPLEXITY).setHidden(true).create();
+	/** Metric for group of packages in cycles (identifiers). */
+	public static final Metric<String> PACKAGE_CYCLE_GROUPS_IDENTIFIERS = new Metric.Builder(
+			"package-cycle-groups-identifiers", "Groups of packages in cycles (identifiers)", Metric.ValueType.STRING)
+					.setDomain(CoreMetrics.DOMAIN_COMPLEXITY).setHidden(true).create();
+
+	/** Metric for the duration of building the package model (statistics). */
+	public static final Metric<Long> STATISTICS_BUILD_MODEL_TIME = new Metric.Builder(
+			"package-analyzer-build-model-time", "Package analyzer: build model time", Metric.ValueType.MILLISEC)
+					.setDomain(CoreMetrics.DOMAIN_GENERAL).setHidden(true).create();
+	/** Metric for the duration of executing the rules (statistics). */
+	public static final Metric<Long> STATISTICS_EXECUTE_RULES_TIME = new Metric.Builder(
+			"package-analyzer-execute-rules-time", "Package analyzer: execute rules time", Metric.ValueType.MILLISEC)
+					.setDomain(CoreMetrics.DOMAIN_GENERAL).setHidden(true).create();
+	/** Metric for the duration of finding the package cycles (statistics). */
+	public static final Metric<Long> STATISTICS_FIND_CYCLES_TIME = new Metric.Builder(
+			"package-analyzer-find-cycles-time", "Package analyzer: find package cycles time",
+			Metric.ValueType.MILLISEC).setDomain(CoreMetrics.DOMAIN_GENERAL).setHidden(true).create();
+	/** Metric for the number of source files parsed (statistics). */
+	public static final Metric<Integer> STATISTICS_FILES_PARSED = new Metric.Builder("package-analyzer-files-parsed",
+			"Package analyzer: files parsed", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_GENERAL)
+					.setHidden(true).create();
+	/** Metric for the number of identifiers visited (statistics). */
+	public static final Metric<Integer> STATISTICS_IDENTIFIERS = new Metric.Builder("package-analyzer-identifiers",
+			"Package analyzer: identifiers visited", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_GENERAL)
+					.setHidden(true).create();
+	/** Metric for the number of packages in the model (statistics). */
+	public static final Metric<Integer> STATISTICS_PACKAGES = new Metric.Builder("package-analyzer-packages",
+			"Package analyzer: packages", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_GENERAL)
+					.setHidden(true).create();
+	/** Metric for the number of classes in the model (statistics). */
+	public static final Metric<Integer> STATISTICS_CLASSES = new Metric.Builder("package-analyzer-classes",
+			"Package analyzer: classes", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_GENERAL).setHidden(true)
+					.create();
+	/** Metric for the number of package usages in the model (statistics). */
+	public static final Metric<Integer> STATISTICS_PACKAGE_USAGES = new Metric.Builder(
+			"package-analyzer-package-usages", "Package analyzer: package usages", Metric.ValueType.INT)
+					.setDomain(CoreMetrics.DOMAIN_GENERAL).setHidden(true).create();
+	/** Metric for the number of issues raised (statistics). */
+	public static final Metric<Integer> STATISTICS_ISSUES = new Metric.Builder("package-analyzer-issues",
+			"Package analyzer: issues raised", Metric.ValueType.INT).setDomain(CoreMetrics.DOMAIN_GENERAL)
+					.setHidden(true).create();
 
 	@Override
 	@SuppressWarnings("rawtypes")
 	public List<Metric> getMetrics() {
 		return asList(PACKAGE_DEPENDENCY_CYCLES, PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER,
-				PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS);
+				PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS, PACKAGE_DEPENDENCY_CYCLES_FOUND, PACKAGE_CYCLE_GROUPS,
+				PACKAGE_CYCLE_GROUPS_IDENTIFIER, PACKAGE_CYCLE_GROUPS_IDENTIFIERS, STATISTICS_BUILD_MODEL_TIME,
+				STATISTICS_EXECUTE_RULES_TIME, STATISTICS_FIND_CYCLES_TIME, STATISTICS_FILES_PARSED,
+				STATISTICS_IDENTIFIERS, STATISTICS_PACKAGES, STATISTICS_CLASSES, STATISTICS_PACKAGE_USAGES,
+				STATISTICS_ISSUES);
 	}
 }
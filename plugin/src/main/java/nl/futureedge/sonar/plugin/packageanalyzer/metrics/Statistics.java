@@ -0,0 +1,220 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.utils.log.Logger;
+
+/**
+ * Statistics of an analysis: the duration of each phase, counters (files,
+ * model sizes, package cycles, issues) and the duration of each rule.
+ *
+ * Thread-safe (source files are parsed concurrently); the duration of a phase
+ * that is executed by multiple threads is the sum over all threads.
+ */
+public final class Statistics {
+
+	/**
+	 * Phases.
+	 */
+	public enum Phase {
+		/** Build the model (including the phases below). */
+		BUILD_MODEL("Build model", PackageAnalyzerMetrics.STATISTICS_BUILD_MODEL_TIME),
+		/** Parse the source files. */
+		PARSE("Parse source files", null),
+		/** Create the semantic models. */
+		SEMANTIC_MODEL("Create semantic models", null),
+		/** Visit the syntax trees. */
+		VISIT("Visit syntax trees", null),
+		/** Read the class files. */
+		READ_CLASS_FILES("Read class files", null),
+		/** Freeze the model. */
+		FREEZE_MODEL("Freeze model", null),
+		/** Execute the rules (including the phases below). */
+		EXECUTE_RULES("Execute rules", PackageAnalyzerMetrics.STATISTICS_EXECUTE_RULES_TIME),
+		/** Find the package cycles (or package dependencies to break). */
+		FIND_CYCLES("Find package cycles", PackageAnalyzerMetrics.STATISTICS_FIND_CYCLES_TIME),
+		/** Register the issues. */
+		REGISTER_ISSUES("Register issues", null);
+
+		private final String label;
+		private final Metric<Long> metric;
+
+		Phase(final String label, final Metric<Long> metric) {
+			this.label = label;
+			this.metric = metric;
+		}
+	}
+
+	/**
+	 * Counters.
+	 */
+	public enum Counter {
+		/** Source (or class) files. */
+		FILES("Files", null),
+		/** Source files parsed. */
+		FILES_PARSED("Files parsed", PackageAnalyzerMetrics.STATISTICS_FILES_PARSED),
+		/** Source files read from the cache. */
+		FILES_CACHED("Files read from cache", null),
+		/** Identifiers visited. */
+		IDENTIFIERS("Identifiers visited", PackageAnalyzerMetrics.STATISTICS_IDENTIFIERS),
+		/** Packages in the model. */
+		PACKAGES("Packages", PackageAnalyzerMetrics.STATISTICS_PACKAGES),
+		/** Classes in the model. */
+		CLASSES("Classes", PackageAnalyzerMetrics.STATISTICS_CLASSES),
+		/** Class usages in the model. */
+		CLASS_USAGES("Class usages", null),
+		/** Package usages in the model. */
+		PACKAGE_USAGES("Package usages", PackageAnalyzerMetrics.STATISTICS_PACKAGE_USAGES),
+		/** Package cycles (or groups of packages in cycles) found. */
+		CYCLES("Package cycles found", null),
+		/** Issues raised. */
+		ISSUES("Issues raised", PackageAnalyzerMetrics.STATISTICS_ISSUES);
+
+		private final String label;
+		private final Metric<Integer> metric;
+
+		Counter(final String label, final Metric<Integer> metric) {
+			this.label = label;
+			this.metric = metric;
+		}
+	}
+
+	private static final long NOT_RECORDED = -1L;
+	private static final String LINE_FORMAT = "  %-28s %10d%s";
+
+	private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+	private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+	private final Map<String, Long> ruleTimes = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/**
+	 * Constructor.
+	 */
+	public Statistics() {
+		for (int index = 0; index < times.length(); index++) {
+			times.set(index, NOT_RECORDED);
+		}
+		for (int index = 0; index < counts.length(); index++) {
+			counts.set(index, NOT_RECORDED);
+		}
+	}
+
+	/**
+	 * Add time to a phase.
+	 *
+	 * @param phase
+	 *            phase
+	 * @param nanos
+	 *            duration (nanoseconds)
+	 */
+	public void addTime(final Phase phase, final long nanos) {
+		add(times, phase.ordinal(), nanos);
+	}
+
+	/**
+	 * @param phase
+	 *            phase
+	 * @return duration of the phase (nanoseconds, 0 if not recorded)
+	 */
+	public long getTime(final Phase phase) {
+		return Math.max(0, times.get(phase.ordinal()));
+	}
+
+	/**
+	 * Add to a counter.
+	 *
+	 * @param counter
+	 *            counter
+	 * @param count
+	 *            count to add
+	 */
+	public void addCount(final Counter counter, final long count) {
+		add(counts, counter.ordinal(), count);
+	}
+
+	/**
+	 * @param counter
+	 *            counter
+	 * @return count (0 if not recorded)
+	 */
+	public long getCount(final Counter counter) {
+		return Math.max(0, counts.get(counter.ordinal()));
+	}
+
+	/**
+	 * Add time to a rule.
+	 *
+	 * @param rule
+	 *            rule name
+	 * @param nanos
+	 *            duration (nanoseconds)
+	 */
+	public void addRuleTime(final String rule, final long nanos) {
+		ruleTimes.merge(rule, nanos, Long::sum);
+	}
+
+	/**
+	 * @return duration per rule (nanoseconds), in the order the rules were
+	 *         executed
+	 */
+	public Map<String, Long> getRuleTimes() {
+		synchronized (ruleTimes) {
+			return new LinkedHashMap<>(ruleTimes);
+		}
+	}
+
+	private static void add(final AtomicLongArray values, final int index, final long value) {
+		values.accumulateAndGet(index, value, (current, added) -> current == NOT_RECORDED ? added : current + added);
+	}
+
+	/**
+	 * Log the recorded statistics (at info level) as a table.
+	 *
+	 * @param logger
+	 *            logger
+	 */
+	public void log(final Logger logger) {
+		logger.info("Package analyzer statistics:");
+		for (final Phase phase : Phase.values()) {
+			if (times.get(phase.ordinal()) != NOT_RECORDED) {
+				logger.info(String.format(LINE_FORMAT, phase.label, TimeUnit.NANOSECONDS.toMillis(getTime(phase)),
+						" ms"));
+			}
+		}
+		for (final Map.Entry<String, Long> ruleTime : getRuleTimes().entrySet()) {
+			logger.info(String.format(LINE_FORMAT, "Rule " + ruleTime.getKey(),
+					TimeUnit.NANOSECONDS.toMillis(ruleTime.getValue()), " ms"));
+		}
+		for (final Counter counter : Counter.values()) {
+			if (counts.get(counter.ordinal()) != NOT_RECORDED) {
+				logger.info(String.format(LINE_FORMAT, counter.label, getCount(counter), ""));
+			}
+		}
+	}
+
+	/**
+	 * Save the recorded statistics as (hidden) measures on the module.
+	 *
+	 * @param context
+	 *            sensor context
+	 */
+	public void saveMeasures(final SensorContext context) {
+		for (final Phase phase : Phase.values()) {
+			if (phase.metric != null && times.get(phase.ordinal()) != NOT_RECORDED) {
+				context.<Long>newMeasure().forMetric(phase.metric).on(context.module())
+						.withValue(TimeUnit.NANOSECONDS.toMillis(getTime(phase))).save();
+			}
+		}
+		for (final Counter counter : Counter.values()) {
+			if (counter.metric != null && counts.get(counter.ordinal()) != NOT_RECORDED) {
+				context.<Integer>newMeasure().forMetric(counter.metric).on(context.module())
+						.withValue((int) Math.min(Integer.MAX_VALUE, getCount(counter))).save();
+			}
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.rules;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Set;
 
 import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.config.Settings;
@@ -12,6 +14,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.External;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
@@ -39,22 +42,92 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 
 	@Override
 	public final void scanModel(final SensorContext context, final String language, final Model<Location> model) {
-		final ActiveRule rule = context.activeRules().find(RuleKey.of(BaseRules.getRepositoryKey(language), ruleKey));
+		scanModel(context, language, model, new Statistics());
+	}
+
+	@Override
+	public final void scanModel(final SensorContext context, final String language, final Model<Location> model,
+			final Statistics statistics) {
+		final ActiveRule rule = findActiveRule(context.activeRules(), language);
+		if (rule != null) {
+			scanModel(context, rule, model, statistics);
+		}
+	}
+
+	@Override
+	public final ModelVisitor createVisitor(final SensorContext context, final ActiveRules activeRules,
+			final String language, final Model<Location> model, final Statistics statistics) {
+		final ActiveRule rule = findActiveRule(activeRules, language);
+		if (rule == null) {
+			return null;
+		}
+		return createVisitor(context, rule, model, statistics);
+	}
+
+	private ActiveRule findActiveRule(final ActiveRules activeRules, final String language) {
+		final ActiveRule rule = activeRules.find(RuleKey.of(BaseRules.getRepositoryKey(language), ruleKey));
 		if (rule == null) {
 			LOGGER.debug("Rule {}:{} is not active", BaseRules.getRepositoryKey(language), ruleKey);
-			return;
 		}
+		return rule;
+	}
 
-		scanModel(context, rule, model);
+	/**
+	 * Scan the model for issues (statistics are not recorded).
+	 *
+	 * @param context
+	 *            sensor context
+	 * @param rule
+	 *            active rule
+	 * @param model
+	 *            model
+	 */
+	protected final void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
+		scanModel(context, rule, model, new Statistics());
 	}
 
-	protected abstract void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model);
+	/**
+	 * Scan the model for issues; visits the model with the visitor of this
+	 * rule.
+	 *
+	 * @param context
+	 *            sensor context
+	 * @param rule
+	 *            active rule
+	 * @param model
+	 *            model
+	 * @param statistics
+	 *            statistics of the scan
+	 */
+	protected final void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model,
+			final Statistics statistics) {
+		RuleEngine.visit(model, Collections.singletonList(createVisitor(context, rule, model, statistics)));
+	}
+
+	/**
+	 * Create the visitor of this rule; rules that scan the whole model at once
+	 * do so in {@link ModelVisitor#end()}.
+	 *
+	 * @param context
+	 *            sensor context
+	 * @param rule
+	 *            active rule
+	 * @param model
+	 *            model
+	 * @param statistics
+	 *            statistics of the scan
+	 * @return visitor
+	 */
+	protected abstract ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics);
 
 	/**
 	 * Register an issue.
 	 * 
 	 * @param context
 	 *            sensor context
+	 * @param statistics
+	 *            statistics of the scan
 	 * @param rule
 	 *            rule to register issue for
 	 * @param model
@@ -62,13 +135,13 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 	 * @param message
 	 *            message
 	 */
-	protected final void registerIssue(final SensorContext context, final ActiveRule rule, final Class<Location> model,
-			final String message) {
-		newIssue(context, rule, model, message);
+	protected final void registerIssue(final SensorContext context, final Statistics statistics,
+			final ActiveRule rule, final Class<Location> model, final String message) {
+		newIssue(context, statistics, rule, model, message);
 	}
 
-	private boolean newIssue(final SensorContext context, final ActiveRule rule, final External<Location> model,
-			final String message) {
+	private boolean newIssue(final SensorContext context, final Statistics statistics, final ActiveRule rule,
+			final External<Location> model, final String message) {
 		final Location location = model.getExternal();
 		if (location == null) {
 			LOGGER.debug("Rule {} triggered, but {} did not contain a location to register issue", rule.ruleKey(),
@@ -76,9 +149,12 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 			return false;
 		} else {
 			LOGGER.debug("Rule {} triggered, registering issue on {}", rule.ruleKey(), model);
+			final long start = System.nanoTime();
 			final NewIssue issue = context.newIssue().forRule(rule.ruleKey());
 			issue.at(issue.newLocation().on(location.getOn()).at(location.getAt()).message(message));
 			issue.save();
+			statistics.addTime(Statistics.Phase.REGISTER_ISSUES, System.nanoTime() - start);
+			statistics.addCount(Statistics.Counter.ISSUES, 1);
 			return true;
 		}
 	}
@@ -88,6 +164,8 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 	 * 
 	 * @param context
 	 *            sensor context
+	 * @param statistics
+	 *            statistics of the scan
 	 * @param rule
 	 *            rule to register issue for
 	 * @param model
@@ -95,24 +173,25 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 	 * @param message
 	 *            message
 	 */
-	protected final void registerIssue(final SensorContext context, final Settings settings, final ActiveRule rule,
-			final Package<Location> modelPackage, final Set<Class<Location>> modelClasses, final String message) {
+	protected final void registerIssue(final SensorContext context, final Statistics statistics,
+			final Settings settings, final ActiveRule rule, final Package<Location> modelPackage,
+			final Set<Class<Location>> modelClasses, final String message) {
 		LOGGER.debug("registerIssue(context={}, settings={}, rule={}, package={}, classes={}, message={}", context,
 				settings, rule, modelPackage, modelClasses, message);
 
 		boolean registered = false;
 		if (PackageAnalyzerProperties.shouldRegisterOnPackage(settings)
-				&& newIssue(context, rule, modelPackage, message)) {
+				&& newIssue(context, statistics, rule, modelPackage, message)) {
 			registered = true;
 		}
 
 		if (!registered && PackageAnalyzerProperties.shouldRegisterOnClasses(settings) && !modelClasses.isEmpty()) {
 			if (PackageAnalyzerProperties.shouldRegisterOnAllClasses(settings)) {
 				for (final Class<Location> modelClass : modelClasses) {
-					newIssue(context, rule, modelClass, message);
+					newIssue(context, statistics, rule, modelClass, message);
 				}
 			} else {
-				newIssue(context, rule, modelClasses.iterator().next(), message);
+				newIssue(context, statistics, rule, modelClasses.iterator().next(), message);
 			}
 			registered = true;
 		}
@@ -145,4 +224,19 @@ public abstract class AbstractPackageAnalyzerRule implements PackageAnalyzerRule
 			context.<T>newMeasure().forMetric(metric).on(model.getExternal().getOn()).withValue(value).save();
 		}
 	}
+
+	/**
+	 * Register a measure on the module.
+	 * 
+	 * @param context
+	 *            sensor context
+	 * @param metric
+	 *            metric to register measure for
+	 * @param value
+	 *            value
+	 */
+	protected final <T extends Serializable> void registerMeasure(final SensorContext context, final Metric<T> metric,
+			final T value) {
+		context.<T>newMeasure().forMetric(metric).on(context.module()).withValue(value).save();
+	}
 }
@@ -1,7 +1,7 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.rules;
 
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -14,9 +14,12 @@ import org.sonar.api.server.rule.RulesDefinition.NewRule;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.PackageMetrics;
 
 /**
  * Abstractness rule.
@@ -51,24 +54,55 @@ public final class AbstractnessRule extends AbstractPackageAnalyzerRule implemen
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
 		final Integer maximum = Integer.valueOf(rule.param(PARAM_MAXIMUM));
+		final PackageMetrics<Location> metrics = model.getPackageMetrics();
+		final DependencyGraph<Location> graph = metrics.getDependencyGraph();
 
-		for (final Package<Location> packageToCheck : model.getPackages()) {
-			final Set<Class<Location>> classes = packageToCheck.getClasses().stream().filter(Class::isAbstract)
-					.collect(Collectors.toSet());
-			final int abstractClasses = classes.size();
-			final int totalClasses = packageToCheck.getClasses().size();
-			final int abstractness = totalClasses == 0 ? 0 : (abstractClasses * 100 / totalClasses);
+		return new ModelVisitor() {
+			@Override
+			public void visitPackage(final int packageId) {
+				final Package<Location> packageToCheck = graph.getPackage(packageId);
+				final int abstractClasses = metrics.getAbstractClassCount(packageId);
+				final int totalClasses = metrics.getClassCount(packageId);
+				final int abstractness = metrics.getAbstractness(packageId);
 
-			LOGGER.debug("Package {}: abstract={}, total={}, abstractness={}", packageToCheck.getName(),
-					abstractClasses, totalClasses, abstractness);
+				LOGGER.debug("Package {}: abstract={}, total={}, abstractness={}", packageToCheck.getName(),
+						abstractClasses, totalClasses, abstractness);
 
-			if (abstractness > maximum) {
-				registerIssue(context, settings, rule, packageToCheck, classes,
-						"Reduce number of abstract classes in this package (allowed: " + maximum + "%, actual: "
-								+ abstractness + "%)");
+				if (abstractness > maximum) {
+					registerIssue(context, statistics, settings, rule, packageToCheck,
+							selectAbstractClasses(graph, packageId),
+							"Reduce number of abstract classes in this package (allowed: " + maximum + "%, actual: "
+									+ abstractness + "%)");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Only select abstract classes.
+	 * 
+	 * @param graph
+	 *            dependency graph
+	 * @param packageId
+	 *            package id
+	 * @return abstract classes
+	 */
+	private static Set<Class<Location>> selectAbstractClasses(final DependencyGraph<Location> graph,
+			final int packageId) {
+		final Set<Class<Location>> result = new HashSet<>();
+
+		final DependencyGraph.Edges packageClasses = graph.getPackageClasses();
+		for (int edge = packageClasses.getOffsets()[packageId]; edge < packageClasses.getOffsets()[packageId
+				+ 1]; edge++) {
+			final int classId = packageClasses.getTargets()[edge];
+			if (graph.isAbstract(classId)) {
+				result.add(graph.getClass(classId));
 			}
 		}
+
+		return result;
 	}
 }
@@ -2,7 +2,6 @@ package nl.futureedge.sonar.plugin.packageanalyzer.rules;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.SortedSet;
 
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -15,9 +14,12 @@ import org.sonar.api.server.rule.RulesDefinition.NewRule;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.PackageMetrics;
 
 /**
  * Efferent coupling rule.
@@ -52,48 +54,61 @@ public final class EfferentCouplingRule extends AbstractPackageAnalyzerRule impl
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
 		final Integer maximum = Integer.valueOf(rule.param(PARAM_MAXIMUM));
+		final PackageMetrics<Location> metrics = model.getPackageMetrics();
+		final DependencyGraph<Location> graph = metrics.getDependencyGraph();
 
-		for (final Package<Location> packageToCheck : model.getPackages()) {
-			final int efferentCoupling = packageToCheck.getPackageUsages().size();
+		return new ModelVisitor() {
+			@Override
+			public void visitPackage(final int packageId) {
+				final Package<Location> packageToCheck = graph.getPackage(packageId);
+				final int efferentCoupling = metrics.getEfferentCoupling(packageId);
 
-			LOGGER.debug("Package {}: efferent={}", packageToCheck.getName(), efferentCoupling);
+				LOGGER.debug("Package {}: efferent={}", packageToCheck.getName(), efferentCoupling);
 
-			if (efferentCoupling > maximum) {
-				final Set<Class<Location>> classes = selectClassesWithEfferentUsage(packageToCheck.getClasses());
+				if (efferentCoupling > maximum) {
+					final Set<Class<Location>> classes = selectClassesWithEfferentUsage(graph, packageId);
 
-				registerIssue(context, settings, rule, packageToCheck, classes,
-						"Reduce number of packages used by this package (allowed: " + maximum + ", actual: "
-								+ efferentCoupling + ")");
+					registerIssue(context, statistics, settings, rule, packageToCheck, classes,
+							"Reduce number of packages used by this package (allowed: " + maximum + ", actual: "
+									+ efferentCoupling + ")");
+				}
 			}
-		}
+		};
 	}
 
 	/**
 	 * Only select classes that are usee classes outside this package.
 	 * 
-	 * @param packageClasses
-	 *            package classes
+	 * @param graph
+	 *            dependency graph
+	 * @param packageId
+	 *            package id
 	 * @return classes that have efferent usages
 	 */
-	static Set<Class<Location>> selectClassesWithEfferentUsage(final SortedSet<Class<Location>> packageClasses) {
+	static Set<Class<Location>> selectClassesWithEfferentUsage(final DependencyGraph<Location> graph,
+			final int packageId) {
 		final Set<Class<Location>> result = new HashSet<>();
 
-		for (final Class<Location> packageClass : packageClasses) {
-			if (hasAfferentUsage(packageClass)) {
-				result.add(packageClass);
+		final DependencyGraph.Edges packageClasses = graph.getPackageClasses();
+		for (int edge = packageClasses.getOffsets()[packageId]; edge < packageClasses.getOffsets()[packageId
+				+ 1]; edge++) {
+			final int classId = packageClasses.getTargets()[edge];
+			if (hasEfferentUsage(graph, packageId, classId)) {
+				result.add(graph.getClass(classId));
 			}
 		}
 
 		return result;
 	}
 
-	private static boolean hasAfferentUsage(final Class<Location> packageClass) {
-		final Package<Location> classPackage = packageClass.getParentPackage();
-
-		for (final Class<Location> usesClass : packageClass.getUsages()) {
-			if (!classPackage.equals(usesClass.getParentPackage())) {
+	private static boolean hasEfferentUsage(final DependencyGraph<Location> graph, final int packageId,
+			final int classId) {
+		final DependencyGraph.Edges usages = graph.getClassUsages();
+		for (int edge = usages.getOffsets()[classId]; edge < usages.getOffsets()[classId + 1]; edge++) {
+			if (graph.getClassPackage(usages.getTargets()[edge]) != packageId) {
 				return true;
 			}
 		}
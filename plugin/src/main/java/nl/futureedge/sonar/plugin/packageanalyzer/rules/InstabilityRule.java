@@ -13,9 +13,12 @@ import org.sonar.api.server.rule.RulesDefinition.NewRule;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.PackageMetrics;
 
 /**
  * Instability rule.
@@ -50,26 +53,32 @@ public final class InstabilityRule extends AbstractPackageAnalyzerRule implement
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
 		final Integer maximum = Integer.valueOf(rule.param(PARAM_MAXIMUM));
+		final PackageMetrics<Location> metrics = model.getPackageMetrics();
+		final DependencyGraph<Location> graph = metrics.getDependencyGraph();
 
-		for (final Package<Location> packageToCheck : model.getPackages()) {
-			final int afferentCoupling = packageToCheck.getUsedByPackages().size();
-			final int efferentCoupling = packageToCheck.getPackageUsages().size();
-			final int totalCoupling = efferentCoupling + afferentCoupling;
-			final int instability = totalCoupling == 0 ? 0 : (efferentCoupling * 100) / totalCoupling;
+		return new ModelVisitor() {
+			@Override
+			public void visitPackage(final int packageId) {
+				final Package<Location> packageToCheck = graph.getPackage(packageId);
+				final int efferentCoupling = metrics.getEfferentCoupling(packageId);
+				final int totalCoupling = efferentCoupling + metrics.getAfferentCoupling(packageId);
+				final int instability = metrics.getInstability(packageId);
 
-			LOGGER.debug("Package {}: efferent={}, total={}, instability={}", packageToCheck.getName(),
-					efferentCoupling, totalCoupling, instability);
+				LOGGER.debug("Package {}: efferent={}, total={}, instability={}", packageToCheck.getName(),
+						efferentCoupling, totalCoupling, instability);
 
-			if (instability > maximum) {
-				final Set<Class<Location>> classes = EfferentCouplingRule
-						.selectClassesWithEfferentUsage(packageToCheck.getClasses());
+				if (instability > maximum) {
+					final Set<Class<Location>> classes = EfferentCouplingRule.selectClassesWithEfferentUsage(graph,
+							packageId);
 
-				registerIssue(context, settings, rule, packageToCheck, classes,
-						"Reduce number of packages used by this package to lower instability (allowed: " + maximum
-								+ "%, actual: " + instability + "%)");
+					registerIssue(context, statistics, settings, rule, packageToCheck, classes,
+							"Reduce number of packages used by this package to lower instability (allowed: " + maximum
+									+ "%, actual: " + instability + "%)");
+				}
 			}
-		}
+		};
 	}
 }
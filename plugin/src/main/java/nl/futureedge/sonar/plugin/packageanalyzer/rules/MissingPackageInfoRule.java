@@ -8,7 +8,8 @@ import org.sonar.api.server.rule.RulesDefinition.NewRepository;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
-import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
 
@@ -42,15 +43,27 @@ public final class MissingPackageInfoRule extends AbstractPackageAnalyzerRule im
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
-		for (final Package<Location> packageToCheck : model.getPackages()) {
-			LOGGER.debug("Package {}: extenal={}", packageToCheck.getExternal());
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
+		final DependencyGraph<Location> graph = model.getDependencyGraph();
 
-			if (packageToCheck.getExternal() == null) {
-				for (final Class<Location> classToReport : packageToCheck.getClasses()) {
-					registerIssue(context, rule, classToReport, "Add a package-info.java to the package.");
+		return new ModelVisitor() {
+			private boolean missing;
+
+			@Override
+			public void visitPackage(final int packageId) {
+				final Package<Location> packageToCheck = graph.getPackage(packageId);
+				LOGGER.debug("Package {}: extenal={}", packageToCheck.getName(), packageToCheck.getExternal());
+				missing = packageToCheck.getExternal() == null;
+			}
+
+			@Override
+			public void visitClass(final int classId) {
+				if (missing) {
+					registerIssue(context, statistics, rule, graph.getClass(classId),
+							"Add a package-info.java to the package.");
 				}
 			}
-		}
+		};
 	}
 }
@@ -0,0 +1,39 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.rules;
+
+/**
+ * Callbacks of a rule for the (single) traversal of the model by the
+ * {@link RuleEngine}.
+ *
+ * Packages and classes are identified by their id in the dependency graph of
+ * the model. Each package is visited once, directly followed by the classes in
+ * the package.
+ */
+public interface ModelVisitor {
+
+	/**
+	 * Visit a package.
+	 *
+	 * @param packageId
+	 *            package id (in the dependency graph)
+	 */
+	default void visitPackage(final int packageId) {
+		// Nothing
+	}
+
+	/**
+	 * Visit a class (after the package of the class).
+	 *
+	 * @param classId
+	 *            class id (in the dependency graph)
+	 */
+	default void visitClass(final int classId) {
+		// Nothing
+	}
+
+	/**
+	 * All packages and classes have been visited.
+	 */
+	default void end() {
+		// Nothing
+	}
+}
@@ -11,8 +11,11 @@ import org.sonar.api.server.rule.RulesDefinition.NewRule;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.PackageMetrics;
 
 /**
  * Number of classes rule.
@@ -46,18 +49,27 @@ public final class NumberOfClassesAndInterfacesRule extends AbstractPackageAnaly
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
 		final Integer maximum = Integer.valueOf(rule.param(PARAM_MAXIMUM));
 
-		for (final Package<Location> packageToCheck : model.getPackages()) {
-			final int classcount = packageToCheck.getClasses().size();
+		final PackageMetrics<Location> metrics = model.getPackageMetrics();
+		final DependencyGraph<Location> graph = metrics.getDependencyGraph();
 
-			LOGGER.debug("Package {}: total={}", packageToCheck.getName(), classcount);
+		return new ModelVisitor() {
+			@Override
+			public void visitPackage(final int packageId) {
+				final Package<Location> packageToCheck = graph.getPackage(packageId);
+				final int classcount = metrics.getClassCount(packageId);
 
-			if (classcount > maximum) {
-				registerIssue(context, settings, rule, packageToCheck, packageToCheck.getClasses(),
-						"Reduce number of classes in package (allowed: " + maximum + ", actual: " + classcount + ")");
+				LOGGER.debug("Package {}: total={}", packageToCheck.getName(), classcount);
+
+				if (classcount > maximum) {
+					registerIssue(context, statistics, settings, rule, packageToCheck,
+							packageToCheck.getClasses(), "Reduce number of classes in package (allowed: " + maximum
+									+ ", actual: " + classcount + ")");
+				}
 			}
-		}
+		};
 	}
 }
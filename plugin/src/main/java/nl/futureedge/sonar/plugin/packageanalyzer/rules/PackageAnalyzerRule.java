@@ -1,6 +1,7 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.rules;
 
 import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
@@ -8,6 +9,7 @@ import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.server.ws.Definable;
 import org.sonarsource.api.sonarlint.SonarLintSide;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 
 /**
@@ -30,6 +32,49 @@ public interface PackageAnalyzerRule extends Definable<RulesDefinition.NewReposi
 	 */
 	void scanModel(SensorContext context, String language, Model<Location> model);
 
+	/**
+	 * Scan the model for issues, recording statistics.
+	 * 
+	 * @param context
+	 *            context (to register issues)
+	 * @param language
+	 *            language
+	 * @param model
+	 *            model
+	 * @param statistics
+	 *            statistics (default not recorded)
+	 */
+	default void scanModel(SensorContext context, String language, Model<Location> model, Statistics statistics) {
+		scanModel(context, language, model);
+	}
+
+	/**
+	 * Create the visitor of this rule for the (single) traversal of the model by
+	 * the {@link RuleEngine}.
+	 * 
+	 * @param context
+	 *            context (to register issues)
+	 * @param activeRules
+	 *            active rules
+	 * @param language
+	 *            language
+	 * @param model
+	 *            model
+	 * @param statistics
+	 *            statistics
+	 * @return visitor, or null if the rule is not active (default scans the
+	 *         whole model after the traversal)
+	 */
+	default ModelVisitor createVisitor(SensorContext context, ActiveRules activeRules, String language,
+			Model<Location> model, Statistics statistics) {
+		return new ModelVisitor() {
+			@Override
+			public void end() {
+				scanModel(context, language, model, statistics);
+			}
+		};
+	}
+
 	/**
 	 * Does this rule support the given language?
 	 * 
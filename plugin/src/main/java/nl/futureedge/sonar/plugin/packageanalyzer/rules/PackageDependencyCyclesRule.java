@@ -1,17 +1,16 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.rules;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
 import java.util.stream.Collectors;
 
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.config.Settings;
+import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.Severity;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.rule.RulesDefinition.NewRepository;
@@ -19,11 +18,17 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.Analyzer;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.CycleLimits;
 import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.PackageCycle;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.PackageDependency;
+import nl.futureedge.sonar.plugin.packageanalyzer.analyzer.PackageFeedbackArcSet;
 import nl.futureedge.sonar.plugin.packageanalyzer.metrics.PackageAnalyzerMetrics;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
 
 /**
  * Package dependency cycles rule.
@@ -52,137 +57,268 @@ public final class PackageDependencyCyclesRule extends AbstractPackageAnalyzerRu
 	}
 
 	@Override
-	public void scanModel(final SensorContext context, final ActiveRule rule, final Model<Location> model) {
-		// Analyze
-		final Analyzer<Location> analyzer = new Analyzer<>();
-		final List<PackageCycle<Location>> packageCycles = analyzer.findPackageCycles(model);
-		LOGGER.debug("Package cycles: {}", packageCycles.size());
+	protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+			final Model<Location> model, final Statistics statistics) {
+		// The package cycles are searched in the whole model at once
+		return new ModelVisitor() {
+			@Override
+			public void end() {
+				scanCycles(context, rule, model, statistics);
+			}
+		};
+	}
+
+	private void scanCycles(final SensorContext context, final ActiveRule rule, final Model<Location> model,
+			final Statistics statistics) {
+		final CycleIssues cycleIssues = new CycleIssues(context, statistics, rule, model);
+		final long start = System.nanoTime();
+		final boolean reportDependencies = PackageAnalyzerProperties.shouldReportCycleDependencies(settings);
+		if (reportDependencies) {
+			// Rule (one identifier per group of packages in cycles)
+			for (final PackageFeedbackArcSet<Location> feedbackArcSet : new Analyzer<Location>()
+					.findPackageFeedbackArcSets(model)) {
+				cycleIssues.registerDependencies(feedbackArcSet);
+			}
+			LOGGER.debug("Package cycle components: {}", cycleIssues.packageCycleIdentifier);
+		} else {
+			// Analyze
+			final CycleLimits limits = new CycleLimits(PackageAnalyzerProperties.getCyclesMaximumCount(settings),
+					PackageAnalyzerProperties.getCyclesMaximumLength(settings),
+					PackageAnalyzerProperties.getCyclesMaximumDuration(settings));
+			final Analyzer<Location> analyzer = new Analyzer<>(limits, PackageAnalyzerProperties.getThreads(settings));
+
+			// Rule (issues are registered as soon as a package cycle is found)
+			final boolean truncated = analyzer.forEachPackageCycle(model, cycleIssues::registerCycle);
+			LOGGER.debug("Package cycles: {}", cycleIssues.packageCycleIdentifier);
+			if (truncated) {
+				LOGGER.warn("Search for package cycles stopped after {} package cycles ({})",
+						cycleIssues.packageCycleIdentifier, limits);
+			}
+		}
 
-		int packageCycleIdentifier = 0;
-		final Map<Package<Location>, StringBuilder> identifierMeasures = new HashMap<>();
+		// Statistics (the issues are registered during the search)
+		statistics.addTime(Statistics.Phase.FIND_CYCLES, System.nanoTime() - start);
 
-		// Rule
-		for (final PackageCycle<Location> packageCycle : packageCycles) {
+		// Measures (groups of packages in cycles are not package cycles)
+		if (!reportDependencies) {
+			statistics.addCount(Statistics.Counter.CYCLES, cycleIssues.packageCycleIdentifier);
+			registerMeasure(context, PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_FOUND,
+					cycleIssues.packageCycleIdentifier);
+		}
+		final Metric<String> identifierMetric = reportDependencies
+				? PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER
+				: PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER;
+		for (final Map.Entry<Package<Location>, StringBuilder> measure : cycleIssues.identifierMeasures.entrySet()) {
+			registerMeasure(context, identifierMetric, measure.getKey(), measure.getValue().toString());
+		}
+	}
+
+	/**
+	 * Registers the issues for each package cycle (or group of packages in
+	 * cycles) found and collects the package cycle identifiers per package.
+	 */
+	private final class CycleIssues {
+		private final SensorContext context;
+		private final Statistics statistics;
+		private final ActiveRule rule;
+		private final Model<Location> model;
+
+		private int packageCycleIdentifier = 0;
+		private final Map<Package<Location>, StringBuilder> identifierMeasures = new HashMap<>();
+
+		CycleIssues(final SensorContext context, final Statistics statistics, final ActiveRule rule,
+				final Model<Location> model) {
+			this.context = context;
+			this.statistics = statistics;
+			this.rule = rule;
+			this.model = model;
+		}
+
+		void registerCycle(final PackageCycle<Location> packageCycle) {
 			packageCycleIdentifier++;
 
+			final DependencyGraph<Location> graph = model.getDependencyGraph();
 			final List<Package<Location>> packagesInCycle = packageCycle.getPackagesInCycle();
+			final int[] packageIds = new int[packagesInCycle.size()];
+			for (int packageInCycleIndex = 0; packageInCycleIndex < packageIds.length; packageInCycleIndex++) {
+				packageIds[packageInCycleIndex] = graph.getPackageId(packagesInCycle.get(packageInCycleIndex));
+			}
+
 			for (int packageInCycleIndex = 0; packageInCycleIndex < packagesInCycle.size(); packageInCycleIndex++) {
 				final Package<Location> packageInCycle = packagesInCycle.get(packageInCycleIndex);
-				final int nextPackageInCycleIndex = packageInCycleIndex + 1;
-				final Package<Location> nextPackageInCycle = packagesInCycle
-						.get(nextPackageInCycleIndex == packagesInCycle.size() ? 0 : nextPackageInCycleIndex);
-
-				if (identifierMeasures.containsKey(packageInCycle)) {
-					identifierMeasures.get(packageInCycle).append(",").append(Integer.toString(packageCycleIdentifier));
-				} else {
-					identifierMeasures.put(packageInCycle, new StringBuilder(Integer.toString(packageCycleIdentifier)));
-				}
+				final int nextPackageInCycleIndex = (packageInCycleIndex + 1) % packageIds.length;
 
-				final String message = formatMessage(packageCycle, packageInCycle);
+				addIdentifier(packageInCycle);
+
+				final String message = formatMessage(graph, packageIds, packageInCycleIndex);
 
 				// Only select classes that use the 'next' package
-				final Set<Class<Location>> classes = selectClasses(packageInCycle.getClasses(), nextPackageInCycle);
+				final Set<Class<Location>> classes = selectClasses(graph, packageIds[packageInCycleIndex],
+						packageIds[nextPackageInCycleIndex]);
+
+				registerIssue(context, statistics, settings, rule, packageInCycle, classes, message);
+			}
+		}
+
+		void registerDependencies(final PackageFeedbackArcSet<Location> feedbackArcSet) {
+			packageCycleIdentifier++;
+
+			final DependencyGraph<Location> graph = model.getDependencyGraph();
+			for (final Package<Location> packageInComponent : feedbackArcSet.getPackagesInComponent()) {
+				addIdentifier(packageInComponent);
+			}
+
+			// One issue per package that should break dependencies (the
+			// dependencies are ordered by using package)
+			final List<PackageDependency<Location>> dependencies = feedbackArcSet.getDependencies();
+			int first = 0;
+			while (first < dependencies.size()) {
+				final Package<Location> packageFrom = dependencies.get(first).getFrom();
+				int last = first + 1;
+				while (last < dependencies.size() && dependencies.get(last).getFrom().equals(packageFrom)) {
+					last++;
+				}
+
+				final List<PackageDependency<Location>> packageDependencies = dependencies.subList(first, last);
+				final String message = formatMessage(graph, feedbackArcSet, packageDependencies);
+
+				// Only select classes that use the packages to break
+				final int packageId = graph.getPackageId(packageFrom);
+				final Set<Class<Location>> classes = new LinkedHashSet<>();
+				for (final PackageDependency<Location> dependency : packageDependencies) {
+					classes.addAll(selectClasses(graph, packageId, graph.getPackageId(dependency.getTo())));
+				}
 
-				registerIssue(context, settings, rule, packageInCycle, classes, message);
+				registerIssue(context, statistics, settings, rule, packageFrom, classes, message);
+				first = last;
 			}
 		}
 
-		// Measures
-		for (final Map.Entry<Package<Location>, StringBuilder> measure : identifierMeasures.entrySet()) {
-			registerMeasure(context, PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER, measure.getKey(),
-					measure.getValue().toString());
+		private void addIdentifier(final Package<Location> packageInCycle) {
+			if (identifierMeasures.containsKey(packageInCycle)) {
+				identifierMeasures.get(packageInCycle).append(",").append(Integer.toString(packageCycleIdentifier));
+			} else {
+				identifierMeasures.put(packageInCycle, new StringBuilder(Integer.toString(packageCycleIdentifier)));
+			}
 		}
 	}
 
-	private String formatMessage(final PackageCycle<Location> packageCycle, final Package<Location> forPackage) {
+	/**
+	 * Format the message for a package in the cycle; the class usages are
+	 * looked up in the witnesses of the package usages.
+	 * 
+	 * @param graph
+	 *            dependency graph
+	 * @param packageIds
+	 *            package ids of the packages in the cycle
+	 * @param forPackageIndex
+	 *            index (in the cycle) of the package the message is for
+	 * @return message
+	 */
+	static String formatMessage(final DependencyGraph<Location> graph, final int[] packageIds,
+			final int forPackageIndex) {
 		final StringBuilder message = new StringBuilder();
 		message.append("Break the package cycle containing the following cycle of packages: ");
 
-		final List<Package<Location>> packagesInCycle = cycleToPackage(packageCycle.getPackagesInCycle(), forPackage);
-		for (int i = 0; i < packagesInCycle.size(); i++) {
-			final Package<Location> packageFrom = packagesInCycle.get(i);
-			final Package<Location> packageTo = i == packagesInCycle.size() - 1 ? packagesInCycle.get(0)
-					: packagesInCycle.get(i + 1);
+		for (int i = 0; i < packageIds.length; i++) {
+			final int packageFrom = packageIds[(forPackageIndex + i) % packageIds.length];
+			final int packageTo = packageIds[(forPackageIndex + i + 1) % packageIds.length];
 
 			if (i != 0) {
 				message.append(", ");
 			}
-			message.append("").append(packageFrom.getName()).append(" (");
-			boolean firstClass = true;
-			for (final Class<Location> classInPackage : packageFrom.getClasses()) {
-				final Set<Class<Location>> usages = getUsagesOnPackage(classInPackage, packageTo);
-				if (!usages.isEmpty()) {
-					if (firstClass) {
-						firstClass = false;
-					} else {
-						message.append(", ");
-					}
-					message.append(classInPackage.getName()).append(" references ");
-					message.append(usages.stream().map(Class::getName).collect(Collectors.joining(", ")));
-				}
-			}
+			message.append(graph.getPackage(packageFrom).getName()).append(" (");
+			appendWitnesses(message, graph, graph.getPackageUsageEdge(packageFrom, packageTo));
 			message.append(")");
 		}
 
 		return message.toString();
 	}
 
-	private List<Package<Location>> cycleToPackage(final List<Package<Location>> packagesInCycle,
-			final Package<Location> forPackage) {
-		final List<Package<Location>> result = new ArrayList<>(packagesInCycle);
-
-		while (!result.get(0).equals(forPackage)) {
-			result.add(result.remove(0));
+	/**
+	 * Format the message for the package dependencies to break of a package.
+	 * 
+	 * @param graph
+	 *            dependency graph
+	 * @param feedbackArcSet
+	 *            package dependencies to break of the group of packages in
+	 *            cycles
+	 * @param dependencies
+	 *            package dependencies to break of the package
+	 * @return message
+	 */
+	static String formatMessage(final DependencyGraph<Location> graph,
+			final PackageFeedbackArcSet<Location> feedbackArcSet, final List<PackageDependency<Location>> dependencies) {
+		final StringBuilder message = new StringBuilder();
+		message.append("Break the following package dependencies: ");
+		for (int i = 0; i < dependencies.size(); i++) {
+			final PackageDependency<Location> dependency = dependencies.get(i);
+			if (i != 0) {
+				message.append(", ");
+			}
+			message.append(dependency.getFrom().getName()).append(" -> ").append(dependency.getTo().getName())
+					.append(" (").append(dependency.getReferences())
+					.append(dependency.getReferences() == 1 ? " reference: " : " references: ");
+			appendWitnesses(message, graph, graph.getPackageUsageEdge(graph.getPackageId(dependency.getFrom()),
+					graph.getPackageId(dependency.getTo())));
+			message.append(")");
 		}
-
-		return result;
+		message.append("; this removes the package cycles between the packages: ");
+		message.append(feedbackArcSet.getPackagesInComponent().stream().map(Package::getName)
+				.collect(Collectors.joining(", ")));
+		message.append(" (").append(feedbackArcSet.getDependencies().size())
+				.append(" package dependencies to break in total)");
+		return message.toString();
 	}
 
-	private Set<Class<Location>> getUsagesOnPackage(final Class<Location> classInPackage,
-			final Package<Location> packageTo) {
-		final Set<Class<Location>> result = new HashSet<>();
-		for (final Class<Location> usage : classInPackage.getUsages()) {
-			if (usage.getParentPackage().getName().equals(packageTo.getName())) {
-				result.add(usage);
+	/**
+	 * Append the class usages causing a package usage ("ClassA references
+	 * ClassB, ClassC, ClassD references ClassB").
+	 */
+	private static void appendWitnesses(final StringBuilder message, final DependencyGraph<Location> graph,
+			final int packageEdge) {
+		final DependencyGraph.Witnesses witnesses = graph.getPackageUsageWitnesses();
+		final int[] witnessClasses = witnesses.getClasses();
+		final int[] witnessUsages = witnesses.getUsages();
+		final int firstWitness = witnesses.getOffsets()[packageEdge];
+		int previousClass = -1;
+		for (int witness = firstWitness; witness < witnesses.getOffsets()[packageEdge + 1]; witness++) {
+			if (witness != firstWitness) {
+				message.append(", ");
 			}
+			if (witnessClasses[witness] != previousClass) {
+				previousClass = witnessClasses[witness];
+				message.append(graph.getClass(previousClass).getName()).append(" references ");
+			}
+			message.append(graph.getClass(witnessUsages[witness]).getName());
 		}
-
-		return result;
 	}
 
 	/**
 	 * Only select classes that are use classes in the next package of the
 	 * cycle.
 	 * 
-	 * @param packageClasses
-	 *            package classes
-	 * @param nextPackageInCycle
-	 *            next package of cycle
-	 * @return classes that have efferent usages
+	 * @param graph
+	 *            dependency graph
+	 * @param packageId
+	 *            package id
+	 * @param nextPackageId
+	 *            package id of the next package of cycle
+	 * @return classes that have efferent usages (in class order)
 	 */
-	static Set<Class<Location>> selectClasses(final SortedSet<Class<Location>> packageClasses,
-			final Package<Location> nextPackageInCycle) {
-		LOGGER.debug("selectClasses(classes={}, nextPackageInCycle={})", packageClasses, nextPackageInCycle);
-		final Set<Class<Location>> result = new HashSet<>();
-
-		for (final Class<Location> packageClass : packageClasses) {
-			if (hasAfferentUsageOn(packageClass, nextPackageInCycle)) {
-				result.add(packageClass);
+	static Set<Class<Location>> selectClasses(final DependencyGraph<Location> graph, final int packageId,
+			final int nextPackageId) {
+		final DependencyGraph.Witnesses witnesses = graph.getPackageUsageWitnesses();
+		final int packageEdge = graph.getPackageUsageEdge(packageId, nextPackageId);
+		final Set<Class<Location>> result = new LinkedHashSet<>();
+		int previousClass = -1;
+		for (int witness = witnesses.getOffsets()[packageEdge]; witness < witnesses.getOffsets()[packageEdge
+				+ 1]; witness++) {
+			if (witnesses.getClasses()[witness] != previousClass) {
+				previousClass = witnesses.getClasses()[witness];
+				result.add(graph.getClass(previousClass));
 			}
 		}
-
-		LOGGER.debug("result={}", result);
 		return result;
 	}
-
-	private static boolean hasAfferentUsageOn(final Class<Location> packageClass,
-			final Package<Location> nextPackageInCycle) {
-		for (final Class<Location> usesClass : packageClass.getUsages()) {
-			if (nextPackageInCycle.equals(usesClass.getParentPackage())) {
-				return true;
-			}
-		}
-
-		return false;
-	}
 }
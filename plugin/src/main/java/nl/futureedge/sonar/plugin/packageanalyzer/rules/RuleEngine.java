@@ -0,0 +1,114 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+
+/**
+ * Executes rules in a single traversal of the model.
+ *
+ * The active rules are resolved once; each active rule supplies a
+ * {@link ModelVisitor} and all visitors are called for each package and for
+ * each class while the model is visited once. Adding a rule adds its
+ * callbacks, not another traversal of the model.
+ */
+public final class RuleEngine {
+
+	private static final Logger LOGGER = Loggers.get(RuleEngine.class);
+
+	private RuleEngine() {
+		// Not instantiable
+	}
+
+	/**
+	 * Execute the rules (that support the language and are active).
+	 *
+	 * @param context
+	 *            sensor context
+	 * @param language
+	 *            language
+	 * @param model
+	 *            model
+	 * @param statistics
+	 *            statistics (the time of each rule is recorded)
+	 * @param rules
+	 *            rules
+	 */
+	public static void execute(final SensorContext context, final String language, final Model<Location> model,
+			final Statistics statistics, final PackageAnalyzerRule... rules) {
+		final ActiveRules activeRules = context.activeRules();
+		final List<ModelVisitor> visitors = new ArrayList<>();
+		final List<String> names = new ArrayList<>();
+		for (final PackageAnalyzerRule rule : rules) {
+			if (rule.supportsLanguage(language)) {
+				final ModelVisitor visitor = rule.createVisitor(context, activeRules, language, model, statistics);
+				if (visitor != null) {
+					LOGGER.debug("Executing rule: {}", rule);
+					visitors.add(visitor);
+					names.add(rule.getClass().getSimpleName());
+				}
+			}
+		}
+
+		final long[] times = visit(model, visitors);
+		for (int index = 0; index < visitors.size(); index++) {
+			statistics.addRuleTime(names.get(index), times[index]);
+		}
+	}
+
+	/**
+	 * Visit the model; each package (and class) is passed to all visitors
+	 * before the next package (or class) is visited.
+	 *
+	 * @param model
+	 *            model
+	 * @param visitors
+	 *            visitors
+	 * @return time (nanoseconds) spent in each visitor
+	 */
+	static long[] visit(final Model<Location> model, final List<ModelVisitor> visitors) {
+		final long[] times = new long[visitors.size()];
+		if (visitors.isEmpty()) {
+			return times;
+		}
+
+		final ModelVisitor[] visitorArray = visitors.toArray(new ModelVisitor[visitors.size()]);
+		final DependencyGraph<Location> graph = model.getDependencyGraph();
+		final int[] offsets = graph.getPackageClasses().getOffsets();
+		final int[] classes = graph.getPackageClasses().getTargets();
+		for (int packageId = 0; packageId < graph.getPackageCount(); packageId++) {
+			long start = System.nanoTime();
+			for (int index = 0; index < visitorArray.length; index++) {
+				visitorArray[index].visitPackage(packageId);
+				start = addTime(times, index, start);
+			}
+			for (int edge = offsets[packageId]; edge < offsets[packageId + 1]; edge++) {
+				final int classId = classes[edge];
+				for (int index = 0; index < visitorArray.length; index++) {
+					visitorArray[index].visitClass(classId);
+					start = addTime(times, index, start);
+				}
+			}
+		}
+		long start = System.nanoTime();
+		for (int index = 0; index < visitorArray.length; index++) {
+			visitorArray[index].end();
+			start = addTime(times, index, start);
+		}
+		return times;
+	}
+
+	private static long addTime(final long[] times, final int index, final long start) {
+		final long end = System.nanoTime();
+		times[index] += end - start;
+		return end;
+	}
+}
@@ -1,15 +1,21 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
 
+import org.sonar.api.batch.fs.InputComponent;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.DependencyGraph;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.ModelFootprint;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.BaseRules;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageAnalyzerRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.RuleEngine;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
 
 /**
  * Base sensor implementation; contains all logic but not the language specific
@@ -18,6 +24,7 @@ import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageAnalyzerRule;
 public abstract class AbstractSensor implements Sensor {
 
 	private static final Logger LOGGER = Loggers.get(AbstractSensor.class);
+	private static final int FOOTPRINT_TYPES = 10;
 
 	private final String language;
 	private final PackageAnalyzerRule[] rules;
@@ -36,18 +43,69 @@ public abstract class AbstractSensor implements Sensor {
 
 	@Override
 	public final void execute(final SensorContext context) {
+		final Statistics statistics = new Statistics();
+
 		LOGGER.info("Build package model ...");
-		final Model<Location> model = buildModel(context);
-		LOGGER.info("Package model built, analyzing model for issues ...");
+		long start = System.nanoTime();
+		final Model<Location> model = buildModel(context, statistics);
+		statistics.addTime(Statistics.Phase.BUILD_MODEL, System.nanoTime() - start);
 
-		for (final PackageAnalyzerRule rule : rules) {
-			if (rule.supportsLanguage(language)) {
-				LOGGER.debug("Executing rule: {}", rule);
-				rule.scanModel(context, language, model);
-			}
+		start = System.nanoTime();
+		model.freeze();
+		statistics.addTime(Statistics.Phase.FREEZE_MODEL, System.nanoTime() - start);
+		countModel(model, statistics);
+		if (PackageAnalyzerProperties.shouldLogFootprint(context.settings())) {
+			logFootprint(model);
 		}
+		LOGGER.info("Package model built, analyzing model for issues ...");
+
+		start = System.nanoTime();
+		RuleEngine.execute(context, language, model, statistics, rules);
+		statistics.addTime(Statistics.Phase.EXECUTE_RULES, System.nanoTime() - start);
 		LOGGER.info("Analysis done");
+
+		statistics.log(LOGGER);
+		if (PackageAnalyzerProperties.shouldSaveStatisticsMeasures(context.settings())) {
+			statistics.saveMeasures(context);
+		}
+	}
+
+	private static void countModel(final Model<Location> model, final Statistics statistics) {
+		final DependencyGraph<Location> graph = model.getDependencyGraph();
+		statistics.addCount(Statistics.Counter.PACKAGES, graph.getPackageCount());
+		statistics.addCount(Statistics.Counter.CLASSES, graph.getClassCount());
+		statistics.addCount(Statistics.Counter.CLASS_USAGES, graph.getClassUsages().getTargets().length);
+		statistics.addCount(Statistics.Counter.PACKAGE_USAGES, graph.getPackageUsages().getTargets().length);
+	}
+
+	private static void logFootprint(final Model<Location> model) {
+		// The files of the analysis are not part of the model
+		final ModelFootprint footprint = ModelFootprint.of(model, object -> object instanceof InputComponent);
+		LOGGER.info("Model footprint (estimated): {} bytes", footprint.getBytes());
+		for (final ModelFootprint.Part part : ModelFootprint.Part.values()) {
+			LOGGER.info("  {}: {} bytes", part, footprint.getBytes(part));
+		}
+		LOGGER.info("  per package: {} bytes ({} packages)", footprint.getBytesPerPackage(),
+				footprint.getPackageCount());
+		LOGGER.info("  per class: {} bytes ({} classes)", footprint.getBytesPerClass(), footprint.getClassCount());
+		LOGGER.info("  per class usage: {} bytes ({} class usages)", footprint.getBytesPerClassUsage(),
+				footprint.getClassUsageCount());
+		footprint.getBytesPerType().entrySet().stream().limit(FOOTPRINT_TYPES)
+				.forEach(type -> LOGGER.info("  {}: {} bytes", type.getKey(), type.getValue()));
+		if (!footprint.getUnknownTypes().isEmpty()) {
+			LOGGER.info("  not estimated (counted as empty objects): {}", footprint.getUnknownTypes());
+		}
 	}
 
-	protected abstract Model<Location> buildModel(final SensorContext context);
+	/**
+	 * Build the model.
+	 *
+	 * @param context
+	 *            sensor context
+	 * @param statistics
+	 *            statistics (to record the phases and counters of reading the
+	 *            files)
+	 * @return model
+	 */
+	protected abstract Model<Location> buildModel(final SensorContext context, final Statistics statistics);
 }
@@ -0,0 +1,256 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
+
+/**
+ * Builds the model from the class files of the project (instead of parsing the
+ * source files).
+ *
+ * Only classes compiled from the given source files are added to the model
+ * (usages of other classes are ignored); the location of a class is the first
+ * line containing code in its source file. Package declarations are read from
+ * the package-info.java source files.
+ */
+final class BytecodeModelBuilder {
+
+	private static final Logger LOGGER = Loggers.get(BytecodeModelBuilder.class);
+
+	private static final String CLASS_FILE_EXTENSION = ".class";
+	private static final String PACKAGE_INFO = "package-info";
+	private static final String MODULE_INFO = "module-info";
+	// Only matched outside comments and literals; 'package' can not be used as
+	// an identifier, so annotations before the declaration are skipped
+	private static final Pattern PACKAGE_DECLARATION = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+
+	private final Map<String, List<InputFile>> filesByName = new HashMap<>();
+	private final ProjectTypes projectTypes;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param files
+	 *            source files
+	 * @param projectTypes
+	 *            (empty) index of the types declared in the project
+	 */
+	BytecodeModelBuilder(final List<InputFile> files, final ProjectTypes projectTypes) {
+		this.projectTypes = projectTypes;
+		for (final InputFile file : files) {
+			filesByName.computeIfAbsent(file.file().getName(), name -> new ArrayList<>()).add(file);
+		}
+	}
+
+	/**
+	 * Build the model.
+	 *
+	 * @param binaryDirs
+	 *            directories containing the class files
+	 * @return model
+	 */
+	Model<Location> build(final List<File> binaryDirs) {
+		final Model<Location> model = new Model<>();
+		readPackages(model);
+
+		final List<ClassFileFacts> classes = new ArrayList<>();
+		final List<InputFile> sourceFiles = new ArrayList<>();
+		for (final File binaryDir : binaryDirs) {
+			LOGGER.debug("Analyzing class files in: {}", binaryDir);
+			for (final Path classFile : listClassFiles(binaryDir)) {
+				final ClassFileFacts facts = readClassFile(classFile);
+				if (facts == null) {
+					continue;
+				}
+				final InputFile sourceFile = findSourceFile(facts);
+				if (sourceFile == null) {
+					LOGGER.debug("No source file found for class {}; ignoring class", facts.getClassName());
+					continue;
+				}
+				classes.add(facts);
+				sourceFiles.add(sourceFile);
+				projectTypes.add(facts.getClassName());
+			}
+		}
+
+		for (int i = 0; i < classes.size(); i++) {
+			addClass(model, classes.get(i), sourceFiles.get(i));
+		}
+		return model;
+	}
+
+	private void readPackages(final Model<Location> model) {
+		final List<InputFile> packageInfos = filesByName.get(PACKAGE_INFO + ".java");
+		if (packageInfos == null) {
+			return;
+		}
+		for (final InputFile file : packageInfos) {
+			try {
+				final String contents = file.contents();
+				final Matcher matcher = PACKAGE_DECLARATION.matcher(blankCommentsAndLiterals(contents));
+				if (matcher.find() && projectTypes.acceptsPackage(matcher.group(1))) {
+					final int line = lineOf(contents, matcher.start(1));
+					LOGGER.debug("Adding package {} to model", matcher.group(1));
+					model.addPackage(matcher.group(1), new Location(file, file.selectLine(line)));
+				}
+			} catch (final IOException e) {
+				LOGGER.warn("Could not read contents for {}", file.relativePath(), e);
+			}
+		}
+	}
+
+	/**
+	 * Replace the comments and the contents of string and character literals
+	 * by spaces (line breaks are kept, so positions do not change).
+	 * 
+	 * *** not for external use ***
+	 *
+	 * @param contents
+	 *            source code
+	 * @return source code without comments and literals
+	 */
+	static String blankCommentsAndLiterals(final String contents) {
+		final char[] result = contents.toCharArray();
+		int i = 0;
+		while (i < result.length) {
+			final int end;
+			if (result[i] == '/' && i + 1 < result.length && result[i + 1] == '/') {
+				end = indexOf(contents, "\n", i + 2);
+			} else if (result[i] == '/' && i + 1 < result.length && result[i + 1] == '*') {
+				end = indexOf(contents, "*/", i + 2) + 2;
+			} else if (result[i] == '"' || result[i] == '\'') {
+				end = endOfLiteral(contents, i);
+			} else {
+				i++;
+				continue;
+			}
+			for (; i < end && i < result.length; i++) {
+				if (result[i] != '\n' && result[i] != '\r') {
+					result[i] = ' ';
+				}
+			}
+		}
+		return new String(result);
+	}
+
+	private static int indexOf(final String contents, final String value, final int from) {
+		final int index = contents.indexOf(value, from);
+		return index == -1 ? contents.length() : index;
+	}
+
+	private static int endOfLiteral(final String contents, final int start) {
+		final char quote = contents.charAt(start);
+		for (int i = start + 1; i < contents.length(); i++) {
+			final char current = contents.charAt(i);
+			if (current == '\\') {
+				i++;
+			} else if (current == quote || current == '\n') {
+				return i + 1;
+			}
+		}
+		return contents.length();
+	}
+
+	private static int lineOf(final String contents, final int index) {
+		int line = 1;
+		for (int i = 0; i < index; i++) {
+			if (contents.charAt(i) == '\n') {
+				line++;
+			}
+		}
+		return line;
+	}
+
+	private static List<Path> listClassFiles(final File binaryDir) {
+		if (!binaryDir.isDirectory()) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> paths = Files.walk(binaryDir.toPath())) {
+			return paths.filter(path -> path.getFileName().toString().endsWith(CLASS_FILE_EXTENSION)).sorted()
+					.collect(Collectors.toList());
+		} catch (final IOException e) {
+			LOGGER.warn("Could not list class files in {}", binaryDir, e);
+			return new ArrayList<>();
+		}
+	}
+
+	private static ClassFileFacts readClassFile(final Path classFile) {
+		final String fileName = classFile.getFileName().toString();
+		if (fileName.startsWith(PACKAGE_INFO) || fileName.startsWith(MODULE_INFO)) {
+			return null;
+		}
+
+		final ClassFileFacts facts;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(classFile))) {
+			facts = ClassFileReader.read(in);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read class file {}", classFile, e);
+			return null;
+		}
+		return facts.isSynthetic() ? null : facts;
+	}
+
+	private void addClass(final Model<Location> model, final ClassFileFacts facts, final InputFile sourceFile) {
+		if (!projectTypes.accepts(facts.getClassName())) {
+			return;
+		}
+		LOGGER.debug("Adding class {} to model", facts.getClassName());
+		final Class<Location> modelClass;
+		if (facts.isAnonymousOrLocal()) {
+			// Usages are registered on the enclosing class
+			modelClass = model.getSymbolTable().getClass(facts.getClassName());
+		} else {
+			final int line = Math.max(1, Math.min(facts.getFirstLine(), sourceFile.lines()));
+			modelClass = model.addClass(Name.of(facts.getClassName()), facts.isAbstract(),
+					new Location(sourceFile, sourceFile.selectLine(line)));
+		}
+		for (final String usage : facts.getUsages()) {
+			if (projectTypes.accepts(usage)) {
+				modelClass.addUsage(usage, facts.getReferenceCount(usage));
+			}
+		}
+	}
+
+	private InputFile findSourceFile(final ClassFileFacts facts) {
+		String sourceFileName = facts.getSourceFile();
+		if (sourceFileName == null) {
+			final String className = facts.getClassName().substring(facts.getClassName().lastIndexOf('.') + 1);
+			final int dollar = className.indexOf('$');
+			sourceFileName = (dollar == -1 ? className : className.substring(0, dollar)) + ".java";
+		}
+		final List<InputFile> candidates = filesByName.get(sourceFileName);
+		if (candidates == null) {
+			return null;
+		}
+
+		final String packagePath = facts.getPackageName().replace('.', '/');
+		final String suffix = packagePath.isEmpty() ? sourceFileName : packagePath + "/" + sourceFileName;
+		for (final InputFile candidate : candidates) {
+			final String relativePath = candidate.relativePath().replace('\\', '/');
+			if (relativePath.equals(suffix) || relativePath.endsWith("/" + suffix)) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,98 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Facts read from a single class file (see {@link ClassFileReader}).
+ */
+final class ClassFileFacts {
+
+	private final String className;
+	private final boolean enclosed;
+	private final int accessFlags;
+	private final String sourceFile;
+	private final int firstLine;
+	private final Map<String, Integer> usages;
+
+	ClassFileFacts(final String internalName, final int accessFlags, final String sourceFile, final int firstLine,
+			final Map<String, Integer> usages) {
+		this.className = ClassFileReader.toClassName(internalName);
+		this.enclosed = !className.equals(internalName.replace('/', '.'));
+		this.accessFlags = accessFlags;
+		this.sourceFile = sourceFile;
+		this.firstLine = firstLine;
+		this.usages = Collections.unmodifiableMap(usages);
+	}
+
+	/**
+	 * @return class name (a.b.C$D; anonymous and local classes are mapped to
+	 *         their enclosing class)
+	 */
+	String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return true, if the class is an anonymous or local class (mapped to its
+	 *         enclosing class)
+	 */
+	boolean isAnonymousOrLocal() {
+		return enclosed;
+	}
+
+	/**
+	 * @return package name
+	 */
+	String getPackageName() {
+		final int dot = className.lastIndexOf('.');
+		return dot == -1 ? "" : className.substring(0, dot);
+	}
+
+	/**
+	 * @return true, if the class is abstract (or an interface)
+	 */
+	boolean isAbstract() {
+		return (accessFlags & ClassFileReader.ACC_ABSTRACT) != 0;
+	}
+
+	/**
+	 * @return true, if the class is generated by the compiler
+	 */
+	boolean isSynthetic() {
+		return (accessFlags & ClassFileReader.ACC_SYNTHETIC) != 0;
+	}
+
+	/**
+	 * @return name of the source file (without path; null if unknown)
+	 */
+	String getSourceFile() {
+		return sourceFile;
+	}
+
+	/**
+	 * @return first line containing code (0 if unknown)
+	 */
+	int getFirstLine() {
+		return firstLine;
+	}
+
+	/**
+	 * @return names of the used classes (including the class itself)
+	 */
+	Set<String> getUsages() {
+		return usages.keySet();
+	}
+
+	/**
+	 * @param usage
+	 *            name of the used class
+	 * @return number of references to the used class in the class file
+	 *         (constant pool, descriptors and signatures; 0 if the class is not
+	 *         used)
+	 */
+	int getReferenceCount(final String usage) {
+		return usages.getOrDefault(usage, 0);
+	}
+}
@@ -0,0 +1,439 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming reader for (Java) class files; reads the name, access flags,
+ * source file and all referenced types of a class.
+ *
+ * Referenced types are read from the constant pool (class and method type
+ * references, field and method descriptors), the descriptors and signatures
+ * of fields, methods and local variables and the types of annotations. The
+ * instructions of methods are skipped.
+ *
+ * @see <a href="https://docs.oracle.com/javase/specs/jvms/se8/html/jvms-4.html">The
+ *      class file format</a>
+ */
+final class ClassFileReader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	/**
+	 * Access flag: abstract (also set for interfaces).
+	 */
+	static final int ACC_ABSTRACT = 0x0400;
+	/**
+	 * Access flag: synthetic.
+	 */
+	static final int ACC_SYNTHETIC = 0x1000;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private final DataInput in;
+	private String[] utf8;
+
+	private String name;
+	private int accessFlags;
+	private String sourceFile;
+	private int firstLine;
+	private final Map<String, Integer> usages = new LinkedHashMap<>();
+
+	private ClassFileReader(final InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * Read a class file.
+	 *
+	 * @param in
+	 *            input (not closed)
+	 * @return facts of the class
+	 * @throws IOException
+	 *             on read errors or if the input is not a class file
+	 */
+	static ClassFileFacts read(final InputStream in) throws IOException {
+		return new ClassFileReader(in).read();
+	}
+
+	private ClassFileFacts read() throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a class file");
+		}
+		// minor and major version
+		in.readInt();
+
+		final int[] classNames = readConstantPool();
+
+		accessFlags = in.readUnsignedShort();
+		name = utf8[classNames[in.readUnsignedShort()]];
+		// super class and interfaces are class constants
+		in.readUnsignedShort();
+		skip(in.readUnsignedShort() * 2);
+
+		// fields and methods
+		readMembers();
+		readMembers();
+		// class attributes
+		readAttributes();
+
+		return new ClassFileFacts(name, accessFlags, sourceFile, firstLine, usages);
+	}
+
+	/**
+	 * Read the constant pool; records all referenced classes and type
+	 * descriptors.
+	 *
+	 * @return name index for each class constant (by constant index)
+	 */
+	private int[] readConstantPool() throws IOException {
+		final int count = in.readUnsignedShort();
+		utf8 = new String[count];
+		final int[] classNames = new int[count];
+		final int[] descriptors = new int[count];
+		int descriptorCount = 0;
+
+		for (int index = 1; index < count; index++) {
+			final int tag = in.readUnsignedByte();
+			switch (tag) {
+			case CONSTANT_UTF8:
+				utf8[index] = in.readUTF();
+				break;
+			case CONSTANT_CLASS:
+				classNames[index] = in.readUnsignedShort();
+				break;
+			case CONSTANT_NAME_AND_TYPE:
+				in.readUnsignedShort();
+				descriptors[descriptorCount++] = in.readUnsignedShort();
+				break;
+			case CONSTANT_METHOD_TYPE:
+				descriptors[descriptorCount++] = in.readUnsignedShort();
+				break;
+			case CONSTANT_STRING:
+			case CONSTANT_MODULE:
+			case CONSTANT_PACKAGE:
+				skip(2);
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				skip(3);
+				break;
+			case CONSTANT_INTEGER:
+			case CONSTANT_FLOAT:
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_DYNAMIC:
+			case CONSTANT_INVOKE_DYNAMIC:
+				skip(4);
+				break;
+			case CONSTANT_LONG:
+			case CONSTANT_DOUBLE:
+				skip(8);
+				// takes two entries in the constant pool
+				index++;
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag + " at index " + index);
+			}
+		}
+
+		for (int index = 1; index < count; index++) {
+			if (classNames[index] != 0) {
+				addClassConstant(utf8[classNames[index]]);
+			}
+		}
+		for (int i = 0; i < descriptorCount; i++) {
+			addSignature(utf8[descriptors[i]]);
+		}
+		return classNames;
+	}
+
+	private void readMembers() throws IOException {
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			// access flags, name
+			skip(4);
+			addSignature(utf8[in.readUnsignedShort()]);
+			readAttributes();
+		}
+	}
+
+	private void readAttributes() throws IOException {
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			final String attributeName = utf8[in.readUnsignedShort()];
+			final int length = in.readInt();
+			switch (attributeName) {
+			case "SourceFile":
+				sourceFile = utf8[in.readUnsignedShort()];
+				break;
+			case "Signature":
+				addSignature(utf8[in.readUnsignedShort()]);
+				break;
+			case "Code":
+				readCode();
+				break;
+			case "LineNumberTable":
+				readLineNumbers();
+				break;
+			case "LocalVariableTable":
+			case "LocalVariableTypeTable":
+				readLocalVariables();
+				break;
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations":
+				readAnnotations();
+				break;
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations":
+				final int parameters = in.readUnsignedByte();
+				for (int parameter = 0; parameter < parameters; parameter++) {
+					readAnnotations();
+				}
+				break;
+			default:
+				skip(length);
+				break;
+			}
+		}
+	}
+
+	private void readCode() throws IOException {
+		// max stack, max locals
+		skip(4);
+		skip(in.readInt());
+		// exception table (catch types are class constants)
+		skip(in.readUnsignedShort() * 8);
+		readAttributes();
+	}
+
+	private void readLineNumbers() throws IOException {
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			// start pc
+			skip(2);
+			final int line = in.readUnsignedShort();
+			if (firstLine == 0 || line < firstLine) {
+				firstLine = line;
+			}
+		}
+	}
+
+	private void readLocalVariables() throws IOException {
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			// start pc, length, name
+			skip(6);
+			addSignature(utf8[in.readUnsignedShort()]);
+			// index
+			skip(2);
+		}
+	}
+
+	private void readAnnotations() throws IOException {
+		final int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			readAnnotation();
+		}
+	}
+
+	private void readAnnotation() throws IOException {
+		addSignature(utf8[in.readUnsignedShort()]);
+		final int pairs = in.readUnsignedShort();
+		for (int i = 0; i < pairs; i++) {
+			// element name
+			skip(2);
+			readElementValue();
+		}
+	}
+
+	private void readElementValue() throws IOException {
+		final int tag = in.readUnsignedByte();
+		switch (tag) {
+		case 'e':
+			addSignature(utf8[in.readUnsignedShort()]);
+			skip(2);
+			break;
+		case 'c':
+			addSignature(utf8[in.readUnsignedShort()]);
+			break;
+		case '@':
+			readAnnotation();
+			break;
+		case '[':
+			final int values = in.readUnsignedShort();
+			for (int i = 0; i < values; i++) {
+				readElementValue();
+			}
+			break;
+		default:
+			// constant value
+			skip(2);
+			break;
+		}
+	}
+
+	private void skip(final int bytes) throws IOException {
+		if (in.skipBytes(bytes) != bytes) {
+			throw new IOException("Unexpected end of class file");
+		}
+	}
+
+	/**
+	 * Add a class constant (an internal name or an array descriptor).
+	 */
+	private void addClassConstant(final String classConstant) {
+		if (classConstant.startsWith("[")) {
+			addSignature(classConstant);
+		} else {
+			addUsage(classConstant);
+		}
+	}
+
+	/**
+	 * Add all classes in a descriptor or signature.
+	 */
+	private void addSignature(final String signature) {
+		int index = 0;
+		if (signature.startsWith("<")) {
+			index = readFormalTypeParameters(signature, 1);
+		}
+		while (index < signature.length()) {
+			final char c = signature.charAt(index);
+			if (c == 'L' || c == 'T') {
+				index = readType(signature, index);
+			} else {
+				index++;
+			}
+		}
+	}
+
+	private int readFormalTypeParameters(final String signature, final int start) {
+		int index = start;
+		while (index < signature.length() && signature.charAt(index) != '>') {
+			// identifier
+			index = signature.indexOf(':', index);
+			if (index == -1) {
+				return signature.length();
+			}
+			// class bound (may be empty) and interface bounds
+			while (index < signature.length() && signature.charAt(index) == ':') {
+				index++;
+				if (index < signature.length() && signature.charAt(index) != ':'
+						&& signature.charAt(index) != '>') {
+					index = readType(signature, index);
+				}
+			}
+		}
+		return index + 1;
+	}
+
+	private int readType(final String signature, final int start) {
+		if (start >= signature.length()) {
+			return start;
+		}
+		switch (signature.charAt(start)) {
+		case 'L':
+			return readClassType(signature, start + 1);
+		case 'T':
+			return endOfType(signature, start);
+		case '[':
+			return readType(signature, start + 1);
+		default:
+			return start + 1;
+		}
+	}
+
+	private int readClassType(final String signature, final int start) {
+		int index = start;
+		String className = null;
+		while (index < signature.length()) {
+			final int nameStart = index;
+			while (index < signature.length() && "<.;".indexOf(signature.charAt(index)) == -1) {
+				index++;
+			}
+			final String simpleName = signature.substring(nameStart, index);
+			className = className == null ? simpleName : className + "$" + simpleName;
+			addUsage(className);
+
+			if (index < signature.length() && signature.charAt(index) == '<') {
+				index = readTypeArguments(signature, index + 1);
+			}
+			if (index < signature.length() && signature.charAt(index) == '.') {
+				index++;
+			} else {
+				break;
+			}
+		}
+		// ';'
+		return index + 1;
+	}
+
+	private int readTypeArguments(final String signature, final int start) {
+		int index = start;
+		while (index < signature.length() && signature.charAt(index) != '>') {
+			final char c = signature.charAt(index);
+			if (c == '*') {
+				index++;
+			} else if (c == '+' || c == '-') {
+				index = readType(signature, index + 1);
+			} else {
+				index = readType(signature, index);
+			}
+		}
+		return index + 1;
+	}
+
+	private static int endOfType(final String signature, final int start) {
+		final int end = signature.indexOf(';', start);
+		return end == -1 ? signature.length() : end + 1;
+	}
+
+	private void addUsage(final String internalName) {
+		if (!internalName.isEmpty()) {
+			usages.merge(toClassName(internalName), 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Convert an internal name (a/b/C$D) to a class name (a.b.C$D);
+	 * anonymous and local classes (a/b/C$1, a/b/C$1Local) are mapped to their
+	 * enclosing class.
+	 *
+	 * @param internalName
+	 *            internal name
+	 * @return class name
+	 */
+	static String toClassName(final String internalName) {
+		String result = internalName;
+		int dollar = result.indexOf('$');
+		while (dollar != -1) {
+			if (dollar + 1 < result.length() && Character.isDigit(result.charAt(dollar + 1))) {
+				result = result.substring(0, dollar);
+				break;
+			}
+			dollar = result.indexOf('$', dollar + 1);
+		}
+		return result.replace('/', '.');
+	}
+}
@@ -1,6 +1,15 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FileSystem;
@@ -24,12 +33,11 @@ import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.Modifier;
 import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.PackageDeclarationTree;
 import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.Tree;
 import nl.futureedge.sonar.plugin.packageanalyzer.java.ast.parser.JavaParser;
-import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.SemanticModel;
-import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
-import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageAnalyzerRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
 
 /**
  * Java sensor.
@@ -38,6 +46,8 @@ public final class JavaSensor extends AbstractSensor {
 
 	private static final Logger LOGGER = Loggers.get(JavaSensor.class);
 	private static final String LANGUAGE = "java";
+	private static final String CACHE_FILE = "package-analyzer/source-facts.cache";
+	private static final int CHUNKS_PER_THREAD = 4;
 
 	private final Settings settings;
 
@@ -47,56 +57,220 @@ public final class JavaSensor extends AbstractSensor {
 	}
 
 	@Override
-	protected Model<Location> buildModel(final SensorContext context) {
-		// Result
-		final Model<Location> model = new Model<>();
-		final ModelCreatingTreeVisitor visitor = new ModelCreatingTreeVisitor(model);
-
-		// Read all source files
-		final ActionParser<Tree> parser = JavaParser.createParser();
-		final JavaClasspath javaClassPath = new JavaClasspath(settings, context.fileSystem());
+	protected Model<Location> buildModel(final SensorContext context, final Statistics statistics) {
 		final FileSystem fs = context.fileSystem();
+		final JavaClasspath classpath = new JavaClasspath(settings, fs);
 
 		// Scan only main files for the 'current' language.
 		final FilePredicate filesToScan = fs.predicates().and(fs.predicates().hasType(Type.MAIN),
 				fs.predicates().hasLanguage(LANGUAGE));
+		final List<InputFile> files = new ArrayList<>();
+		fs.inputFiles(filesToScan).forEach(files::add);
+		statistics.addCount(Statistics.Counter.FILES, files.size());
 
-		for (final InputFile file : fs.inputFiles(filesToScan)) {
-			// Parse source
-			LOGGER.debug("Analyzing source file: {}", file.relativePath());
-			try {
-				visitor.on(file);
-				final Tree tree = parser.parse(file.contents());
+		if (PackageAnalyzerProperties.isBytecodeInput(settings)) {
+			// Read class files
+			final long start = System.nanoTime();
+			final Model<Location> model = new BytecodeModelBuilder(files, createProjectTypes())
+					.build(classpath.getBinaryDirs());
+			statistics.addTime(Statistics.Phase.READ_CLASS_FILES, System.nanoTime() - start);
+			return model;
+		}
 
-				// Create semantic model
-				LOGGER.debug("Creating semantic model ...");
-				SemanticModel.createFor((CompilationUnitTree) tree, javaClassPath.getElements());
+		// Result
+		final Model<Location> model = new Model<>();
 
-				// Read into model
-				LOGGER.debug("Reading model ...");
-				tree.accept(visitor);
+		// Read all source files
+		final List<File> javaClassPath = classpath.getElements();
+
+		// Facts of unchanged files are read from the cache
+		final SourceFactsCache cache = PackageAnalyzerProperties.isCacheEnabled(settings)
+				? new SourceFactsCache(new File(fs.workDir(), CACHE_FILE), javaClassPath)
+				: SourceFactsCache.disabled();
+		cache.load();
 
-			} catch (final IOException e) {
-				LOGGER.warn("Could not read contents for {}", file.relativePath(), e);
+		// The classpath is opened once for all source files
+		final int threads = Math.min(PackageAnalyzerProperties.getThreads(settings), Math.max(1, files.size()));
+		try (SemanticModelFactory semanticModelFactory = new SemanticModelFactory(javaClassPath)) {
+			if (threads == 1) {
+				final ActionParser<Tree> parser = JavaParser.createParser();
+				final List<SourceFacts> facts = readFacts(parser, semanticModelFactory, cache, files, statistics);
+				readInvalidatedFiles(parser, semanticModelFactory, cache, files, facts, statistics);
+				applyFacts(files, facts, indexProjectTypes(createProjectTypes(), facts), model);
+			} else {
+				readFiles(threads, semanticModelFactory, cache, files, model, statistics);
 			}
+		} catch (final IOException e) {
+			LOGGER.warn("Could not close classpath", e);
 		}
+
+		cache.save();
 		return model;
 	}
 
-	private static final class ModelCreatingTreeVisitor extends BaseTreeVisitor {
-		private final Model<Location> model;
-		private InputFile on;
-		private Class<Location> modelClass;
+	/**
+	 * Parse the source files concurrently; the files are divided in
+	 * consecutive chunks and the facts of each chunk are read by a single
+	 * thread (each thread uses its own parser and visitor). When all facts are
+	 * read (and the invalidated cached files are parsed again in the calling
+	 * thread), each chunk is applied to a partial model; the partial models are
+	 * merged into the model in the calling thread, in the order of the files.
+	 */
+	private void readFiles(final int threads, final SemanticModelFactory semanticModelFactory,
+			final SourceFactsCache cache, final List<InputFile> files, final Model<Location> model,
+			final Statistics statistics) {
+		LOGGER.debug("Analyzing source files using {} threads", threads);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final ThreadLocal<ActionParser<Tree>> parsers = ThreadLocal.withInitial(JavaParser::createParser);
+			final int chunks = threads * CHUNKS_PER_THREAD;
+			final int chunkSize = (files.size() + chunks - 1) / chunks;
 
-		private boolean inPackageName;
-		private StringBuilder packageName = new StringBuilder();
+			final List<Future<List<SourceFacts>>> readResults = new ArrayList<>(chunks);
+			for (int from = 0; from < files.size(); from += chunkSize) {
+				final List<InputFile> chunk = files.subList(from, Math.min(from + chunkSize, files.size()));
+				readResults.add(executor
+						.submit(() -> readFacts(parsers.get(), semanticModelFactory, cache, chunk, statistics)));
+			}
+			final List<SourceFacts> facts = new ArrayList<>(files.size());
+			for (final Future<List<SourceFacts>> readResult : readResults) {
+				facts.addAll(readResult.get());
+			}
+			readInvalidatedFiles(JavaParser.createParser(), semanticModelFactory, cache, files, facts, statistics);
+
+			final ProjectTypes projectTypes = indexProjectTypes(createProjectTypes(), facts);
+			final List<Future<Model<Location>>> applyResults = new ArrayList<>(chunks);
+			for (int from = 0; from < files.size(); from += chunkSize) {
+				final int to = Math.min(from + chunkSize, files.size());
+				final List<InputFile> chunk = files.subList(from, to);
+				final List<SourceFacts> chunkFacts = facts.subList(from, to);
+				applyResults.add(
+						executor.submit(() -> applyFacts(chunk, chunkFacts, projectTypes, new Model<Location>())));
+			}
+			for (final Future<Model<Location>> applyResult : applyResults) {
+				model.merge(applyResult.get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while analyzing source files", e);
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException("Could not analyze source files", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static List<SourceFacts> readFacts(final ActionParser<Tree> parser,
+			final SemanticModelFactory semanticModelFactory, final SourceFactsCache cache, final List<InputFile> files,
+			final Statistics statistics) {
+		final List<SourceFacts> result = new ArrayList<>(files.size());
+		for (final InputFile file : files) {
+			result.add(readFile(parser, semanticModelFactory, cache, file, true, statistics));
+		}
+		return result;
+	}
+
+	/**
+	 * Parse the cached files again that could resolve to other types, because
+	 * types were added or removed in the changed files.
+	 */
+	private static void readInvalidatedFiles(final ActionParser<Tree> parser,
+			final SemanticModelFactory semanticModelFactory, final SourceFactsCache cache, final List<InputFile> files,
+			final List<SourceFacts> facts, final Statistics statistics) {
+		final Set<String> declaredTypes = new HashSet<>();
+		for (final SourceFacts fileFacts : facts) {
+			declaredTypes.addAll(fileFacts.getClassNames());
+		}
+		final Set<String> invalidated = cache.invalidate(declaredTypes);
+		for (int i = 0; i < files.size(); i++) {
+			if (invalidated.contains(files.get(i).relativePath())) {
+				facts.set(i, readFile(parser, semanticModelFactory, cache, files.get(i), false, statistics));
+			}
+		}
+		statistics.addCount(Statistics.Counter.FILES_CACHED, cache.getReplayedCount());
+	}
+
+	private ProjectTypes createProjectTypes() {
+		return new ProjectTypes(
+				new PackageFilter(PackageAnalyzerProperties.getPackagesInclude(settings),
+						PackageAnalyzerProperties.getPackagesExclude(settings)),
+				PackageAnalyzerProperties.isLibrariesIncluded(settings));
+	}
+
+	private static ProjectTypes indexProjectTypes(final ProjectTypes projectTypes, final List<SourceFacts> facts) {
+		for (final SourceFacts fileFacts : facts) {
+			fileFacts.addClassesTo(projectTypes);
+		}
+		LOGGER.debug("Types declared in project: {}", projectTypes.size());
+		return projectTypes;
+	}
+
+	private static Model<Location> applyFacts(final List<InputFile> files, final List<SourceFacts> facts,
+			final ProjectTypes projectTypes, final Model<Location> model) {
+		for (int i = 0; i < files.size(); i++) {
+			facts.get(i).applyTo(model, files.get(i), projectTypes);
+		}
+		return model;
+	}
+
+	private static SourceFacts readFile(final ActionParser<Tree> parser,
+			final SemanticModelFactory semanticModelFactory, final SourceFactsCache cache, final InputFile file,
+			final boolean useCache, final Statistics statistics) {
+		final SourceFacts facts = new SourceFacts();
+
+		// Parse source
+		LOGGER.debug("Analyzing source file: {}", file.relativePath());
+		try {
+			final String contents = file.contents();
+			final String hash = cache.isEnabled() ? SourceFactsCache.hash(contents) : null;
+			final SourceFacts cachedFacts = useCache ? cache.get(file.relativePath(), hash) : null;
+			if (cachedFacts != null) {
+				LOGGER.debug("Source file unchanged; using cached facts");
+				cache.put(file.relativePath(), hash, cachedFacts);
+				return cachedFacts;
+			}
+
+			long start = System.nanoTime();
+			final Tree tree = parser.parse(contents);
+			statistics.addTime(Statistics.Phase.PARSE, System.nanoTime() - start);
+			statistics.addCount(Statistics.Counter.FILES_PARSED, 1);
 
-		public ModelCreatingTreeVisitor(final Model<Location> model) {
-			this.model = model;
+			// Create semantic model
+			LOGGER.debug("Creating semantic model ...");
+			start = System.nanoTime();
+			semanticModelFactory.createFor((CompilationUnitTree) tree);
+			statistics.addTime(Statistics.Phase.SEMANTIC_MODEL, System.nanoTime() - start);
+
+			// Read facts
+			LOGGER.debug("Reading model ...");
+			start = System.nanoTime();
+			final FactsCollectingTreeVisitor visitor = new FactsCollectingTreeVisitor(file, facts);
+			tree.accept(visitor);
+			statistics.addTime(Statistics.Phase.VISIT, System.nanoTime() - start);
+			statistics.addCount(Statistics.Counter.IDENTIFIERS, visitor.identifiers);
+			if (!facts.getUnassignedUsages().isEmpty()) {
+				LOGGER.debug("Usages outside a class declaration in {} are ignored: {}", file.relativePath(),
+						facts.getUnassignedUsages().keySet());
+			}
+			cache.put(file.relativePath(), hash, facts);
+
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read contents for {}", file.relativePath(), e);
 		}
+		return facts;
+	}
+
+	private static final class FactsCollectingTreeVisitor extends BaseTreeVisitor {
+		private final InputFile on;
+		private final SourceFacts facts;
 
-		protected void on(final InputFile on) {
+		private boolean inPackageName;
+		private StringBuilder packageName = new StringBuilder();
+		private long identifiers;
+
+		public FactsCollectingTreeVisitor(final InputFile on, final SourceFacts facts) {
 			this.on = on;
+			this.facts = facts;
 		}
 
 		@Override
@@ -104,20 +278,21 @@ public final class JavaSensor extends AbstractSensor {
 			LOGGER.debug("Package tree: {}", tree);
 
 			if (on.relativePath().endsWith("package-info.java")) {
+				// Annotations are usages, not part of the package name
+				scan(tree.annotations());
 				inPackageName = true;
 				packageName.setLength(0);
-				super.visitPackage(tree);
+				scan(tree.packageName());
 				inPackageName = false;
 
 				LOGGER.debug("Adding package {} to model", packageName);
-				final Location location = new Location(on, on.newRange(tree.firstToken().line(),
-						tree.firstToken().column(), tree.lastToken().line(), tree.lastToken().column()));
-				model.addPackage(packageName.toString(), location);
+				facts.addPackage(packageName.toString(), rangeOf(tree));
 			}
 		}
 
 		@Override
 		public void visitIdentifier(final IdentifierTree tree) {
+			identifiers++;
 			if (inPackageName) {
 				if (packageName.length() > 0) {
 					packageName.append('.');
@@ -129,7 +304,7 @@ public final class JavaSensor extends AbstractSensor {
 				if (!symbol.isUnknown() && symbol.isTypeSymbol()) {
 					final String fqn = symbol.type().fullyQualifiedName();
 					LOGGER.debug("Adding class usage {}", fqn);
-					modelClass.addUsage(Name.of(fqn));
+					facts.addUsage(fqn);
 				}
 			}
 		}
@@ -140,14 +315,15 @@ public final class JavaSensor extends AbstractSensor {
 			final TypeSymbol symbol = tree.symbol();
 			if (!symbol.isUnknown()) {
 				LOGGER.debug("Adding class {} to model", symbol.type().fullyQualifiedName());
-				final Name name = Name.of(symbol.type().fullyQualifiedName());
 				final boolean isAbstract = tree.modifiers().contains(Modifier.ABSTRACT);
-				final Location location = new Location(on, on.newRange(tree.firstToken().line(),
-						tree.firstToken().column(), tree.lastToken().line(), tree.lastToken().column()));
-
-				modelClass = model.addClass(name, isAbstract, location);
+				facts.addClass(symbol.type().fullyQualifiedName(), isAbstract, rangeOf(tree));
 			}
 			super.visitClass(tree);
 		}
+
+		private static SourceFacts.TextRange rangeOf(final Tree tree) {
+			return new SourceFacts.TextRange(tree.firstToken().line(), tree.firstToken().column(),
+					tree.lastToken().line(), tree.lastToken().column());
+		}
 	}
 }
@@ -0,0 +1,120 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Include/exclude filter on package names.
+ *
+ * A pattern is a package name (optionally followed by {@code .*}) and matches
+ * the package and all its sub packages. When a package matches multiple
+ * patterns, the longest (most specific) pattern decides; when include and
+ * exclude patterns are equal, the exclude pattern decides. Packages that do not
+ * match any pattern are accepted when no include patterns are configured.
+ *
+ * The patterns are compiled into a trie on the segments of the package names,
+ * so a lookup only visits the segments of the package name.
+ *
+ * Immutable (and thread-safe).
+ */
+final class PackageFilter {
+
+	/**
+	 * Filter that accepts all packages.
+	 */
+	static final PackageFilter ALL = new PackageFilter(new String[0], new String[0]);
+
+	private static final int NONE = 0;
+	private static final int INCLUDE = 1;
+	private static final int EXCLUDE = 2;
+
+	private final Node root = new Node();
+	private final boolean acceptByDefault;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param includes
+	 *            include patterns (empty to include all packages)
+	 * @param excludes
+	 *            exclude patterns
+	 */
+	PackageFilter(final String[] includes, final String[] excludes) {
+		boolean hasIncludes = false;
+		for (final String include : includes) {
+			hasIncludes |= add(include, INCLUDE);
+		}
+		for (final String exclude : excludes) {
+			add(exclude, EXCLUDE);
+		}
+		acceptByDefault = !hasIncludes;
+	}
+
+	private boolean add(final String pattern, final int mark) {
+		String packageName = pattern.trim();
+		if (packageName.endsWith("*")) {
+			packageName = packageName.substring(0, packageName.length() - 1);
+		}
+		if (packageName.endsWith(".")) {
+			packageName = packageName.substring(0, packageName.length() - 1);
+		}
+		if (packageName.isEmpty()) {
+			return false;
+		}
+
+		Node node = root;
+		for (final String segment : packageName.split("\\.")) {
+			node = node.children.computeIfAbsent(segment, key -> new Node());
+		}
+		node.mark = Math.max(node.mark, mark);
+		return true;
+	}
+
+	/**
+	 * Is the class accepted?
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified class name
+	 * @return true, if the package of the class is accepted
+	 */
+	boolean accepts(final String fullyQualifiedName) {
+		return accepts(fullyQualifiedName, Math.max(0, fullyQualifiedName.lastIndexOf('.')));
+	}
+
+	/**
+	 * Is the package accepted?
+	 *
+	 * @param packageName
+	 *            package name
+	 * @return true, if the package is accepted
+	 */
+	boolean acceptsPackage(final String packageName) {
+		return accepts(packageName, packageName.length());
+	}
+
+	private boolean accepts(final String name, final int length) {
+		int decision = NONE;
+		Node node = root;
+		int start = 0;
+		while (start < length) {
+			int end = name.indexOf('.', start);
+			if (end == -1 || end > length) {
+				end = length;
+			}
+			node = node.children.get(name.substring(start, end));
+			if (node == null) {
+				break;
+			}
+			if (node.mark != NONE) {
+				decision = node.mark;
+			}
+			start = end + 1;
+		}
+		return decision == NONE ? acceptByDefault : decision == INCLUDE;
+	}
+
+	private static final class Node {
+		private final Map<String, Node> children = new HashMap<>();
+		private int mark = NONE;
+	}
+}
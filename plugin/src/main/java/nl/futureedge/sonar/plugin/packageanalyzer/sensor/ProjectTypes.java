@@ -0,0 +1,84 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Index of the types (fully qualified names) declared in the main sources of
+ * the project; decides which classes and usages are added to the model.
+ *
+ * Classes in packages that are not accepted by the package filter are not added
+ * to the model. Unless library types are included, usages of types that are not
+ * declared in the project (library types) are not added to the model either,
+ * so no packages and classes are created for them.
+ *
+ * Not thread-safe while types are added; lookups are thread-safe once the index
+ * is complete.
+ */
+final class ProjectTypes {
+
+	private final PackageFilter packageFilter;
+	private final boolean includeLibraries;
+	private final Set<String> types = new HashSet<>();
+
+	/**
+	 * Constructor; accepts all project types.
+	 */
+	ProjectTypes() {
+		this(PackageFilter.ALL, false);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param packageFilter
+	 *            package filter
+	 * @param includeLibraries
+	 *            should usages of library types be added to the model?
+	 */
+	ProjectTypes(final PackageFilter packageFilter, final boolean includeLibraries) {
+		this.packageFilter = packageFilter;
+		this.includeLibraries = includeLibraries;
+	}
+
+	/**
+	 * Register a type declared in the project.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name
+	 */
+	void add(final String fullyQualifiedName) {
+		if (packageFilter.accepts(fullyQualifiedName)) {
+			types.add(fullyQualifiedName);
+		}
+	}
+
+	/**
+	 * Should the (usage of the) type be added to the model?
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name
+	 * @return true, if the type is accepted
+	 */
+	boolean accepts(final String fullyQualifiedName) {
+		return includeLibraries ? packageFilter.accepts(fullyQualifiedName) : types.contains(fullyQualifiedName);
+	}
+
+	/**
+	 * Should the package (declaration) be added to the model?
+	 *
+	 * @param packageName
+	 *            package name
+	 * @return true, if the package is accepted
+	 */
+	boolean acceptsPackage(final String packageName) {
+		return packageFilter.acceptsPackage(packageName);
+	}
+
+	/**
+	 * @return number of (accepted) types declared in the project
+	 */
+	int size() {
+		return types.size();
+	}
+}
@@ -0,0 +1,246 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.CompilationUnitTree;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.bytecode.ClassLoaderBuilder;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.BytecodeCompleter;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.FirstPass;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.LabelsVisitor;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.ParametrizedTypeCache;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.Resolve;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.SemanticModel;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.Symbols;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.resolve.TypeAndReferenceSolver;
+
+/**
+ * Creates the semantic models of the source files using a single class loader
+ * for the classpath (per analysis).
+ *
+ * {@link SemanticModel#createFor(CompilationUnitTree, List)} opens the complete
+ * classpath for every source file (and never closes it). This factory opens
+ * the classpath once and keeps the bytecode of recently read library classes
+ * (and the names of missing classes) in a bounded cache, so the same library
+ * types are not read again for each file. The symbols themselves are still
+ * created per file, as they refer to the classes of the file.
+ *
+ * The shared class loader is installed in the (internal) bytecode completer of
+ * the Java frontend; when that is not possible the factory falls back to
+ * {@link SemanticModel#createFor(CompilationUnitTree, List)}.
+ *
+ * Thread-safe.
+ */
+final class SemanticModelFactory implements Closeable {
+
+	private static final Logger LOGGER = Loggers.get(SemanticModelFactory.class);
+
+	/**
+	 * Maximum number of classes kept in the cache.
+	 */
+	static final int MAXIMUM_CACHED_CLASSES = 2048;
+
+	private final List<File> classpath;
+	private final ClassLoader classpathLoader;
+	private final CachingClassLoader sharedLoader;
+
+	private final Constructor<SemanticModel> semanticModelConstructor;
+	private final Field classLoaderField;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param classpath
+	 *            classpath
+	 */
+	SemanticModelFactory(final List<File> classpath) {
+		this.classpath = classpath;
+
+		Constructor<SemanticModel> constructor = null;
+		Field field = null;
+		try {
+			constructor = SemanticModel.class.getDeclaredConstructor(BytecodeCompleter.class);
+			constructor.setAccessible(true);
+			field = BytecodeCompleter.class.getDeclaredField("classLoader");
+			field.setAccessible(true);
+		} catch (final ReflectiveOperationException | SecurityException e) {
+			LOGGER.warn("Could not share the classpath between source files; using a classpath per source file", e);
+			constructor = null;
+			field = null;
+		}
+		semanticModelConstructor = constructor;
+		classLoaderField = field;
+
+		if (classLoaderField == null) {
+			classpathLoader = null;
+			sharedLoader = null;
+		} else {
+			classpathLoader = ClassLoaderBuilder.create(classpath);
+			sharedLoader = new CachingClassLoader(classpathLoader, MAXIMUM_CACHED_CLASSES);
+		}
+	}
+
+	/**
+	 * @return true, if the classpath is shared between source files
+	 */
+	boolean isShared() {
+		return sharedLoader != null;
+	}
+
+	/**
+	 * Create the semantic model for a source file (the symbols and types are
+	 * registered on the tree).
+	 *
+	 * @param tree
+	 *            compilation unit
+	 * @return semantic model
+	 */
+	SemanticModel createFor(final CompilationUnitTree tree) {
+		if (sharedLoader == null) {
+			return SemanticModel.createFor(tree, classpath);
+		}
+
+		// Same steps as SemanticModel.createFor, using the shared class loader
+		final ParametrizedTypeCache parametrizedTypeCache = new ParametrizedTypeCache();
+		final BytecodeCompleter bytecodeCompleter = new BytecodeCompleter(classpath, parametrizedTypeCache);
+		final SemanticModel semanticModel;
+		try {
+			classLoaderField.set(bytecodeCompleter, sharedLoader);
+			semanticModel = semanticModelConstructor.newInstance(bytecodeCompleter);
+		} catch (final InvocationTargetException e) {
+			throw new IllegalStateException("Could not create semantic model", e.getCause());
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create semantic model", e);
+		}
+
+		final Symbols symbols = new Symbols(bytecodeCompleter);
+		final Resolve resolve = new Resolve(symbols, bytecodeCompleter, parametrizedTypeCache);
+		final TypeAndReferenceSolver typeAndReferenceSolver = new TypeAndReferenceSolver(semanticModel, symbols,
+				resolve, parametrizedTypeCache);
+		try {
+			new FirstPass(semanticModel, symbols, resolve, parametrizedTypeCache, typeAndReferenceSolver)
+					.visitCompilationUnit(tree);
+			typeAndReferenceSolver.visitCompilationUnit(tree);
+			new LabelsVisitor(semanticModel).visitCompilationUnit(tree);
+		} finally {
+			SemanticModel.handleMissingTypes(tree);
+		}
+		return semanticModel;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (sharedLoader != null) {
+			LOGGER.debug("Classpath cache: {} hits, {} misses", sharedLoader.getHits(), sharedLoader.getMisses());
+		}
+		if (classpathLoader instanceof Closeable) {
+			((Closeable) classpathLoader).close();
+		}
+	}
+
+	/**
+	 * Class loader that keeps the bytecode of recently read classes (and
+	 * missing classes) in a bounded (least recently used) cache.
+	 */
+	static final class CachingClassLoader extends ClassLoader {
+		private static final byte[] MISSING = new byte[0];
+		private static final String CLASS_FILE_EXTENSION = ".class";
+
+		private final ClassLoader delegate;
+		private final Map<String, byte[]> classes;
+		private long hits;
+		private long misses;
+
+		CachingClassLoader(final ClassLoader delegate, final int maximumClasses) {
+			super(null);
+			this.delegate = delegate;
+			this.classes = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+					return size() > maximumClasses;
+				}
+			};
+		}
+
+		@Override
+		public URL getResource(final String name) {
+			return delegate.getResource(name);
+		}
+
+		@Override
+		public InputStream getResourceAsStream(final String name) {
+			if (!name.endsWith(CLASS_FILE_EXTENSION)) {
+				return delegate.getResourceAsStream(name);
+			}
+
+			byte[] bytecode;
+			synchronized (classes) {
+				bytecode = classes.get(name);
+				if (bytecode == null) {
+					misses++;
+				} else {
+					hits++;
+				}
+			}
+			if (bytecode == null) {
+				bytecode = read(name);
+				synchronized (classes) {
+					classes.put(name, bytecode);
+				}
+			}
+			return bytecode == MISSING ? null : new ByteArrayInputStream(bytecode);
+		}
+
+		private byte[] read(final String name) {
+			try (InputStream in = delegate.getResourceAsStream(name)) {
+				if (in == null) {
+					return MISSING;
+				}
+				final ByteArrayOutputStream result = new ByteArrayOutputStream();
+				final byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					result.write(buffer, 0, read);
+				}
+				return result.toByteArray();
+			} catch (final IOException e) {
+				LOGGER.debug("Could not read class {}", name, e);
+				return MISSING;
+			}
+		}
+
+		/**
+		 * @return number of lookups answered from the cache
+		 */
+		long getHits() {
+			synchronized (classes) {
+				return hits;
+			}
+		}
+
+		/**
+		 * @return number of lookups read from the classpath
+		 */
+		long getMisses() {
+			synchronized (classes) {
+				return misses;
+			}
+		}
+	}
+}
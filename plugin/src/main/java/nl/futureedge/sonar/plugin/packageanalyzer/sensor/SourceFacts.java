@@ -0,0 +1,292 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sonar.api.batch.fs.InputFile;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
+
+/**
+ * Facts (packages, classes and usages, with the number of references) read
+ * from a single source file.
+ *
+ * Facts can be read concurrently (they do not refer to the model or the input
+ * file) and are applied to a (partial) model by a single thread. Facts can be
+ * written to (and read from) a cache (see {@link SourceFactsCache}).
+ */
+final class SourceFacts {
+
+	private String packageName;
+	private TextRange packageRange;
+	private final List<ClassFacts> classes = new ArrayList<>();
+	// Usages before the first class declaration (imports, annotations of the
+	// package declaration)
+	private final Map<String, Integer> fileUsages = new LinkedHashMap<>();
+
+	/**
+	 * Register a package declaration (package-info.java).
+	 *
+	 * @param name
+	 *            package name
+	 * @param range
+	 *            location in the file
+	 */
+	void addPackage(final String name, final TextRange range) {
+		packageName = name;
+		packageRange = range;
+	}
+
+	/**
+	 * Register a class declaration; following usages are registered on this
+	 * class. Usages before the first class declaration are registered on the
+	 * first class (the primary type of the file).
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name
+	 * @param isAbstract
+	 *            is the class abstract?
+	 * @param range
+	 *            location in the file
+	 */
+	void addClass(final String fullyQualifiedName, final boolean isAbstract, final TextRange range) {
+		final ClassFacts classFacts = new ClassFacts(fullyQualifiedName, isAbstract, range);
+		if (classes.isEmpty()) {
+			classFacts.usages.putAll(fileUsages);
+			fileUsages.clear();
+		}
+		classes.add(classFacts);
+	}
+
+	/**
+	 * Register a usage (one reference) on the last registered class; usages
+	 * before the first class declaration are registered on the first class.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name of the used class
+	 */
+	void addUsage(final String fullyQualifiedName) {
+		addUsage(fullyQualifiedName, 1);
+	}
+
+	/**
+	 * Register a usage on the last registered class; usages before the first
+	 * class declaration are registered on the first class.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name of the used class
+	 * @param references
+	 *            number of references
+	 */
+	void addUsage(final String fullyQualifiedName, final int references) {
+		final Map<String, Integer> usages = classes.isEmpty() ? fileUsages
+				: classes.get(classes.size() - 1).usages;
+		usages.merge(fullyQualifiedName, references, Integer::sum);
+	}
+
+	/**
+	 * @return usages that could not be registered on a class (the file does
+	 *         not declare a class, for example package-info.java); these are
+	 *         not applied to the model
+	 */
+	Map<String, Integer> getUnassignedUsages() {
+		return Collections.unmodifiableMap(fileUsages);
+	}
+
+	/**
+	 * Register the classes declared in the file.
+	 *
+	 * @param projectTypes
+	 *            index of the types declared in the project
+	 */
+	void addClassesTo(final ProjectTypes projectTypes) {
+		for (final ClassFacts classFacts : classes) {
+			projectTypes.add(classFacts.fullyQualifiedName);
+		}
+	}
+
+	/**
+	 * @return fully qualified names of the classes declared in the file
+	 */
+	List<String> getClassNames() {
+		final List<String> result = new ArrayList<>(classes.size());
+		for (final ClassFacts classFacts : classes) {
+			result.add(classFacts.fullyQualifiedName);
+		}
+		return result;
+	}
+
+	/**
+	 * Does the file use a type with one of the given simple names?
+	 *
+	 * @param simpleNames
+	 *            simple names (see {@link #simpleName(String)})
+	 * @return true, if a used type has one of the simple names
+	 */
+	boolean usesSimpleName(final Set<String> simpleNames) {
+		for (final String usage : fileUsages.keySet()) {
+			if (simpleNames.contains(simpleName(usage))) {
+				return true;
+			}
+		}
+		for (final ClassFacts classFacts : classes) {
+			for (final String usage : classFacts.usages.keySet()) {
+				if (simpleNames.contains(simpleName(usage))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determine the simple name of a type.
+	 *
+	 * @param fullyQualifiedName
+	 *            fully qualified name (nested classes separated by '$')
+	 * @return simple name
+	 */
+	static String simpleName(final String fullyQualifiedName) {
+		return fullyQualifiedName
+				.substring(Math.max(fullyQualifiedName.lastIndexOf('.'), fullyQualifiedName.lastIndexOf('$')) + 1);
+	}
+
+	/**
+	 * Apply the facts to the model; only packages, classes and usages accepted
+	 * by the index are added.
+	 *
+	 * @param model
+	 *            model
+	 * @param on
+	 *            file the facts were read from
+	 * @param projectTypes
+	 *            index of the types declared in the project
+	 */
+	void applyTo(final Model<Location> model, final InputFile on, final ProjectTypes projectTypes) {
+		if (packageName != null && projectTypes.acceptsPackage(packageName)) {
+			model.addPackage(packageName, packageRange.toLocation(on));
+		}
+		for (final ClassFacts classFacts : classes) {
+			if (!projectTypes.accepts(classFacts.fullyQualifiedName)) {
+				continue;
+			}
+			final Class<Location> modelClass = model.addClass(Name.of(classFacts.fullyQualifiedName),
+					classFacts.isAbstract, classFacts.range.toLocation(on));
+			for (final Map.Entry<String, Integer> usage : classFacts.usages.entrySet()) {
+				if (projectTypes.accepts(usage.getKey())) {
+					modelClass.addUsage(usage.getKey(), usage.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the facts.
+	 *
+	 * @param out
+	 *            output
+	 * @throws IOException
+	 *             on write errors
+	 */
+	void writeTo(final DataOutput out) throws IOException {
+		out.writeBoolean(packageName != null);
+		if (packageName != null) {
+			out.writeUTF(packageName);
+			packageRange.writeTo(out);
+		}
+		out.writeInt(classes.size());
+		for (final ClassFacts classFacts : classes) {
+			out.writeUTF(classFacts.fullyQualifiedName);
+			out.writeBoolean(classFacts.isAbstract);
+			classFacts.range.writeTo(out);
+			out.writeInt(classFacts.usages.size());
+			for (final Map.Entry<String, Integer> usage : classFacts.usages.entrySet()) {
+				out.writeUTF(usage.getKey());
+				out.writeInt(usage.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Read facts (written by {@link #writeTo(DataOutput)}).
+	 *
+	 * @param in
+	 *            input
+	 * @return facts
+	 * @throws IOException
+	 *             on read errors
+	 */
+	static SourceFacts readFrom(final DataInput in) throws IOException {
+		final SourceFacts result = new SourceFacts();
+		if (in.readBoolean()) {
+			result.addPackage(in.readUTF(), TextRange.readFrom(in));
+		}
+		final int classCount = in.readInt();
+		for (int i = 0; i < classCount; i++) {
+			result.addClass(in.readUTF(), in.readBoolean(), TextRange.readFrom(in));
+			final int usageCount = in.readInt();
+			for (int j = 0; j < usageCount; j++) {
+				result.addUsage(in.readUTF(), in.readInt());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Facts of a single class.
+	 */
+	private static final class ClassFacts {
+		private final String fullyQualifiedName;
+		private final boolean isAbstract;
+		private final TextRange range;
+		private final Map<String, Integer> usages = new LinkedHashMap<>();
+
+		ClassFacts(final String fullyQualifiedName, final boolean isAbstract, final TextRange range) {
+			this.fullyQualifiedName = fullyQualifiedName;
+			this.isAbstract = isAbstract;
+			this.range = range;
+		}
+	}
+
+	/**
+	 * Location in a file (independent of the input file).
+	 */
+	static final class TextRange {
+		private final int startLine;
+		private final int startColumn;
+		private final int endLine;
+		private final int endColumn;
+
+		TextRange(final int startLine, final int startColumn, final int endLine, final int endColumn) {
+			this.startLine = startLine;
+			this.startColumn = startColumn;
+			this.endLine = endLine;
+			this.endColumn = endColumn;
+		}
+
+		Location toLocation(final InputFile on) {
+			return new Location(on, on.newRange(startLine, startColumn, endLine, endColumn));
+		}
+
+		void writeTo(final DataOutput out) throws IOException {
+			out.writeInt(startLine);
+			out.writeInt(startColumn);
+			out.writeInt(endLine);
+			out.writeInt(endColumn);
+		}
+
+		static TextRange readFrom(final DataInput in) throws IOException {
+			return new TextRange(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Cache of the facts read from source files (keyed by the relative path and
+ * the hash of the contents of the file), so unchanged files do not have to be
+ * parsed again.
+ *
+ * The facts of a file depend on the libraries on the classpath; a cache
+ * created for other libraries is ignored. They also depend on the types
+ * declared in the other source files (the semantic model resolves types by
+ * their simple name); when types are added or removed, only the cached files
+ * using a type with the same simple name are parsed again (see
+ * {@link #invalidate(Set)}). The cache only retains the files used during the
+ * current analysis.
+ *
+ * Lookups and updates are thread-safe; loading, invalidating and saving are
+ * not.
+ */
+final class SourceFactsCache {
+
+	private static final Logger LOGGER = Loggers.get(SourceFactsCache.class);
+
+	private static final int VERSION = 4;
+
+	private final File cacheFile;
+	private final String key;
+
+	private final Map<String, Entry> previous = new HashMap<>();
+	private final Map<String, Entry> current = new ConcurrentHashMap<>();
+	private final Set<String> replayed = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Construct a cache.
+	 *
+	 * @param cacheFile
+	 *            cache file (null to disable the cache)
+	 * @param classpath
+	 *            classpath used to read the source files; only the libraries
+	 *            are part of the key (the binary directories contain the
+	 *            classes compiled from the source files)
+	 */
+	SourceFactsCache(final File cacheFile, final List<File> classpath) {
+		this.cacheFile = cacheFile;
+		this.key = cacheFile == null ? "" : createKey(classpath);
+	}
+
+	/**
+	 * @return a disabled cache (nothing is loaded or saved)
+	 */
+	static SourceFactsCache disabled() {
+		return new SourceFactsCache(null, null);
+	}
+
+	private static String createKey(final List<File> classpath) {
+		final StringBuilder result = new StringBuilder();
+		for (final File element : classpath) {
+			if (!element.isDirectory()) {
+				result.append(element.getAbsolutePath()).append(':').append(element.lastModified()).append(':')
+						.append(element.length()).append(';');
+			}
+		}
+		return hash(result.toString());
+	}
+
+	/**
+	 * Hash the contents of a file.
+	 *
+	 * @param contents
+	 *            contents
+	 * @return hash
+	 */
+	static String hash(final String contents) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(contents.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder result = new StringBuilder(digest.length * 2);
+			for (final byte value : digest) {
+				result.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+			}
+			return result.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not supported", e);
+		}
+	}
+
+	/**
+	 * @return true, if the cache is enabled (the contents of the files should
+	 *         be hashed)
+	 */
+	boolean isEnabled() {
+		return cacheFile != null;
+	}
+
+	/**
+	 * Load the cache file (if it exists and was created for the same
+	 * libraries).
+	 */
+	void load() {
+		if (cacheFile == null || !cacheFile.isFile()) {
+			return;
+		}
+
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))))) {
+			if (in.readInt() != VERSION || !key.equals(in.readUTF())) {
+				LOGGER.info("Source facts cache ignored (created for another version or libraries)");
+				return;
+			}
+			final int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				final String relativePath = in.readUTF();
+				final String hash = in.readUTF();
+				previous.put(relativePath, new Entry(hash, SourceFacts.readFrom(in)));
+			}
+			LOGGER.debug("Source facts cache loaded: {} files", size);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read source facts cache {}", cacheFile, e);
+			previous.clear();
+		}
+	}
+
+	/**
+	 * Get the cached facts of a file.
+	 *
+	 * @param relativePath
+	 *            relative path of the file
+	 * @param hash
+	 *            hash of the contents of the file (see {@link #hash(String)})
+	 * @return facts, or null if the file is not cached (or has been changed)
+	 */
+	SourceFacts get(final String relativePath, final String hash) {
+		final Entry entry = previous.get(relativePath);
+		if (entry == null || !entry.hash.equals(hash)) {
+			return null;
+		}
+		replayed.add(relativePath);
+		return entry.facts;
+	}
+
+	/**
+	 * Register the facts of a file (to be saved).
+	 *
+	 * @param relativePath
+	 *            relative path of the file
+	 * @param hash
+	 *            hash of the contents of the file (see {@link #hash(String)})
+	 * @param facts
+	 *            facts
+	 */
+	void put(final String relativePath, final String hash, final SourceFacts facts) {
+		if (isEnabled()) {
+			current.put(relativePath, new Entry(hash, facts));
+		}
+	}
+
+	/**
+	 * Determine the cached files that must be parsed again, because a type was
+	 * added or removed (compared to the previous analysis) with the same simple
+	 * name as a type used in the file. These files are no longer counted as
+	 * read from the cache.
+	 *
+	 * @param declaredTypes
+	 *            fully qualified names of the types declared in the source
+	 *            files of this analysis
+	 * @return relative paths of the files to parse again
+	 */
+	Set<String> invalidate(final Set<String> declaredTypes) {
+		if (replayed.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		final Set<String> previousTypes = new HashSet<>();
+		for (final Entry entry : previous.values()) {
+			previousTypes.addAll(entry.facts.getClassNames());
+		}
+
+		final Set<String> changedNames = new HashSet<>();
+		for (final String type : declaredTypes) {
+			if (!previousTypes.contains(type)) {
+				changedNames.add(SourceFacts.simpleName(type));
+			}
+		}
+		for (final String type : previousTypes) {
+			if (!declaredTypes.contains(type)) {
+				changedNames.add(SourceFacts.simpleName(type));
+			}
+		}
+
+		final Set<String> result = new HashSet<>();
+		if (!changedNames.isEmpty()) {
+			for (final String relativePath : replayed) {
+				if (previous.get(relativePath).facts.usesSimpleName(changedNames)) {
+					result.add(relativePath);
+				}
+			}
+			replayed.removeAll(result);
+			LOGGER.debug("Types added or removed: {}; cached files to parse again: {}", changedNames, result.size());
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of files read from the cache (and not invalidated)
+	 */
+	int getReplayedCount() {
+		return replayed.size();
+	}
+
+	/**
+	 * Save the facts registered during this analysis to the cache file.
+	 */
+	void save() {
+		if (cacheFile == null) {
+			return;
+		}
+
+		try {
+			Files.createDirectories(cacheFile.getParentFile().toPath());
+			final File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+				out.writeInt(VERSION);
+				out.writeUTF(key);
+				out.writeInt(current.size());
+				for (final Map.Entry<String, Entry> entry : current.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeUTF(entry.getValue().hash);
+					entry.getValue().facts.writeTo(out);
+				}
+			}
+			Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			LOGGER.debug("Source facts cache saved: {} files", current.size());
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write source facts cache {}", cacheFile, e);
+		}
+	}
+
+	private static final class Entry {
+		private final String hash;
+		private final SourceFacts facts;
+
+		Entry(final String hash, final SourceFacts facts) {
+			this.hash = hash;
+			this.facts = facts;
+		}
+	}
+}
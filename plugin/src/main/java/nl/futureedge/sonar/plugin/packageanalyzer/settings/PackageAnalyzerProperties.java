@@ -48,6 +48,76 @@ public final class PackageAnalyzerProperties {
 	 */
 	public static final String CLASS_MODE_ALL = "all";
 
+	/**
+	 * Maximum number of package cycles.
+	 */
+	public static final String CYCLES_MAXIMUM_COUNT_KEY = "sonar.package-analyzer.cycles.maximum-count";
+	/**
+	 * Maximum length of package cycles.
+	 */
+	public static final String CYCLES_MAXIMUM_LENGTH_KEY = "sonar.package-analyzer.cycles.maximum-length";
+	/**
+	 * Maximum duration (seconds) of the package cycle search.
+	 */
+	public static final String CYCLES_MAXIMUM_DURATION_KEY = "sonar.package-analyzer.cycles.maximum-duration";
+	/**
+	 * Package cycles reporting mode.
+	 */
+	public static final String CYCLES_MODE_KEY = "sonar.package-analyzer.cycles.mode";
+	/**
+	 * Package cycles reporting mode: report all elementary package cycles.
+	 */
+	public static final String CYCLES_MODE_CYCLES = "cycles";
+	/**
+	 * Package cycles reporting mode: report the package dependencies to break
+	 * per strongly connected component.
+	 */
+	public static final String CYCLES_MODE_DEPENDENCIES = "dependencies";
+
+	/**
+	 * Number of threads.
+	 */
+	public static final String THREADS_KEY = "sonar.package-analyzer.threads";
+
+	/**
+	 * Cache source file facts.
+	 */
+	public static final String CACHE_KEY = "sonar.package-analyzer.cache";
+
+	/**
+	 * Input.
+	 */
+	public static final String INPUT_KEY = "sonar.package-analyzer.input";
+	/**
+	 * Input: source files.
+	 */
+	public static final String INPUT_SOURCE = "source";
+	/**
+	 * Input: class files.
+	 */
+	public static final String INPUT_BYTECODE = "bytecode";
+
+	/**
+	 * Packages to include.
+	 */
+	public static final String PACKAGES_INCLUDE_KEY = "sonar.package-analyzer.packages.include";
+	/**
+	 * Packages to exclude.
+	 */
+	public static final String PACKAGES_EXCLUDE_KEY = "sonar.package-analyzer.packages.exclude";
+	/**
+	 * Include library packages.
+	 */
+	public static final String LIBRARIES_KEY = "sonar.package-analyzer.libraries";
+	/**
+	 * Save the statistics of the analysis as measures.
+	 */
+	public static final String STATISTICS_MEASURES_KEY = "sonar.package-analyzer.statistics.measures";
+	/**
+	 * Log the (estimated) memory footprint of the model.
+	 */
+	public static final String FOOTPRINT_KEY = "sonar.package-analyzer.footprint";
+
 	private PackageAnalyzerProperties() {
 		// Not instantiable
 	}
@@ -71,7 +141,88 @@ public final class PackageAnalyzerProperties {
 				.category(CATEGORY).type(PropertyType.SINGLE_SELECT_LIST).options(CLASS_MODE_ALL, CLASS_MODE_FIRST)
 				.defaultValue(CLASS_MODE_ALL).index(200).onQualifiers(Qualifiers.PROJECT).build();
 
-		return Arrays.asList(issueMode, classMode);
+		final PropertyDefinition cyclesMaximumCount = PropertyDefinition.builder(CYCLES_MAXIMUM_COUNT_KEY)
+				.name("Maximum package cycles")
+				.description(
+						"Maximum number of package cycles to search for; the search is stopped when more package cycles exist (0 for no limit)")
+				.category(CATEGORY).type(PropertyType.INTEGER).defaultValue("10000").index(300)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition cyclesMaximumLength = PropertyDefinition.builder(CYCLES_MAXIMUM_LENGTH_KEY)
+				.name("Maximum package cycle length")
+				.description(
+						"Maximum number of packages in a package cycle; longer package cycles are not searched for (0 for no limit)")
+				.category(CATEGORY).type(PropertyType.INTEGER).defaultValue("0").index(400)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition cyclesMaximumDuration = PropertyDefinition.builder(CYCLES_MAXIMUM_DURATION_KEY)
+				.name("Maximum package cycle search duration")
+				.description(
+						"Maximum duration (in seconds) of the search for package cycles; the search is stopped when it takes longer (0 for no limit)")
+				.category(CATEGORY).type(PropertyType.INTEGER).defaultValue("300").index(500)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition threads = PropertyDefinition.builder(THREADS_KEY).name("Threads")
+				.description(
+						"Number of threads used by the analysis (0 for the number of available processors)")
+				.category(CATEGORY).type(PropertyType.INTEGER).defaultValue("1").index(600)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition cache = PropertyDefinition.builder(CACHE_KEY).name("Cache")
+				.description(
+						"Cache the packages, classes and usages read from source files in the working directory; only changed source files are parsed again (all source files when a library has changed)")
+				.category(CATEGORY).type(PropertyType.BOOLEAN).defaultValue("true").index(700)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition input = PropertyDefinition.builder(INPUT_KEY).name("Input")
+				.description(
+						"What to read the packages, classes and usages from (source files, class files in sonar.java.binaries)")
+				.category(CATEGORY).type(PropertyType.SINGLE_SELECT_LIST).options(INPUT_SOURCE, INPUT_BYTECODE)
+				.defaultValue(INPUT_SOURCE).index(800).onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition packagesInclude = PropertyDefinition.builder(PACKAGES_INCLUDE_KEY)
+				.name("Included packages")
+				.description(
+						"Packages (and their sub packages) to analyze, for example com.example (empty for all packages)")
+				.category(CATEGORY).type(PropertyType.STRING).multiValues(true).index(900)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition packagesExclude = PropertyDefinition.builder(PACKAGES_EXCLUDE_KEY)
+				.name("Excluded packages")
+				.description(
+						"Packages (and their sub packages) not to analyze, for example com.example.generated; the most specific included or excluded package decides")
+				.category(CATEGORY).type(PropertyType.STRING).multiValues(true).index(1000)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition libraries = PropertyDefinition.builder(LIBRARIES_KEY).name("Libraries")
+				.description(
+						"Include the packages and classes of libraries (used by the project) in the analysis; by default only the packages and classes of the project are analyzed")
+				.category(CATEGORY).type(PropertyType.BOOLEAN).defaultValue("false").index(1100)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition cyclesMode = PropertyDefinition.builder(CYCLES_MODE_KEY).name("Package cycles mode")
+				.description(
+						"How package cycles are reported (every elementary package cycle, or per group of packages in cycles the package dependencies to break to remove all package cycles)")
+				.category(CATEGORY).type(PropertyType.SINGLE_SELECT_LIST)
+				.options(CYCLES_MODE_CYCLES, CYCLES_MODE_DEPENDENCIES).defaultValue(CYCLES_MODE_CYCLES).index(1200)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition statisticsMeasures = PropertyDefinition.builder(STATISTICS_MEASURES_KEY)
+				.name("Statistics measures")
+				.description(
+						"Save the statistics of the analysis (duration of the phases, number of files parsed, model sizes, issues raised) as hidden measures on the project to track them over time")
+				.category(CATEGORY).type(PropertyType.BOOLEAN).defaultValue("false").index(1300)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		final PropertyDefinition footprint = PropertyDefinition.builder(FOOTPRINT_KEY).name("Log model footprint")
+				.description(
+						"Log the estimated memory footprint of the model (bytes per package, class and class usage, and the largest types); walking the model takes time, so only enable this to investigate memory usage")
+				.category(CATEGORY).type(PropertyType.BOOLEAN).defaultValue("false").index(1400)
+				.onQualifiers(Qualifiers.PROJECT).build();
+
+		return Arrays.asList(issueMode, classMode, cyclesMaximumCount, cyclesMaximumLength, cyclesMaximumDuration,
+				threads, cache, input, packagesInclude, packagesExclude, libraries, cyclesMode, statisticsMeasures,
+				footprint);
 	}
 
 	/**
@@ -109,4 +260,141 @@ public final class PackageAnalyzerProperties {
 		final String classMode = settings.getString(CLASS_MODE_KEY);
 		return CLASS_MODE_ALL.equals(classMode);
 	}
+
+	/**
+	 * Maximum number of package cycles to search for.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return maximum number of package cycles (0 for no limit)
+	 */
+	public static int getCyclesMaximumCount(final Settings settings) {
+		return settings.getInt(CYCLES_MAXIMUM_COUNT_KEY);
+	}
+
+	/**
+	 * Maximum number of packages in a package cycle.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return maximum length of package cycles (0 for no limit)
+	 */
+	public static int getCyclesMaximumLength(final Settings settings) {
+		return settings.getInt(CYCLES_MAXIMUM_LENGTH_KEY);
+	}
+
+	/**
+	 * Maximum duration of the search for package cycles.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return maximum duration in milliseconds (0 for no limit)
+	 */
+	public static long getCyclesMaximumDuration(final Settings settings) {
+		return settings.getLong(CYCLES_MAXIMUM_DURATION_KEY) * 1000L;
+	}
+
+	/**
+	 * Number of threads used by the analysis.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return number of threads (at least 1; 1 if not configured)
+	 */
+	public static int getThreads(final Settings settings) {
+		if (!settings.hasKey(THREADS_KEY)) {
+			return 1;
+		}
+		final int threads = settings.getInt(THREADS_KEY);
+		return threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+	}
+
+	/**
+	 * Should the facts read from source files be cached?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if the facts should be cached
+	 */
+	public static boolean isCacheEnabled(final Settings settings) {
+		return settings.getBoolean(CACHE_KEY);
+	}
+
+	/**
+	 * Should the model be read from class files?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if the model should be read from class files
+	 */
+	public static boolean isBytecodeInput(final Settings settings) {
+		return INPUT_BYTECODE.equals(settings.getString(INPUT_KEY));
+	}
+
+	/**
+	 * Packages to include.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return package patterns (empty to include all packages)
+	 */
+	public static String[] getPackagesInclude(final Settings settings) {
+		return settings.getStringArray(PACKAGES_INCLUDE_KEY);
+	}
+
+	/**
+	 * Packages to exclude.
+	 *
+	 * @param settings
+	 *            settings
+	 * @return package patterns
+	 */
+	public static String[] getPackagesExclude(final Settings settings) {
+		return settings.getStringArray(PACKAGES_EXCLUDE_KEY);
+	}
+
+	/**
+	 * Should library packages and classes be included?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if library packages and classes should be included
+	 */
+	public static boolean isLibrariesIncluded(final Settings settings) {
+		return settings.getBoolean(LIBRARIES_KEY);
+	}
+
+	/**
+	 * Should package cycles be reported as package dependencies to break?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if the package dependencies to break should be reported
+	 *         instead of all elementary package cycles
+	 */
+	public static boolean shouldReportCycleDependencies(final Settings settings) {
+		return CYCLES_MODE_DEPENDENCIES.equals(settings.getString(CYCLES_MODE_KEY));
+	}
+
+	/**
+	 * Should the statistics of the analysis be saved as measures?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if the statistics should be saved as measures
+	 */
+	public static boolean shouldSaveStatisticsMeasures(final Settings settings) {
+		return settings.getBoolean(STATISTICS_MEASURES_KEY);
+	}
+
+	/**
+	 * Should the memory footprint of the model be logged?
+	 *
+	 * @param settings
+	 *            settings
+	 * @return true, if the memory footprint should be logged
+	 */
+	public static boolean shouldLogFootprint(final Settings settings) {
+		return settings.getBoolean(FOOTPRINT_KEY);
+	}
 }
@@ -39,14 +39,18 @@ public class PackageAnalyzerComputerTest {
 		final MeasureComputerDefinition definition = subject.define(definitionContext);
 
 		Assert.assertNotNull(definition);
-		Assert.assertEquals(3, definition.getInputMetrics().size());
+		Assert.assertEquals(6, definition.getInputMetrics().size());
 		Assert.assertTrue(definition.getInputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER.key()));
 		Assert.assertTrue(definition.getOutputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key()));
 		Assert.assertTrue(definition.getInputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key()));
 
-		Assert.assertEquals(2, definition.getOutputMetrics().size());
+		Assert.assertTrue(definition.getInputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER.key()));
+
+		Assert.assertEquals(4, definition.getOutputMetrics().size());
 		Assert.assertTrue(definition.getOutputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key()));
 		Assert.assertTrue(definition.getOutputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key()));
+		Assert.assertTrue(definition.getOutputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS.key()));
+		Assert.assertTrue(definition.getOutputMetrics().contains(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key()));
 	}
 
 	@Test
@@ -55,6 +59,7 @@ public class PackageAnalyzerComputerTest {
 
 		Assert.assertEquals("", context.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key()).getStringValue());
 		Assert.assertEquals(0, context.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key()).getIntValue());
+		Assert.assertEquals(0, context.getMeasure(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key()).getIntValue());
 	}
 
 	@Test
@@ -89,4 +94,19 @@ public class PackageAnalyzerComputerTest {
 		Assert.assertEquals(5, context.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key()).getIntValue());
 	}
 
+	@Test
+	public void testGroupIdentifiers() {
+		// Cycles mode dependencies
+		context.addInputMeasure(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER.key(), "1");
+		context.addChildrenMeasures(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS.key(), "1,2", "3");
+
+		subject.compute(context);
+
+		Assert.assertEquals("1,2,3", context.getMeasure(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIERS.key()).getStringValue());
+		Assert.assertEquals(3, context.getMeasure(PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS.key()).getIntValue());
+		Assert.assertEquals("", context.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIERS.key()).getStringValue());
+		// Groups of packages are not counted as package cycles
+		Assert.assertNull(context.getMeasure(PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES.key()));
+	}
+
 }
@@ -0,0 +1,52 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.metrics;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.utils.log.Loggers;
+
+public class StatisticsTest {
+
+	private final Statistics subject = new Statistics();
+
+	@Test
+	public void test() {
+		Assert.assertEquals(0, subject.getTime(Statistics.Phase.PARSE));
+		Assert.assertEquals(0, subject.getCount(Statistics.Counter.FILES_PARSED));
+
+		subject.addTime(Statistics.Phase.PARSE, 5);
+		subject.addTime(Statistics.Phase.PARSE, 7);
+		subject.addCount(Statistics.Counter.FILES_PARSED, 1);
+		subject.addCount(Statistics.Counter.FILES_PARSED, 2);
+		subject.addRuleTime("RuleB", 3);
+		subject.addRuleTime("RuleA", 4);
+		subject.addRuleTime("RuleB", 5);
+
+		Assert.assertEquals(12, subject.getTime(Statistics.Phase.PARSE));
+		Assert.assertEquals(3, subject.getCount(Statistics.Counter.FILES_PARSED));
+		Assert.assertEquals("{RuleB=8, RuleA=4}", subject.getRuleTimes().toString());
+
+		subject.log(Loggers.get(StatisticsTest.class));
+	}
+
+	@Test
+	public void measures() {
+		final SensorContextTester context = SensorContextTester.create(Paths.get("./src/main/java"));
+		subject.addTime(Statistics.Phase.BUILD_MODEL, TimeUnit.MILLISECONDS.toNanos(42));
+		subject.addCount(Statistics.Counter.ISSUES, 0);
+		subject.addCount(Statistics.Counter.FILES_CACHED, 2);
+
+		subject.saveMeasures(context);
+
+		Assert.assertEquals(Long.valueOf(42),
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_BUILD_MODEL_TIME).value());
+		Assert.assertEquals(Integer.valueOf(0),
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_ISSUES).value());
+		// Not recorded
+		Assert.assertNull(context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_EXECUTE_RULES_TIME));
+		Assert.assertNull(context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_FILES_PARSED));
+	}
+}
@@ -16,6 +16,7 @@ import org.sonar.api.config.Settings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.rule.RulesDefinition.NewRepository;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
 import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
@@ -64,6 +65,21 @@ public class AbstractPackageAnalyzerRuleTest extends BaseRuleTest {
 		Assert.assertEquals(1, sensorContext.allIssues().size());
 	}
 
+	@Test
+	public void statistics() {
+		final Model<Location> model = new Model<>();
+		model.addPackage("packageA", location("packageA/package-info.java"));
+
+		// Each scan records its own statistics
+		final Statistics first = new Statistics();
+		final Statistics second = new Statistics();
+		subject.scanModel(sensorContext, activeRule, model, first);
+		subject.scanModel(sensorContext, activeRule, model, second);
+		subject.scanModel(sensorContext, activeRule, model);
+		Assert.assertEquals(1, first.getCount(Statistics.Counter.ISSUES));
+		Assert.assertEquals(1, second.getCount(Statistics.Counter.ISSUES));
+	}
+
 	public static final class TestRule extends AbstractPackageAnalyzerRule {
 
 		private final Settings settings;
@@ -79,11 +95,16 @@ public class AbstractPackageAnalyzerRuleTest extends BaseRuleTest {
 		}
 
 		@Override
-		protected void scanModel(SensorContext context, ActiveRule rule, Model<Location> model) {
-			for (Package<Location> modelPackage : model.getPackages()) {
-				registerIssue(context, settings, rule, modelPackage, modelPackage.getClasses(), "Issue");
-			}
-
+		protected ModelVisitor createVisitor(SensorContext context, ActiveRule rule, Model<Location> model,
+				Statistics statistics) {
+			return new ModelVisitor() {
+				@Override
+				public void visitPackage(int packageId) {
+					final Package<Location> modelPackage = model.getDependencyGraph().getPackage(packageId);
+					registerIssue(context, statistics, settings, rule, modelPackage, modelPackage.getClasses(),
+							"Issue");
+				}
+			};
 		}
 
 	}
@@ -107,10 +107,70 @@ public class PackageDependencyCyclesRuleTest extends BaseRuleTest {
 		Assert.assertEquals(12, sensorContext.allIssues().size());
 		
 		// Check measures
-		Assert.assertEquals("1,2,3,5", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageA/package-info.java", PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
-		Assert.assertEquals("1,2,3,4", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageB/package-info.java", PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
+		Assert.assertEquals("1,2,3,4", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageA/package-info.java", PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
+		Assert.assertEquals("1,2,4,5", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageB/package-info.java", PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
 		Assert.assertEquals("2,3,4,5", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageC/package-info.java", PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
 			
 	}
-	
+
+	@Test
+	public void testDependencies() {
+		settings.setProperty(PackageAnalyzerProperties.CYCLES_MODE_KEY, PackageAnalyzerProperties.CYCLES_MODE_DEPENDENCIES);
+
+		final Model<Location> model = new Model<>();
+		model.addPackage("packageA", location("packageA/package-info.java"));
+		model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageB.classA"));
+		model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageC.classA"));
+		model.addPackage("packageB", location("packageB/package-info.java"));
+		model.addClass(Name.of("packageB.ClassA"), false, null).addUsage(Name.of("packageA.classA"));
+		model.addClass(Name.of("packageB.ClassA"), false, null).addUsage(Name.of("packageC.classA"));
+		model.addPackage("packageC", location("packageC/package-info.java"));
+		model.addClass(Name.of("packageC.ClassA"), false, null).addUsage(Name.of("packageA.classA"));
+		model.addClass(Name.of("packageC.ClassA"), false, null).addUsage(Name.of("packageB.classA"));
+
+		subject.scanModel(sensorContext, activeRule, model);
+
+		// Check one issue per package that should break dependencies
+		Assert.assertEquals(2, sensorContext.allIssues().size());
+		Map<String, String> messages = sensorContext.allIssues().stream().collect(Collectors.toMap(
+				issue -> issue.primaryLocation().inputComponent().key(), issue -> issue.primaryLocation().message()));
+		Assert.assertEquals("Break the following package dependencies: packageB -> packageA (1 reference: ClassA references classA); this removes the package cycles between the packages: packageA, packageB, packageC (3 package dependencies to break in total)",
+				messages.get(BaseRuleTest.PROJECT_KEY + ":packageB/package-info.java"));
+		Assert.assertEquals("Break the following package dependencies: packageC -> packageA (1 reference: ClassA references classA), packageC -> packageB (1 reference: ClassA references classA); this removes the package cycles between the packages: packageA, packageB, packageC (3 package dependencies to break in total)",
+				messages.get(BaseRuleTest.PROJECT_KEY + ":packageC/package-info.java"));
+
+		// Check measures (one identifier per group of packages in cycles; the
+		// package cycles are not counted)
+		Assert.assertNull(sensorContext.measure(sensorContext.module().key(),
+				PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_FOUND));
+		Assert.assertEquals("1", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageA/package-info.java",
+				PackageAnalyzerMetrics.PACKAGE_CYCLE_GROUPS_IDENTIFIER).value());
+		Assert.assertNull(sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageA/package-info.java",
+				PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER));
+	}
+
+	@Test
+	public void testMaximumCount() {
+		settings.setProperty(PackageAnalyzerProperties.CYCLES_MAXIMUM_COUNT_KEY, "2");
+
+		final Model<Location> model = new Model<>();
+		model.addPackage("packageA", location("packageA/package-info.java"));
+		model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageB.classA"));
+		model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageC.classA"));
+		model.addPackage("packageB", location("packageB/package-info.java"));
+		model.addClass(Name.of("packageB.ClassA"), false, null).addUsage(Name.of("packageA.classA"));
+		model.addClass(Name.of("packageB.ClassA"), false, null).addUsage(Name.of("packageC.classA"));
+		model.addPackage("packageC", location("packageC/package-info.java"));
+		model.addClass(Name.of("packageC.ClassA"), false, null).addUsage(Name.of("packageA.classA"));
+		model.addClass(Name.of("packageC.ClassA"), false, null).addUsage(Name.of("packageB.classA"));
+
+		subject.scanModel(sensorContext, activeRule, model);
+
+		// Check measures
+		Assert.assertEquals(Integer.valueOf(2), sensorContext
+				.measure(sensorContext.module().key(), PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_FOUND).value());
+		Assert.assertEquals("1,2", sensorContext.measure(BaseRuleTest.PROJECT_KEY + ":packageB/package-info.java",
+				PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_IDENTIFIER).value());
+	}
+
 }
@@ -0,0 +1,112 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.rule.RulesDefinition.NewRepository;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
+
+public class RuleEngineTest {
+
+	@Test
+	public void test() {
+		final Model<Location> model = new Model<>();
+		model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageB.ClassB"));
+		model.addClass(Name.of("packageA.ClassC"), false, null);
+		model.addClass(Name.of("packageB.ClassB"), false, null);
+		model.freeze();
+
+		final ActiveRules activeRules = Mockito.mock(ActiveRules.class);
+		Mockito.when(activeRules.find(RuleKey.of("package-analyzer-test", "active")))
+				.thenReturn(Mockito.mock(ActiveRule.class));
+		Mockito.when(activeRules.find(RuleKey.of("package-analyzer-test", "other")))
+				.thenReturn(Mockito.mock(ActiveRule.class));
+		final SensorContext context = Mockito.mock(SensorContext.class);
+		Mockito.when(context.activeRules()).thenReturn(activeRules);
+
+		final List<String> visits = new ArrayList<>();
+		final VisitingRule active = new VisitingRule("active", visits);
+		final VisitingRule other = new VisitingRule("other", visits);
+		final VisitingRule inactive = new VisitingRule("inactive", visits);
+		final ScanningRule scanning = new ScanningRule();
+		final Statistics statistics = new Statistics();
+
+		RuleEngine.execute(context, "test", model, statistics, active, other, inactive, scanning);
+
+		// Active rules are resolved once
+		Mockito.verify(context, Mockito.times(1)).activeRules();
+
+		// Each package directly followed by its classes; each package and
+		// class is passed to all visitors before the next one is visited
+		Assert.assertEquals("[active package packageA, other package packageA, active class ClassA, "
+				+ "other class ClassA, active class ClassC, other class ClassC, active package packageB, "
+				+ "other package packageB, active class ClassB, other class ClassB, active end, other end]",
+				visits.toString());
+		Assert.assertEquals(1, scanning.scans);
+		// Times of rules of the same type are added up
+		Assert.assertEquals(2, statistics.getRuleTimes().size());
+	}
+
+	private static final class VisitingRule extends AbstractPackageAnalyzerRule {
+
+		private final String ruleKey;
+		private final List<String> visits;
+
+		VisitingRule(final String ruleKey, final List<String> visits) {
+			super(ruleKey);
+			this.ruleKey = ruleKey;
+			this.visits = visits;
+		}
+
+		@Override
+		public void define(final NewRepository context) {
+			// Unused
+		}
+
+		@Override
+		protected ModelVisitor createVisitor(final SensorContext context, final ActiveRule rule,
+				final Model<Location> model, final Statistics statistics) {
+			return new ModelVisitor() {
+				@Override
+				public void visitPackage(final int packageId) {
+					visits.add(ruleKey + " package " + model.getDependencyGraph().getPackage(packageId).getName());
+				}
+
+				@Override
+				public void visitClass(final int classId) {
+					visits.add(ruleKey + " class " + model.getDependencyGraph().getClass(classId).getName());
+				}
+
+				@Override
+				public void end() {
+					visits.add(ruleKey + " end");
+				}
+			};
+		}
+	}
+
+	private static final class ScanningRule implements PackageAnalyzerRule {
+
+		private int scans;
+
+		@Override
+		public void define(final NewRepository context) {
+			// Unused
+		}
+
+		@Override
+		public void scanModel(final SensorContext context, final String language, final Model<Location> model) {
+			scans++;
+		}
+	}
+}
@@ -1,22 +1,37 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
 
+import java.nio.file.Paths;
 import java.util.Arrays;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.server.rule.RulesDefinition.NewRepository;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.PackageAnalyzerMetrics;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Name;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageAnalyzerRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
 
 public class AbstractSensorTest {
 
+	@Rule
+	public LogTester logTester = new LogTester();
+
 	private final TestRule rule1 = new TestRule();
 	private final TestRule rule2 = new TestRule();
 	private final TestSensor sensor = new TestSensor(rule1, rule2);
+	private final SensorContextTester context = SensorContextTester.create(Paths.get("./src/main/java"));
 
 	@Test
 	public void describe() {
@@ -32,12 +47,48 @@ public class AbstractSensorTest {
 		Assert.assertFalse(rule1.called);
 		Assert.assertFalse(rule2.called);
 
-		sensor.execute(null);
+		sensor.execute(context);
 
 		Assert.assertTrue(sensor.called);
 		Assert.assertTrue(rule1.called);
 		Assert.assertTrue(rule2.called);
 
+		// Statistics are not saved as measures by default
+		Assert.assertNull(context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_CLASSES));
+		// Footprint is not logged by default
+		Assert.assertFalse(logTester.logs(LoggerLevel.INFO).stream().anyMatch(log -> log.startsWith("Model footprint")));
+	}
+
+	@Test
+	public void footprint() {
+		context.setSettings(new MapSettings(new PropertyDefinitions(PackageAnalyzerProperties.definitions()))
+				.setProperty(PackageAnalyzerProperties.FOOTPRINT_KEY, "true"));
+
+		sensor.execute(context);
+
+		Assert.assertTrue(logTester.logs(LoggerLevel.INFO).stream().anyMatch(log -> log.startsWith("Model footprint")));
+		Assert.assertTrue(logTester.logs(LoggerLevel.INFO).stream().anyMatch(log -> log.endsWith("(2 classes)")));
+	}
+
+	@Test
+	public void statisticsMeasures() {
+		context.setSettings(new MapSettings(new PropertyDefinitions(PackageAnalyzerProperties.definitions()))
+				.setProperty(PackageAnalyzerProperties.STATISTICS_MEASURES_KEY, "true"));
+
+		sensor.execute(context);
+
+		Assert.assertEquals(Integer.valueOf(2),
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_PACKAGES).value());
+		Assert.assertEquals(Integer.valueOf(2),
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_CLASSES).value());
+		Assert.assertEquals(Integer.valueOf(1),
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_PACKAGE_USAGES).value());
+		Assert.assertNotNull(
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_BUILD_MODEL_TIME));
+		Assert.assertNotNull(
+				context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_EXECUTE_RULES_TIME));
+		// Not recorded
+		Assert.assertNull(context.measure(context.module().key(), PackageAnalyzerMetrics.STATISTICS_FILES_PARSED));
 	}
 
 	private static final class TestSensor extends AbstractSensor {
@@ -49,9 +100,12 @@ public class AbstractSensorTest {
 		}
 
 		@Override
-		protected Model<Location> buildModel(SensorContext context) {
+		protected Model<Location> buildModel(SensorContext context, Statistics statistics) {
 			called = true;
-			return new Model<>();
+			final Model<Location> model = new Model<>();
+			model.addClass(Name.of("packageA.ClassA"), false, null).addUsage(Name.of("packageB.ClassB"));
+			model.addClass(Name.of("packageB.ClassB"), false, null);
+			return model;
 		}
 
 	}
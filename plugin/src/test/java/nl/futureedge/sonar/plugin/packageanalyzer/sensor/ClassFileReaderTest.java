@@ -0,0 +1,107 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassFileReaderTest {
+
+	@Test
+	public void test() throws IOException {
+		final ClassFileFacts facts = read(Sample.class);
+		Assert.assertEquals(Sample.class.getName(), facts.getClassName());
+		Assert.assertEquals("nl.futureedge.sonar.plugin.packageanalyzer.sensor", facts.getPackageName());
+		Assert.assertTrue(facts.isAbstract());
+		Assert.assertFalse(facts.isSynthetic());
+		Assert.assertFalse(facts.isAnonymousOrLocal());
+		Assert.assertEquals("ClassFileReaderTest.java", facts.getSourceFile());
+		Assert.assertTrue(facts.getFirstLine() > 0);
+
+		final Set<String> usages = facts.getUsages();
+		// Super class and interfaces
+		Assert.assertTrue(usages.contains("java.lang.Object"));
+		Assert.assertTrue(usages.contains("java.io.Serializable"));
+		// Type parameters and generic field
+		Assert.assertTrue(usages.contains("java.lang.Comparable"));
+		Assert.assertTrue(usages.contains("java.util.Map"));
+		Assert.assertTrue(usages.contains("java.util.List"));
+		Assert.assertTrue(usages.contains("java.math.BigDecimal"));
+		// Method signature (wildcard, bounds, exceptions)
+		Assert.assertTrue(usages.contains("java.lang.Number"));
+		Assert.assertTrue(usages.contains("java.util.Collection"));
+		Assert.assertTrue(usages.contains("java.io.IOException"));
+		// Annotation
+		Assert.assertTrue(usages.contains("java.lang.Deprecated"));
+		// References are counted
+		Assert.assertTrue(facts.getReferenceCount("java.util.Map") >= 1);
+		Assert.assertEquals(0, facts.getReferenceCount("does.not.Exist"));
+		// Local variable
+		Assert.assertTrue(usages.contains("java.lang.StringBuilder"));
+		// Anonymous class is mapped to the enclosing class
+		Assert.assertTrue(usages.contains(Sample.class.getName()));
+		Assert.assertFalse(usages.contains(Sample.class.getName() + "$1"));
+		Assert.assertTrue(usages.contains("java.util.concurrent.Callable"));
+	}
+
+	@Test
+	public void testAnonymous() throws IOException {
+		final ClassFileFacts facts = read(Sample.anonymous().getClass());
+		Assert.assertEquals(Sample.class.getName(), facts.getClassName());
+		Assert.assertTrue(facts.isAnonymousOrLocal());
+		Assert.assertFalse(facts.isAbstract());
+	}
+
+	@Test
+	public void testToClassName() {
+		Assert.assertEquals("a.b.C", ClassFileReader.toClassName("a/b/C"));
+		Assert.assertEquals("a.b.C$D", ClassFileReader.toClassName("a/b/C$D"));
+		Assert.assertEquals("a.b.C", ClassFileReader.toClassName("a/b/C$1"));
+		Assert.assertEquals("a.b.C$D", ClassFileReader.toClassName("a/b/C$D$1Local"));
+		Assert.assertEquals("C", ClassFileReader.toClassName("C"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAClassFile() throws IOException {
+		ClassFileReader.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+	}
+
+	private static ClassFileFacts read(final java.lang.Class<?> clazz) throws IOException {
+		final String fileName = clazz.getName().substring(clazz.getName().lastIndexOf('.') + 1) + ".class";
+		try (InputStream in = clazz.getResourceAsStream(fileName)) {
+			return ClassFileReader.read(in);
+		}
+	}
+
+	@Deprecated
+	abstract static class Sample<T extends Comparable<T>> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		Map<String, List<BigDecimal>> field;
+
+		abstract <U extends Number> U method(Collection<? super T> values) throws IOException;
+
+		static String local() {
+			final StringBuilder result = new StringBuilder();
+			return result.toString();
+		}
+
+		static Callable<Object> anonymous() {
+			return new Callable<Object>() {
+				@Override
+				public Object call() {
+					return null;
+				}
+			};
+		}
+	}
+}
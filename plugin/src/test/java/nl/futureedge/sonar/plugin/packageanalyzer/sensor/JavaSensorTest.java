@@ -1,16 +1,22 @@
 package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 
 import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultIndexedFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
@@ -22,15 +28,121 @@ import org.sonar.api.config.MapSettings;
 import org.sonar.api.config.Settings;
 
 import nl.futureedge.sonar.plugin.packageanalyzer.java.JavaClasspathProperties;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.Statistics;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
 import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.SymbolTable;
 import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
 import nl.futureedge.sonar.plugin.packageanalyzer.sensor.JavaSensor;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
 
 public class JavaSensorTest {
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void test() throws ReflectiveOperationException, IOException {
+		final Model<Location> model = buildModel(new MapSettings());
+
+		Model.print(model, System.out);
+		assertOnlyProjectPackages(model);
+	}
+
+	@Test
+	public void testThreads() throws ReflectiveOperationException, IOException {
+		final Settings settings = new MapSettings();
+		settings.setProperty(PackageAnalyzerProperties.THREADS_KEY, "4");
+
+		Assert.assertEquals(print(buildModel(new MapSettings())), print(buildModel(settings)));
+	}
+
+	@Test
+	public void testCache() throws ReflectiveOperationException, IOException {
+		final File workDir = temporaryFolder.newFolder();
 		final Settings settings = new MapSettings();
+		settings.setProperty(PackageAnalyzerProperties.CACHE_KEY, "true");
+
+		final String expected = print(buildModel(new MapSettings()));
+		Assert.assertEquals(expected, print(buildModel(settings, workDir)));
+		Assert.assertTrue(new File(workDir, "package-analyzer/source-facts.cache").isFile());
+		Assert.assertEquals(expected, print(buildModel(settings, workDir)));
+	}
+
+	@Test
+	public void testBytecode() throws ReflectiveOperationException, IOException {
+		final Settings settings = new MapSettings();
+		settings.setProperty(PackageAnalyzerProperties.INPUT_KEY, PackageAnalyzerProperties.INPUT_BYTECODE);
+		settings.setProperty(JavaClasspathProperties.SONAR_JAVA_BINARIES,
+				new File("target/test-classes").getAbsolutePath());
+
+		final Model<Location> model = buildModel(settings);
+		Model.print(model, System.out);
+
+		final SymbolTable<Location> symbolTable = model.getSymbolTable();
+		final Class<Location> foo = symbolTable.getClass("nl.futureedge.sonar.plugin.packageanalyzer.test.Foo");
+		final Class<Location> zed = symbolTable.getClass("nl.futureedge.sonar.plugin.packageanalyzer.test.quux.Zed");
+		Assert.assertNotNull(foo.getExternal());
+		Assert.assertNotNull(symbolTable.getClass("nl.futureedge.sonar.plugin.packageanalyzer.test.Foo$Baz").getExternal());
+		Assert.assertNotNull(zed.getExternal());
+		Assert.assertTrue(zed.getUsages().contains(symbolTable.getClass("nl.futureedge.sonar.plugin.packageanalyzer.test.Bar")));
+		Assert.assertEquals("src/main/java/nl/futureedge/sonar/plugin/packageanalyzer/test/Foo.java",
+				((InputFile) foo.getExternal().getOn()).relativePath());
+		// Annotated package declaration (after a commented out declaration)
+		Assert.assertNotNull(zed.getParentPackage().getExternal());
+		Assert.assertEquals(5, zed.getParentPackage().getExternal().getAt().start().line());
+		Assert.assertFalse(model.getPackages().stream().anyMatch(p -> p.getName().endsWith(".commented")));
+		Assert.assertTrue(zed.getParentPackage().getPackageUsages().contains(foo.getParentPackage()));
+
+		assertOnlyProjectPackages(model);
+	}
+
+	@Test
+	public void testPackageFilter() throws ReflectiveOperationException, IOException {
+		final Settings settings = new MapSettings();
+		settings.setProperty(PackageAnalyzerProperties.PACKAGES_EXCLUDE_KEY,
+				"nl.futureedge.sonar.plugin.packageanalyzer.test.quux");
+
+		final Model<Location> model = buildModel(settings);
+		Assert.assertEquals(1, model.getPackages().size());
+		Assert.assertEquals("nl.futureedge.sonar.plugin.packageanalyzer.test",
+				model.getPackages().iterator().next().getName());
+	}
+
+	@Test
+	public void testLibraries() throws ReflectiveOperationException, IOException {
+		final Settings settings = new MapSettings();
+		settings.setProperty(PackageAnalyzerProperties.LIBRARIES_KEY, "true");
+		// Only the class files contain usages of library classes (java.lang.Object)
+		settings.setProperty(PackageAnalyzerProperties.INPUT_KEY, PackageAnalyzerProperties.INPUT_BYTECODE);
+		settings.setProperty(JavaClasspathProperties.SONAR_JAVA_BINARIES,
+				new File("target/test-classes").getAbsolutePath());
+		settings.setProperty(PackageAnalyzerProperties.PACKAGES_INCLUDE_KEY,
+				"nl.futureedge.sonar.plugin.packageanalyzer.test,java.lang");
+
+		final Model<Location> model = buildModel(settings);
+		Assert.assertTrue(model.getPackages().stream().anyMatch(p -> "java.lang".equals(p.getName())));
+		for (final Package<Location> modelPackage : model.getPackages()) {
+			Assert.assertTrue(modelPackage.getName(), modelPackage.getName().startsWith("java.lang")
+					|| modelPackage.getName().startsWith("nl.futureedge.sonar.plugin.packageanalyzer.test"));
+		}
+	}
+
+	private static void assertOnlyProjectPackages(final Model<Location> model) {
+		// Usages of library types (and test classes) are not part of the model
+		for (final Package<Location> modelPackage : model.getPackages()) {
+			Assert.assertTrue(modelPackage.getName(),
+					modelPackage.getName().startsWith("nl.futureedge.sonar.plugin.packageanalyzer.test"));
+		}
+	}
+
+	private Model<Location> buildModel(final Settings settings) throws ReflectiveOperationException, IOException {
+		return buildModel(settings, null);
+	}
+
+	private Model<Location> buildModel(final Settings settings, final File workDir)
+			throws ReflectiveOperationException, IOException {
 		final JavaSensor subject = new JavaSensor(settings);
 
 		final File baseDir = new File("./src/test/java");
@@ -52,6 +164,9 @@ public class JavaSensorTest {
 		settings.setProperty(JavaClasspathProperties.SONAR_JAVA_LIBRARIES, libraries.toString());
 
 		final SensorContextTester context = SensorContextTester.create(baseDir);
+		if (workDir != null) {
+			context.fileSystem().setWorkDir(workDir);
+		}
 		addInputFile(context.fileSystem(), "Foo.java");
 		addInputFile(context.fileSystem(), "Bar.java");
 		addInputFile(context.fileSystem(), "package-info.java");
@@ -61,15 +176,19 @@ public class JavaSensorTest {
 		addInputFile(context.fileSystem(), "quux/Zed.java");
 		addInputFile(context.fileSystem(), "quux/package-info.java");
 
-		final Method method = JavaSensor.class.getDeclaredMethod("buildModel", SensorContext.class);
+		final Method method = JavaSensor.class.getDeclaredMethod("buildModel", SensorContext.class,
+				Statistics.class);
 		method.setAccessible(true);
 		@SuppressWarnings("unchecked")
-		final Model<Location> model = (Model<Location>) method.invoke(subject, context);
-
-		Model.print(model, System.out);
+		final Model<Location> model = (Model<Location>) method.invoke(subject, context, new Statistics());
+		return model;
 	}
 
-	
+	private static String print(final Model<Location> model) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Model.print(model, new PrintStream(out));
+		return out.toString();
+	}
 
 	private void addInputFile(DefaultFileSystem fileSystem, String filename) throws IOException {
 		final String contents = read(fileSystem.baseDirPath().toFile(), filename);
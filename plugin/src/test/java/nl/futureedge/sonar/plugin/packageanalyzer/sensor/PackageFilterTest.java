@@ -0,0 +1,50 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackageFilterTest {
+
+	@Test
+	public void testAll() {
+		Assert.assertTrue(PackageFilter.ALL.accepts("a.b.C"));
+		Assert.assertTrue(PackageFilter.ALL.accepts("C"));
+		Assert.assertTrue(PackageFilter.ALL.acceptsPackage(""));
+	}
+
+	@Test
+	public void testInclude() {
+		final PackageFilter subject = new PackageFilter(new String[] { "a.b", "x.*" }, new String[0]);
+		Assert.assertTrue(subject.accepts("a.b.C"));
+		Assert.assertTrue(subject.accepts("a.b.c.D$E"));
+		Assert.assertTrue(subject.accepts("x.Y"));
+		Assert.assertTrue(subject.acceptsPackage("a.b"));
+		Assert.assertTrue(subject.acceptsPackage("x"));
+		Assert.assertFalse(subject.accepts("a.C"));
+		Assert.assertFalse(subject.accepts("a.bc.D"));
+		Assert.assertFalse(subject.accepts("java.lang.String"));
+		Assert.assertFalse(subject.accepts("C"));
+		Assert.assertFalse(subject.acceptsPackage("a"));
+	}
+
+	@Test
+	public void testExclude() {
+		final PackageFilter subject = new PackageFilter(new String[] { "" }, new String[] { " a.b.generated " });
+		Assert.assertTrue(subject.accepts("a.b.C"));
+		Assert.assertTrue(subject.accepts("C"));
+		Assert.assertFalse(subject.accepts("a.b.generated.C"));
+		Assert.assertFalse(subject.accepts("a.b.generated.d.E"));
+	}
+
+	@Test
+	public void testMostSpecific() {
+		final PackageFilter subject = new PackageFilter(new String[] { "a", "a.b.c.keep", "x" },
+				new String[] { "a.b", "x" });
+		Assert.assertTrue(subject.accepts("a.C"));
+		Assert.assertFalse(subject.accepts("a.b.C"));
+		Assert.assertFalse(subject.accepts("a.b.c.D"));
+		Assert.assertTrue(subject.accepts("a.b.c.keep.D"));
+		// Exclude wins from an equal include
+		Assert.assertFalse(subject.accepts("x.Y"));
+	}
+}
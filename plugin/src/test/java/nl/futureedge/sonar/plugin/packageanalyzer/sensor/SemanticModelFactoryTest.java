@@ -0,0 +1,59 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.ClassTree;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.CompilationUnitTree;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.api.tree.VariableTree;
+import nl.futureedge.sonar.plugin.packageanalyzer.java.ast.parser.JavaParser;
+
+public class SemanticModelFactoryTest {
+
+	@Test
+	public void test() throws IOException {
+		try (SemanticModelFactory subject = new SemanticModelFactory(Collections.emptyList())) {
+			Assert.assertTrue(subject.isShared());
+
+			for (int i = 0; i < 2; i++) {
+				final CompilationUnitTree tree = (CompilationUnitTree) JavaParser.createParser()
+						.parse("package a; class A { java.util.List<String> field; }");
+				Assert.assertNotNull(subject.createFor(tree));
+
+				final VariableTree field = (VariableTree) ((ClassTree) tree.types().get(0)).members().get(0);
+				Assert.assertEquals("java.util.List", field.type().symbolType().fullyQualifiedName());
+			}
+		}
+	}
+
+	@Test
+	public void testCachingClassLoader() throws IOException {
+		final SemanticModelFactory.CachingClassLoader subject = new SemanticModelFactory.CachingClassLoader(
+				getClass().getClassLoader(), 1);
+		final String name = SemanticModelFactoryTest.class.getName().replace('.', '/') + ".class";
+
+		try (InputStream in = subject.getResourceAsStream(name)) {
+			Assert.assertNotNull(in);
+		}
+		try (InputStream in = subject.getResourceAsStream(name)) {
+			Assert.assertNotNull(in);
+		}
+		Assert.assertEquals(1, subject.getHits());
+		Assert.assertEquals(1, subject.getMisses());
+
+		// Missing classes are cached
+		Assert.assertNull(subject.getResourceAsStream("does/not/Exist.class"));
+		Assert.assertNull(subject.getResourceAsStream("does/not/Exist.class"));
+		Assert.assertEquals(2, subject.getHits());
+
+		// Bounded: the least recently used class is removed
+		try (InputStream in = subject.getResourceAsStream(name)) {
+			Assert.assertNotNull(in);
+		}
+		Assert.assertEquals(3, subject.getMisses());
+	}
+}
@@ -0,0 +1,301 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.rule.RulesDefinition;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.java.JavaClasspathProperties;
+import nl.futureedge.sonar.plugin.packageanalyzer.metrics.PackageAnalyzerMetrics;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.AbstractnessRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.AfferentCouplingRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.BaseRules;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.EfferentCouplingRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.InstabilityRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.JavaRules;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.MissingPackageInfoRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.NumberOfClassesAndInterfacesRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageAnalyzerRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.PackageDependencyCyclesRule;
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
+
+/**
+ * End-to-end benchmark of the java sensor: executes the sensor (with all rules
+ * active, using their default parameters) on a generated source tree and
+ * records the model build time, the rule time (from the statistics measures of
+ * the sensor) and the peak heap usage; the statistics of the sensor are logged.
+ *
+ * The source files are compiled first (as in a real analysis, the types are
+ * resolved using the compiled classes in {@code sonar.java.binaries}).
+ *
+ * Run the main method (from the plugin directory, with the test classpath) to
+ * measure a large source tree, for example:
+ * {@code packages=2000 classes=20 fanOut=5 cycleDensity=0.01 packageInfo=0.5 runs=3};
+ * settings of the package analyzer can be given the same way. The sensor
+ * context keeps all issues in memory, so large trees with many package cycles
+ * need a large heap (or {@code sonar.package-analyzer.cycles.mode=dependencies}).
+ */
+final class SensorBenchmark {
+
+	private static final String LANGUAGE = "java";
+
+	private SensorBenchmark() {
+		// Not instantiable
+	}
+
+	/**
+	 * Execute the java sensor on the given source files.
+	 *
+	 * @param baseDir
+	 *            base directory of the source files
+	 * @param files
+	 *            source files (relative to the base directory)
+	 * @param workDir
+	 *            working directory (of the source facts cache)
+	 * @param settings
+	 *            settings (the statistics measures are enabled)
+	 * @return result
+	 * @throws IOException
+	 *             when a source file could not be read
+	 */
+	static Result run(final Path baseDir, final List<String> files, final Path workDir, final Settings settings)
+			throws IOException {
+		final SensorContextTester context = SensorContextTester.create(baseDir);
+		context.fileSystem().setWorkDir(workDir.toFile());
+		context.setSettings(settings);
+		for (final String file : files) {
+			final String contents = new String(Files.readAllBytes(baseDir.resolve(file)), StandardCharsets.UTF_8);
+			context.fileSystem().add(new TestInputFileBuilder("projectKey", file).setModuleBaseDir(baseDir)
+					.setLanguage(LANGUAGE).setCharset(StandardCharsets.UTF_8).initMetadata(contents).build());
+		}
+
+		final PackageAnalyzerRule[] rules = new PackageAnalyzerRule[] { new AbstractnessRule(settings),
+				new AfferentCouplingRule(settings), new EfferentCouplingRule(settings), new InstabilityRule(settings),
+				new MissingPackageInfoRule(), new NumberOfClassesAndInterfacesRule(settings),
+				new PackageDependencyCyclesRule(settings) };
+		activateRules(context, rules);
+		final JavaSensor sensor = new JavaSensor(settings, rules);
+
+		// The sensor saves its statistics as measures
+		settings.setProperty(PackageAnalyzerProperties.STATISTICS_MEASURES_KEY, "true");
+		resetPeakHeap();
+		sensor.execute(context);
+		final long peakHeap = peakHeap();
+
+		final String module = context.module().key();
+		return new Result(files.size(),
+				context.measure(module, PackageAnalyzerMetrics.STATISTICS_BUILD_MODEL_TIME).value(),
+				context.measure(module, PackageAnalyzerMetrics.STATISTICS_EXECUTE_RULES_TIME).value(), peakHeap,
+				context.allIssues().size(),
+				context.measure(module, PackageAnalyzerMetrics.PACKAGE_DEPENDENCY_CYCLES_FOUND).value());
+	}
+
+	/**
+	 * Compile the source files and use the compiled classes to resolve types
+	 * ({@code sonar.java.binaries}).
+	 *
+	 * @param baseDir
+	 *            base directory of the source files
+	 * @param files
+	 *            source files (relative to the base directory)
+	 * @param outputDir
+	 *            directory for the compiled classes
+	 * @param settings
+	 *            settings
+	 * @throws IOException
+	 *             when the output directory could not be created
+	 */
+	static void compile(final Path baseDir, final List<String> files, final Path outputDir, final Settings settings)
+			throws IOException {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("No java compiler available (run with a JDK)");
+		}
+		Files.createDirectories(outputDir);
+
+		final List<String> arguments = new ArrayList<>();
+		arguments.add("-d");
+		arguments.add(outputDir.toString());
+		arguments.add("-encoding");
+		arguments.add("UTF-8");
+		for (final String file : files) {
+			arguments.add(baseDir.resolve(file).toString());
+		}
+		if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+			throw new IllegalStateException("Could not compile the source files");
+		}
+		settings.setProperty(JavaClasspathProperties.SONAR_JAVA_BINARIES, outputDir.toString());
+	}
+
+	/**
+	 * Activate all rules, using their default parameters.
+	 */
+	private static void activateRules(final SensorContextTester context, final PackageAnalyzerRule... rules) {
+		final RulesDefinition.Context definitions = new RulesDefinition.Context();
+		new JavaRules(rules).define(definitions);
+
+		final ActiveRulesBuilder activeRules = new ActiveRulesBuilder();
+		for (final RulesDefinition.Rule rule : definitions.repository(BaseRules.getRepositoryKey(LANGUAGE))
+				.rules()) {
+			final NewActiveRule activeRule = activeRules.create(RuleKey.of(rule.repository().key(), rule.key()))
+					.setLanguage(LANGUAGE);
+			for (final RulesDefinition.Param param : rule.params()) {
+				activeRule.setParam(param.key(), param.defaultValue());
+			}
+			activeRule.activate();
+		}
+		context.setActiveRules(activeRules.build());
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long peakHeap() {
+		long result = 0;
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				result += pool.getPeakUsage().getUsed();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Generate a source tree and execute the java sensor on it.
+	 *
+	 * @param args
+	 *            generator settings and package analyzer settings (key=value)
+	 * @throws IOException
+	 *             when the source tree could not be generated
+	 */
+	public static void main(final String[] args) throws IOException {
+		final Map<String, String> arguments = new HashMap<>();
+		for (final String arg : args) {
+			final int separator = arg.indexOf('=');
+			arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		final SourceTreeGenerator generator = new SourceTreeGenerator()
+				.packages(Integer.parseInt(arguments.getOrDefault("packages", "2000")))
+				.classesPerPackage(Integer.parseInt(arguments.getOrDefault("classes", "20")))
+				.fanOut(Integer.parseInt(arguments.getOrDefault("fanOut", "5")))
+				.cycleDensity(Double.parseDouble(arguments.getOrDefault("cycleDensity", "0.01")))
+				.packageInfoCoverage(Double.parseDouble(arguments.getOrDefault("packageInfo", "0.5")))
+				.seed(Long.parseLong(arguments.getOrDefault("seed", "42")));
+		final int runs = Integer.parseInt(arguments.getOrDefault("runs", "3"));
+
+		final Settings settings = new MapSettings(new PropertyDefinitions(PackageAnalyzerProperties.definitions()));
+		arguments.forEach((key, value) -> {
+			if (key.startsWith("sonar.")) {
+				settings.setProperty(key, value);
+			}
+		});
+
+		final Path baseDir = Files.createTempDirectory("package-analyzer-benchmark");
+		try {
+			final Path sourceDir = baseDir.resolve("src");
+			final List<String> files = generator.generate(sourceDir);
+			System.out.println("Generated " + files.size() + " source files in " + sourceDir);
+			compile(sourceDir, files, baseDir.resolve("classes"), settings);
+			for (int run = 1; run <= runs; run++) {
+				// Each run starts with an empty source facts cache
+				final Path workDir = Files.createDirectories(baseDir.resolve("work-" + run));
+				System.out.println("Run " + run + ": " + run(sourceDir, files, workDir, settings));
+			}
+		} finally {
+			try (Stream<Path> paths = Files.walk(baseDir)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Result of a benchmark run.
+	 */
+	static final class Result {
+		private final int files;
+		private final long modelMillis;
+		private final long ruleMillis;
+		private final long peakHeap;
+		private final int issues;
+		private final int packageCycles;
+
+		Result(final int files, final long modelMillis, final long ruleMillis, final long peakHeap,
+				final int issues, final int packageCycles) {
+			this.files = files;
+			this.modelMillis = modelMillis;
+			this.ruleMillis = ruleMillis;
+			this.peakHeap = peakHeap;
+			this.issues = issues;
+			this.packageCycles = packageCycles;
+		}
+
+		/**
+		 * @return time to build the model in milliseconds
+		 */
+		long getModelMillis() {
+			return modelMillis;
+		}
+
+		/**
+		 * @return time to execute the rules in milliseconds
+		 */
+		long getRuleMillis() {
+			return ruleMillis;
+		}
+
+		/**
+		 * @return peak heap usage in bytes
+		 */
+		long getPeakHeap() {
+			return peakHeap;
+		}
+
+		/**
+		 * @return number of issues registered
+		 */
+		int getIssues() {
+			return issues;
+		}
+
+		/**
+		 * @return number of package cycles found
+		 */
+		int getPackageCycles() {
+			return packageCycles;
+		}
+
+		@Override
+		public String toString() {
+			return files + " files, model " + getModelMillis() + " ms, rules " + getRuleMillis() + " ms, peak heap "
+					+ peakHeap / (1024 * 1024) + " MB, " + issues + " issues, " + packageCycles + " package cycles";
+		}
+	}
+}
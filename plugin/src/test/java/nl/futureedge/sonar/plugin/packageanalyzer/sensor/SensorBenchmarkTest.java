@@ -0,0 +1,63 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.PropertyDefinitions;
+import org.sonar.api.config.Settings;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.settings.PackageAnalyzerProperties;
+
+public class SensorBenchmarkTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testGenerator() throws IOException {
+		final SourceTreeGenerator generator = new SourceTreeGenerator().packages(4).classesPerPackage(3)
+				.packageInfoCoverage(1.0);
+		final Path baseDir = temporaryFolder.newFolder().toPath();
+		final List<String> files = generator.generate(baseDir);
+
+		Assert.assertEquals(16, files.size());
+		Assert.assertTrue(files.contains("generated/p0000/package-info.java"));
+		Assert.assertTrue(files.contains("generated/p0003/P0003C0002.java"));
+
+		// Same settings generate the same source files
+		final Path otherDir = temporaryFolder.newFolder().toPath();
+		Assert.assertEquals(files, generator.generate(otherDir));
+		for (final String file : files) {
+			Assert.assertArrayEquals(file, Files.readAllBytes(baseDir.resolve(file)),
+					Files.readAllBytes(otherDir.resolve(file)));
+		}
+	}
+
+	@Test
+	public void testRun() throws IOException {
+		final Path baseDir = temporaryFolder.newFolder().toPath();
+		final List<String> files = new SourceTreeGenerator().packages(10).classesPerPackage(5).fanOut(3)
+				.cycleDensity(0.05).packageInfoCoverage(0.5).generate(baseDir);
+
+		final Settings settings = new MapSettings(new PropertyDefinitions(PackageAnalyzerProperties.definitions()));
+		SensorBenchmark.compile(baseDir, files, temporaryFolder.newFolder().toPath(), settings);
+
+		final SensorBenchmark.Result result = SensorBenchmark.run(baseDir, files,
+				temporaryFolder.newFolder().toPath(), settings);
+		System.out.println("Result: " + result);
+
+		// Missing package-info.java and package cycles
+		Assert.assertTrue(result.getIssues() > 0);
+		Assert.assertTrue(result.getPackageCycles() > 0);
+		Assert.assertTrue(result.getPeakHeap() > 0);
+		Assert.assertTrue(result.getModelMillis() >= 0);
+		Assert.assertTrue(result.getRuleMillis() >= 0);
+	}
+}
@@ -0,0 +1,156 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceFactsCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void test() throws IOException {
+		final File cacheFile = new File(temporaryFolder.getRoot(), "cache/source-facts.cache");
+		final File library = temporaryFolder.newFile("library.jar");
+
+		final SourceFacts facts = new SourceFacts();
+		facts.addPackage("a", new SourceFacts.TextRange(1, 0, 1, 10));
+		facts.addClass("a.A", true, new SourceFacts.TextRange(3, 0, 5, 1));
+		facts.addUsage("b.B");
+
+		final SourceFactsCache cache = new SourceFactsCache(cacheFile, Arrays.asList(library));
+		cache.load();
+		Assert.assertNull(cache.get("a/A.java", "hash"));
+		cache.put("a/A.java", "hash", facts);
+		cache.save();
+		Assert.assertTrue(cacheFile.isFile());
+
+		// Same libraries
+		final SourceFactsCache loaded = new SourceFactsCache(cacheFile, Arrays.asList(library));
+		loaded.load();
+		Assert.assertNotNull(loaded.get("a/A.java", "hash"));
+		Assert.assertEquals(1, loaded.getReplayedCount());
+		// Changed file
+		Assert.assertNull(loaded.get("a/A.java", "otherHash"));
+
+		// Other libraries
+		final SourceFactsCache otherClasspath = new SourceFactsCache(cacheFile, Collections.emptyList());
+		otherClasspath.load();
+		Assert.assertNull(otherClasspath.get("a/A.java", "hash"));
+
+		// Only files used in the last analysis are retained
+		loaded.save();
+		final SourceFactsCache empty = new SourceFactsCache(cacheFile, Arrays.asList(library));
+		empty.load();
+		Assert.assertNull(empty.get("a/A.java", "hash"));
+	}
+
+	@Test
+	public void testSourceFileChanged() {
+		final File cacheFile = new File(temporaryFolder.getRoot(), "source-facts.cache");
+		final SourceFactsCache cache = new SourceFactsCache(cacheFile, Collections.emptyList());
+		cache.put("a/A.java", "hashA", facts("a.A", "b.B"));
+		cache.put("b/B.java", "hashB", facts("b.B"));
+		cache.save();
+
+		// Only the changed file is parsed again
+		final SourceFactsCache changed = new SourceFactsCache(cacheFile, Collections.emptyList());
+		changed.load();
+		Assert.assertNotNull(changed.get("a/A.java", "hashA"));
+		Assert.assertNull(changed.get("b/B.java", "otherHashB"));
+
+		// No types added or removed
+		Assert.assertEquals(Collections.emptySet(), changed.invalidate(new HashSet<>(Arrays.asList("a.A", "b.B"))));
+		Assert.assertEquals(1, changed.getReplayedCount());
+	}
+
+	@Test
+	public void testInvalidate() {
+		final File cacheFile = new File(temporaryFolder.getRoot(), "source-facts.cache");
+		final SourceFactsCache cache = new SourceFactsCache(cacheFile, Collections.emptyList());
+		cache.put("a/A.java", "hashA", facts("a.A", "b.B"));
+		cache.put("b/B.java", "hashB", facts("b.B"));
+		cache.put("c/C.java", "hashC", facts("c.C", "a.A", "java.lang.String"));
+		cache.save();
+
+		// b.B is moved to d.B: only the files using a type named B are parsed
+		// again
+		final SourceFactsCache moved = new SourceFactsCache(cacheFile, Collections.emptyList());
+		moved.load();
+		Assert.assertNotNull(moved.get("a/A.java", "hashA"));
+		Assert.assertNotNull(moved.get("c/C.java", "hashC"));
+		Assert.assertEquals(Collections.singleton("a/A.java"),
+				moved.invalidate(new HashSet<>(Arrays.asList("a.A", "c.C", "d.B"))));
+		Assert.assertEquals(1, moved.getReplayedCount());
+	}
+
+	@Test
+	public void testBinaryDirectoryIgnored() throws IOException {
+		final File cacheFile = new File(temporaryFolder.getRoot(), "source-facts.cache");
+		final File binaries = temporaryFolder.newFolder("classes");
+		final File classFile = new File(binaries, "b/B.class");
+		Files.createDirectories(classFile.getParentFile().toPath());
+		Files.write(classFile.toPath(), "B".getBytes(StandardCharsets.UTF_8));
+
+		final SourceFactsCache cache = new SourceFactsCache(cacheFile, Arrays.asList(binaries));
+		cache.put("a/A.java", "hash", new SourceFacts());
+		cache.save();
+
+		// Recompiled (the class files are derived from the source files)
+		Files.write(classFile.toPath(), "Recompiled B".getBytes(StandardCharsets.UTF_8));
+		final SourceFactsCache recompiled = new SourceFactsCache(cacheFile, Arrays.asList(binaries));
+		recompiled.load();
+		Assert.assertNotNull(recompiled.get("a/A.java", "hash"));
+	}
+
+	@Test
+	public void testSimpleName() {
+		Assert.assertEquals("B", SourceFacts.simpleName("b.B"));
+		Assert.assertEquals("Inner", SourceFacts.simpleName("b.B$Inner"));
+		Assert.assertEquals("B", SourceFacts.simpleName("B"));
+	}
+
+	private static SourceFacts facts(final String className, final String... usages) {
+		final SourceFacts result = new SourceFacts();
+		result.addClass(className, false, new SourceFacts.TextRange(1, 0, 1, 1));
+		for (final String usage : usages) {
+			result.addUsage(usage);
+		}
+		return result;
+	}
+
+	@Test
+	public void testDisabled() {
+		final SourceFactsCache cache = SourceFactsCache.disabled();
+		Assert.assertFalse(cache.isEnabled());
+		cache.load();
+		cache.put("a/A.java", "hash", new SourceFacts());
+		cache.save();
+		Assert.assertNull(cache.get("a/A.java", "hash"));
+	}
+
+	@Test
+	public void testCorrupt() throws IOException {
+		final File cacheFile = temporaryFolder.newFile("corrupt.cache");
+		final SourceFactsCache cache = new SourceFactsCache(cacheFile, Collections.emptyList());
+		cache.load();
+		Assert.assertNull(cache.get("a/A.java", "hash"));
+	}
+
+	@Test
+	public void testHash() {
+		Assert.assertEquals(64, SourceFactsCache.hash("contents").length());
+		Assert.assertEquals(SourceFactsCache.hash("contents"), SourceFactsCache.hash("contents"));
+		Assert.assertNotEquals(SourceFactsCache.hash("contents"), SourceFactsCache.hash("other contents"));
+	}
+}
@@ -0,0 +1,68 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Class;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Model;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.Package;
+import nl.futureedge.sonar.plugin.packageanalyzer.model.SymbolTable;
+import nl.futureedge.sonar.plugin.packageanalyzer.rules.Location;
+
+public class SourceFactsTest {
+
+	private final ProjectTypes projectTypes = new ProjectTypes(new PackageFilter(new String[0], new String[0]), false);
+
+	@Test
+	public void usagesBeforeFirstClass() {
+		final SourceFacts facts = new SourceFacts();
+		// Import
+		facts.addUsage("b.B");
+		facts.addClass("a.A", false, new SourceFacts.TextRange(3, 0, 5, 1));
+		facts.addUsage("b.B");
+		facts.addClass("a.A2", false, new SourceFacts.TextRange(7, 0, 9, 1));
+		facts.addUsage("b.C");
+		Assert.assertTrue(facts.getUnassignedUsages().isEmpty());
+
+		final Model<Location> model = apply(facts, "a/A.java", "b.B", "b.C");
+		final SymbolTable<Location> symbolTable = model.getSymbolTable();
+		final Class<Location> classA = symbolTable.getClass("a.A");
+		// Import and usage
+		Assert.assertEquals(2, classA.getReferenceCount(symbolTable.getClass("b.B")));
+		Assert.assertFalse(classA.getUsages().contains(symbolTable.getClass("b.C")));
+		Assert.assertTrue(symbolTable.getClass("a.A2").getUsages().contains(symbolTable.getClass("b.C")));
+	}
+
+	@Test
+	public void usagesWithoutClass() {
+		// package-info.java with an annotation on the package declaration
+		final SourceFacts facts = new SourceFacts();
+		facts.addUsage("b.Annotation");
+		facts.addPackage("a", new SourceFacts.TextRange(2, 0, 2, 10));
+		Assert.assertEquals(Collections.singletonMap("b.Annotation", 1), facts.getUnassignedUsages());
+
+		final Model<Location> model = apply(facts, "a/package-info.java", "b.Annotation");
+		Assert.assertEquals(1, model.getPackages().size());
+		final Package<Location> packageA = model.getPackages().iterator().next();
+		Assert.assertEquals("a", packageA.getName());
+		Assert.assertNotNull(packageA.getExternal());
+		Assert.assertTrue(packageA.getClasses().isEmpty());
+	}
+
+	private Model<Location> apply(final SourceFacts facts, final String file, final String... otherTypes) {
+		facts.addClassesTo(projectTypes);
+		for (final String otherType : otherTypes) {
+			projectTypes.add(otherType);
+		}
+		final InputFile on = new TestInputFileBuilder("projectKey", file).setModuleBaseDir(Paths.get("."))
+				.initMetadata(String.join("", Collections.nCopies(20, "                    \n"))).build();
+		final Model<Location> model = new Model<>();
+		facts.applyTo(model, on, projectTypes);
+		return model;
+	}
+}
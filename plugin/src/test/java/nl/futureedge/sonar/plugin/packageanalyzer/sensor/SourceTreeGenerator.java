@@ -0,0 +1,185 @@
+package nl.futureedge.sonar.plugin.packageanalyzer.sensor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a (synthetic) tree of Java source files.
+ *
+ * The packages are layered: a class normally uses classes of packages after
+ * its own package, so the packages do not contain cycles. A fraction of the
+ * usages (cycle density) uses a class of a package before its own package,
+ * which creates package cycles. Each usage is a method parameter; every fifth
+ * class is an interface. The generated source files compile. The same settings
+ * (and seed) always generate the same source files.
+ */
+final class SourceTreeGenerator {
+
+	private static final String BASE_PACKAGE = "generated";
+
+	private int packages = 10;
+	private int classesPerPackage = 10;
+	private int fanOut = 3;
+	private double cycleDensity = 0.01;
+	private double packageInfoCoverage = 0.5;
+	private long seed = 42;
+
+	/**
+	 * @param packages
+	 *            number of packages
+	 * @return this generator
+	 */
+	SourceTreeGenerator packages(final int packages) {
+		this.packages = packages;
+		return this;
+	}
+
+	/**
+	 * @param classesPerPackage
+	 *            number of classes per package
+	 * @return this generator
+	 */
+	SourceTreeGenerator classesPerPackage(final int classesPerPackage) {
+		this.classesPerPackage = classesPerPackage;
+		return this;
+	}
+
+	/**
+	 * @param fanOut
+	 *            number of usages per class
+	 * @return this generator
+	 */
+	SourceTreeGenerator fanOut(final int fanOut) {
+		this.fanOut = fanOut;
+		return this;
+	}
+
+	/**
+	 * @param cycleDensity
+	 *            fraction (0 to 1) of the usages that use a class of a package
+	 *            before the package of the class
+	 * @return this generator
+	 */
+	SourceTreeGenerator cycleDensity(final double cycleDensity) {
+		this.cycleDensity = cycleDensity;
+		return this;
+	}
+
+	/**
+	 * @param packageInfoCoverage
+	 *            fraction (0 to 1) of the packages that contain a
+	 *            package-info.java
+	 * @return this generator
+	 */
+	SourceTreeGenerator packageInfoCoverage(final double packageInfoCoverage) {
+		this.packageInfoCoverage = packageInfoCoverage;
+		return this;
+	}
+
+	/**
+	 * @param seed
+	 *            seed of the random generator
+	 * @return this generator
+	 */
+	SourceTreeGenerator seed(final long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Generate the source files.
+	 *
+	 * @param baseDir
+	 *            directory to generate the source files in
+	 * @return paths of the generated source files (relative to the base
+	 *         directory)
+	 * @throws IOException
+	 *             when a source file could not be written
+	 */
+	List<String> generate(final Path baseDir) throws IOException {
+		final Random random = new Random(seed);
+		final List<String> files = new ArrayList<>();
+		for (int packageIndex = 0; packageIndex < packages; packageIndex++) {
+			final String packageName = packageName(packageIndex);
+			final Path packageDir = baseDir.resolve(packageName.replace('.', '/'));
+			Files.createDirectories(packageDir);
+
+			if (random.nextDouble() < packageInfoCoverage) {
+				files.add(write(baseDir, packageDir.resolve("package-info.java"), "package " + packageName + ";\n"));
+			}
+
+			for (int classIndex = 0; classIndex < classesPerPackage; classIndex++) {
+				final String source = generateClass(random, packageIndex, classIndex);
+				files.add(write(baseDir, packageDir.resolve(className(packageIndex, classIndex) + ".java"), source));
+			}
+		}
+		return files;
+	}
+
+	private String generateClass(final Random random, final int packageIndex, final int classIndex) {
+		final Set<String> usages = new TreeSet<>();
+		for (int usage = 0; usage < fanOut; usage++) {
+			final int usedPackage = usedPackage(random, packageIndex);
+			usages.add(packageName(usedPackage) + "." + className(usedPackage, random.nextInt(classesPerPackage)));
+		}
+		final String packageName = packageName(packageIndex);
+		final String className = className(packageIndex, classIndex);
+		usages.remove(packageName + "." + className);
+
+		final boolean isInterface = classIndex % 5 == 0;
+		final StringBuilder source = new StringBuilder();
+		source.append("package ").append(packageName).append(";\n\n");
+		for (final String usage : usages) {
+			if (!usage.startsWith(packageName + ".")) {
+				source.append("import ").append(usage).append(";\n");
+			}
+		}
+		source.append("\npublic ").append(isInterface ? "interface " : "class ").append(className).append(" {\n");
+		int method = 0;
+		for (final String usage : usages) {
+			final String usedClass = usage.substring(usage.lastIndexOf('.') + 1);
+			source.append("\n\t");
+			if (isInterface) {
+				source.append("void m").append(method++).append("(").append(usedClass).append(" value);\n");
+			} else {
+				source.append("public void m").append(method++).append("(").append(usedClass)
+						.append(" value) {\n\t\t// Generated\n\t}\n");
+			}
+		}
+		source.append("}\n");
+		return source.toString();
+	}
+
+	private int usedPackage(final Random random, final int packageIndex) {
+		if (packageIndex > 0 && random.nextDouble() < cycleDensity) {
+			// Package before (creates a package cycle)
+			return random.nextInt(packageIndex);
+		}
+		if (packageIndex < packages - 1) {
+			// Package after
+			return packageIndex + 1 + random.nextInt(packages - packageIndex - 1);
+		}
+		return packageIndex;
+	}
+
+	private static String packageName(final int packageIndex) {
+		return String.format("%s.p%04d", BASE_PACKAGE, packageIndex);
+	}
+
+	private static String className(final int packageIndex, final int classIndex) {
+		// Unique simple names, so all usages can be imported
+		return String.format("P%04dC%04d", packageIndex, classIndex);
+	}
+
+	private static String write(final Path baseDir, final Path file, final String contents) throws IOException {
+		Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+		return baseDir.relativize(file).toString().replace('\\', '/');
+	}
+}
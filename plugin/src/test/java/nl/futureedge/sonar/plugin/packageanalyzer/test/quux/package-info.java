@@ -1 +1,5 @@
-package nl.futureedge.sonar.plugin.packageanalyzer.test.quux;
\ No newline at end of file
+/*
+package nl.futureedge.sonar.plugin.packageanalyzer.test.commented;
+*/
+@Deprecated
+package nl.futureedge.sonar.plugin.packageanalyzer.test.quux;